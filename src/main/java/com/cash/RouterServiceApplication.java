@@ -3,9 +3,11 @@ package com.cash;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @ComponentScan(basePackages = "com.cash")
+@EnableScheduling
 public class RouterServiceApplication {
 
 	public static void main(String[] args) {
@@ -1,16 +1,24 @@
 package com.cash.config;
 
 import com.cash.grpc.userservice.ValidateTokenResponse;
-import com.cash.services.UserService;
 import io.grpc.StatusRuntimeException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.servlet.HandlerInterceptor;
 
 /**
  * Validates JWT tokens on protected routes and exposes user details as request
  * attributes.
+ *
+ * <p>
+ * The token comes from the {@code Authorization} header. A browser
+ * {@code EventSource} cannot set headers, so Server-Sent Events streams
+ * also accept a {@code ticket} query parameter from
+ * {@link StreamTicketStore}. The JWT itself is never taken from the query
+ * string, where access and proxy logs would record it.
  */
 @Component
 public class AuthenticationInterceptor implements HandlerInterceptor {
@@ -20,10 +28,16 @@ public class AuthenticationInterceptor implements HandlerInterceptor {
   public static final String ATTR_ROLE = "authenticatedRole";
   public static final String ATTR_JWT = "authenticatedJwt";
 
-  private final UserService userService;
+  // GET routes that accept a stream ticket in the query string
+  private static final String[] TICKET_PATHS = {"/api/auctions/*/stream"};
+  private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
 
-  public AuthenticationInterceptor(UserService userService) {
-    this.userService = userService;
+  private final TokenValidator tokenValidator;
+  private final StreamTicketStore streamTickets;
+
+  public AuthenticationInterceptor(TokenValidator tokenValidator, StreamTicketStore streamTickets) {
+    this.tokenValidator = tokenValidator;
+    this.streamTickets = streamTickets;
   }
 
   @Override
@@ -33,21 +47,29 @@ public class AuthenticationInterceptor implements HandlerInterceptor {
     }
 
     String authHeader = request.getHeader("Authorization");
-    if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-      writeUnauthorized(response, "Missing or invalid Authorization header");
+    String jwt;
+    if (authHeader != null && authHeader.startsWith("Bearer ")) {
+      jwt = authHeader.substring(7).trim();
+    } else if (authHeader == null && acceptsTicket(request)) {
+      jwt = streamTickets.redeem(request.getParameter(StreamTicketStore.TICKET_PARAM));
+      if (jwt == null) {
+        writeUnauthorized(response, Rejection.INVALID_TICKET);
+        return false;
+      }
+    } else {
+      writeUnauthorized(response, Rejection.MISSING_HEADER);
       return false;
     }
 
-    String jwt = authHeader.substring(7).trim();
     if (jwt.isEmpty()) {
-      writeUnauthorized(response, "Authorization token cannot be empty");
+      writeUnauthorized(response, Rejection.EMPTY_TOKEN);
       return false;
     }
 
     try {
-      ValidateTokenResponse validation = userService.validateToken(jwt);
+      ValidateTokenResponse validation = tokenValidator.validate(jwt);
       if (!validation.getValid()) {
-        writeUnauthorized(response, "Token validation failed");
+        writeUnauthorized(response, Rejection.INVALID_TOKEN);
         return false;
       }
 
@@ -57,14 +79,48 @@ public class AuthenticationInterceptor implements HandlerInterceptor {
       request.setAttribute(ATTR_JWT, jwt);
       return true;
     } catch (StatusRuntimeException ex) {
-      writeUnauthorized(response, ex.getMessage());
+      // Token problems are turned into invalid results by the validator; what
+      // reaches here is the user-service being unreachable or failing
+      writeUnauthorized(response, Rejection.SERVICE_ERROR);
+      return false;
+    }
+  }
+
+  private static boolean acceptsTicket(HttpServletRequest request) {
+    if (!"GET".equalsIgnoreCase(request.getMethod()) || request.getParameter(StreamTicketStore.TICKET_PARAM) == null) {
       return false;
     }
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    for (String pattern : TICKET_PATHS) {
+      if (PATH_MATCHER.match(pattern, path)) {
+        return true;
+      }
+    }
+    return false;
   }
 
-  private void writeUnauthorized(HttpServletResponse response, String message) throws Exception {
+  private void writeUnauthorized(HttpServletResponse response, Rejection rejection) throws Exception {
     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
     response.setContentType("application/json");
-    response.getWriter().write("{\"error\": \"" + message + "\"}");
+    response.setContentLength(rejection.body.length);
+    response.getOutputStream().write(rejection.body);
+  }
+
+  /**
+   * Fixed 401 bodies, encoded once so rejecting a request costs no string
+   * building.
+   */
+  private enum Rejection {
+    MISSING_HEADER("Missing or invalid Authorization header"),
+    EMPTY_TOKEN("Authorization token cannot be empty"),
+    INVALID_TOKEN("Token validation failed"),
+    INVALID_TICKET("Stream ticket is unknown, used or expired"),
+    SERVICE_ERROR("Token validation is temporarily unavailable");
+
+    private final byte[] body;
+
+    Rejection(String message) {
+      this.body = ("{\"error\": \"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
   }
 }
@@ -0,0 +1,86 @@
+package com.cash.config;
+
+import com.cash.grpc.userservice.ValidateTokenResponse;
+import io.grpc.StatusRuntimeException;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+/**
+ * Authenticates the WebSocket bidding channel once, at the handshake, and
+ * hands the user's details to the connection as session attributes.
+ *
+ * <p>
+ * The token is taken from the {@code Authorization} header or, since
+ * browsers cannot set headers on a WebSocket, redeemed from a single-use
+ * {@code ticket} query parameter issued by {@link StreamTicketStore}; the
+ * JWT itself never goes in the URL, where logs would record it. Bids on the
+ * socket and over REST share the same bidding rules, as the bidding item is
+ * kept per user.
+ */
+@Component
+public class BidSocketHandshakeInterceptor implements HandshakeInterceptor {
+
+  public static final String ATTR_USER_ID = AuthenticationInterceptor.ATTR_USER_ID;
+  public static final String ATTR_USERNAME = AuthenticationInterceptor.ATTR_USERNAME;
+  public static final String ATTR_JWT = AuthenticationInterceptor.ATTR_JWT;
+
+  private final TokenValidator tokenValidator;
+  private final StreamTicketStore streamTickets;
+
+  public BidSocketHandshakeInterceptor(TokenValidator tokenValidator, StreamTicketStore streamTickets) {
+    this.tokenValidator = tokenValidator;
+    this.streamTickets = streamTickets;
+  }
+
+  @Override
+  public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+      WebSocketHandler wsHandler, Map<String, Object> attributes) {
+    if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+      response.setStatusCode(HttpStatus.BAD_REQUEST);
+      return false;
+    }
+    HttpServletRequest httpRequest = servletRequest.getServletRequest();
+
+    String jwt = token(httpRequest);
+    if (jwt == null) {
+      response.setStatusCode(HttpStatus.UNAUTHORIZED);
+      return false;
+    }
+
+    try {
+      ValidateTokenResponse validation = tokenValidator.validate(jwt);
+      if (!validation.getValid()) {
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);
+        return false;
+      }
+      attributes.put(ATTR_USER_ID, validation.getUserId());
+      attributes.put(ATTR_USERNAME, validation.getUsername());
+      attributes.put(ATTR_JWT, jwt);
+      return true;
+    } catch (StatusRuntimeException ex) {
+      response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+      return false;
+    }
+  }
+
+  @Override
+  public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+      WebSocketHandler wsHandler, Exception exception) {
+  }
+
+  private String token(HttpServletRequest request) {
+    String authHeader = request.getHeader("Authorization");
+    if (authHeader != null && authHeader.startsWith("Bearer ")) {
+      String jwt = authHeader.substring(7).trim();
+      return jwt.isEmpty() ? null : jwt;
+    }
+    return streamTickets.redeem(request.getParameter(StreamTicketStore.TICKET_PARAM));
+  }
+}
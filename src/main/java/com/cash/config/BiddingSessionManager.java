@@ -1,36 +1,48 @@
 package com.cash.config;
 
-import jakarta.servlet.http.HttpSession;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
- * Stores a single auction item identifier per servlet session.
+ * Stores a single auction item identifier per user.
  * Controllers/services can use this to remember the item a user chose to bid
- * on.
+ * on. Items are kept in the configured {@link BiddingSessionStore} and
+ * forgotten {@code bidding.session.ttl} after the user's last bid, as a
+ * servlet session would have been.
  */
 @Component
 public class BiddingSessionManager {
 
-  private static final String ITEM_ID_ATTR = "biddingItemId";
+  private final BiddingSessionStore store;
+  private final long ttlMillis;
+
+  public BiddingSessionManager(
+      BiddingSessionStore store,
+      @Value("${bidding.session.ttl:30m}") Duration ttl) {
+    this.store = store;
+    this.ttlMillis = ttl.toMillis();
+  }
 
   /**
-   * Remember which item the current session is bidding on.
+   * Remember which item the user is bidding on.
    */
-  public void setItem(HttpSession session, Integer itemId) {
-    session.setAttribute(ITEM_ID_ATTR, itemId);
+  public void setItem(int userId, int itemId) {
+    store.put(userId, itemId, ttlMillis);
   }
 
   /**
-   * Retrieve the item tied to this session (if any).
+   * Retrieve the item the user is bidding on (if any).
    */
-  public Integer getItem(HttpSession session) {
-    return (Integer) session.getAttribute(ITEM_ID_ATTR);
+  public Integer getItem(int userId) {
+    int itemId = store.get(userId);
+    return itemId == BiddingSessionStore.NO_ITEM ? null : itemId;
   }
 
   /**
-   * Clear the stored item, typically on logout.
+   * Clear the stored item, typically on sign-in and logout.
    */
-  public void clear(HttpSession session) {
-    session.removeAttribute(ITEM_ID_ATTR);
+  public void clear(int userId) {
+    store.remove(userId);
   }
 }
@@ -0,0 +1,23 @@
+package com.cash.config;
+
+/**
+ * Remembers which auction item each user is bidding on, keyed by user id so
+ * any router instance can serve any request without sticky sessions.
+ */
+public interface BiddingSessionStore {
+
+  /** Returned by {@link #get} for a user without a current item. */
+  int NO_ITEM = IntIntTtlMap.NO_VALUE;
+
+  /**
+   * @return the item the user is bidding on, or {@link #NO_ITEM}
+   */
+  int get(int userId);
+
+  /**
+   * Makes the item the user's current one until {@code ttlMillis} from now.
+   */
+  void put(int userId, int itemId, long ttlMillis);
+
+  void remove(int userId);
+}
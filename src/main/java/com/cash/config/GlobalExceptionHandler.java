@@ -135,7 +135,7 @@ public class GlobalExceptionHandler {
     }
 
     /** Maps gRPC status codes to HTTP status codes. */
-    private HttpStatus mapGrpcStatusToHttp(StatusRuntimeException e) {
+    public static HttpStatus mapGrpcStatusToHttp(StatusRuntimeException e) {
         return switch (e.getStatus().getCode()) {
             case NOT_FOUND -> HttpStatus.NOT_FOUND;
             case INVALID_ARGUMENT -> HttpStatus.BAD_REQUEST;
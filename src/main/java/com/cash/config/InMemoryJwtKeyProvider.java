@@ -0,0 +1,120 @@
+package com.cash.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process stand-in for the user-service key set. Generates RSA keys on
+ * startup, can rotate them on demand or on a schedule, and issues signed
+ * tokens so local verification can be exercised without the real
+ * user-service. The current and previous key are kept so tokens survive one
+ * rotation.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "auth.jwt.key-source", havingValue = "in-memory")
+public class InMemoryJwtKeyProvider implements JwtKeyProvider {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+  private final AtomicInteger generation = new AtomicInteger();
+
+  private final String issuer;
+  private final String audience;
+
+  private volatile Map<String, KeyPair> keys = Map.of();
+  private volatile String currentKid;
+
+  public InMemoryJwtKeyProvider(
+      @Value("${auth.jwt.issuer:}") String issuer,
+      @Value("${auth.jwt.audience:}") String audience) {
+    this.issuer = issuer;
+    this.audience = audience;
+    rotate();
+  }
+
+  @Override
+  public PublicKey getKey(String kid) {
+    KeyPair pair = keys.get(kid == null ? currentKid : kid);
+    return pair == null ? null : pair.getPublic();
+  }
+
+  @Scheduled(initialDelayString = "${auth.jwt.in-memory.rotation-interval:PT1H}",
+      fixedDelayString = "${auth.jwt.in-memory.rotation-interval:PT1H}")
+  public void scheduledRotate() {
+    rotate();
+  }
+
+  /**
+   * Generates a new signing key, keeping only the previous one for
+   * verification.
+   *
+   * @return the new key id
+   */
+  public synchronized String rotate() {
+    try {
+      KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+      generator.initialize(2048);
+      String kid = "standin-" + generation.incrementAndGet();
+
+      Map<String, KeyPair> next = new LinkedHashMap<>();
+      if (currentKid != null) {
+        next.put(currentKid, keys.get(currentKid));
+      }
+      next.put(kid, generator.generateKeyPair());
+      keys = Map.copyOf(next);
+      currentKid = kid;
+      log.info("Stand-in JWT signing key rotated to {}", kid);
+      return kid;
+    } catch (Exception e) {
+      throw new IllegalStateException("Unable to generate stand-in JWT key", e);
+    }
+  }
+
+  /**
+   * Issues an RS256 token signed with the current key, for the configured
+   * issuer and audience.
+   */
+  public String issue(int userId, String username, String role, Duration ttl) {
+    String kid = currentKid;
+    Instant now = Instant.now();
+
+    Map<String, Object> header = Map.of("alg", "RS256", "typ", "JWT", "kid", kid);
+    Map<String, Object> claims = new LinkedHashMap<>();
+    claims.put("sub", String.valueOf(userId));
+    claims.put("userId", userId);
+    claims.put("username", username);
+    claims.put("role", role);
+    claims.put("iss", issuer);
+    claims.put("aud", audience);
+    claims.put("iat", now.getEpochSecond());
+    claims.put("exp", now.plus(ttl).getEpochSecond());
+
+    try {
+      String signingInput = BASE64_URL.encodeToString(MAPPER.writeValueAsBytes(header))
+          + "." + BASE64_URL.encodeToString(MAPPER.writeValueAsBytes(claims));
+      Signature signature = Signature.getInstance("SHA256withRSA");
+      signature.initSign(keys.get(kid).getPrivate());
+      signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+      return signingInput + "." + BASE64_URL.encodeToString(signature.sign());
+    } catch (Exception e) {
+      throw new IllegalStateException("Unable to sign stand-in JWT", e);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.cash.config;
+
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local stand-in transport. Delivers revocations to every subscriber in the
+ * same JVM, so several application contexts started side by side (e.g. in a
+ * test) stay in sync without any network setup.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.revocation.channel", havingValue = "in-process", matchIfMissing = true)
+public class InProcessRevocationChannel implements RevocationChannel {
+
+  private static final List<Consumer<String>> LISTENERS = new CopyOnWriteArrayList<>();
+
+  private final List<Consumer<String>> own = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void publish(String tokenDigest) {
+    for (Consumer<String> listener : LISTENERS) {
+      listener.accept(tokenDigest);
+    }
+  }
+
+  @Override
+  public void subscribe(Consumer<String> listener) {
+    own.add(listener);
+    LISTENERS.add(listener);
+  }
+
+  @PreDestroy
+  public void close() {
+    LISTENERS.removeAll(own);
+  }
+}
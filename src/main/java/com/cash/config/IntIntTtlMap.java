@@ -0,0 +1,228 @@
+package com.cash.config;
+
+/**
+ * Concurrent map from {@code int} to {@code int} whose entries expire at a
+ * given time, stored in flat primitive arrays.
+ *
+ * <p>
+ * An entry costs 16 bytes instead of a boxed key, boxed value and node of a
+ * {@code ConcurrentHashMap}, let alone a servlet session. The keys are
+ * spread over independently locked segments, each an open-addressing table
+ * with linear probing. Expired entries are dropped when they are next looked
+ * up and by {@link #evictExpired()}.
+ */
+public final class IntIntTtlMap {
+
+  /** Returned by {@link #get} for a key without a live entry. */
+  public static final int NO_VALUE = Integer.MIN_VALUE;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final Segment[] segments;
+  private final int segmentShift;
+
+  /**
+   * @param concurrency number of segments, rounded up to a power of two
+   */
+  public IntIntTtlMap(int concurrency) {
+    int count = Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1;
+    this.segments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      segments[i] = new Segment();
+    }
+    this.segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+  }
+
+  /**
+   * @return the value of a live entry, or {@link #NO_VALUE}
+   */
+  public int get(int key) {
+    int hash = hash(key);
+    return segmentFor(hash).get(key, hash, System.currentTimeMillis());
+  }
+
+  /**
+   * Sets the value, replacing any previous entry and its expiry.
+   */
+  public void put(int key, int value, long expiresAtMillis) {
+    int hash = hash(key);
+    segmentFor(hash).put(key, hash, value, Math.max(1, expiresAtMillis));
+  }
+
+  public void remove(int key) {
+    int hash = hash(key);
+    segmentFor(hash).remove(key, hash);
+  }
+
+  /**
+   * Drops every expired entry, shrinking segments that have emptied out.
+   *
+   * @return the number of entries dropped
+   */
+  public int evictExpired() {
+    long now = System.currentTimeMillis();
+    int evicted = 0;
+    for (Segment segment : segments) {
+      evicted += segment.evictExpired(now);
+    }
+    return evicted;
+  }
+
+  /** Number of entries held, including expired ones not yet dropped. */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  private static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  // The segment comes from the top bits, the slot within it from the bottom ones
+  private Segment segmentFor(int hash) {
+    return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+  }
+
+  /**
+   * One open-addressing table. A slot is free when its deadline is zero;
+   * removals shift later entries of the probe run back, so no tombstones are
+   * needed.
+   */
+  private static final class Segment {
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY];
+    private long[] deadlines = new long[INITIAL_CAPACITY];
+    private int size;
+
+    synchronized int get(int key, int hash, long now) {
+      int slot = find(key, hash);
+      if (slot < 0) {
+        return NO_VALUE;
+      }
+      if (deadlines[slot] <= now) {
+        delete(slot);
+        return NO_VALUE;
+      }
+      return values[slot];
+    }
+
+    synchronized void put(int key, int hash, int value, long deadline) {
+      int slot = find(key, hash);
+      if (slot < 0) {
+        if ((size + 1) * 2 > keys.length) {
+          rehash(keys.length * 2);
+        }
+        slot = freeSlot(hash);
+        keys[slot] = key;
+        size++;
+      }
+      values[slot] = value;
+      deadlines[slot] = deadline;
+    }
+
+    synchronized void remove(int key, int hash) {
+      int slot = find(key, hash);
+      if (slot >= 0) {
+        delete(slot);
+      }
+    }
+
+    synchronized int evictExpired(long now) {
+      int before = size;
+      int live = 0;
+      for (int slot = 0; slot < keys.length; slot++) {
+        if (deadlines[slot] > now) {
+          live++;
+        }
+      }
+      if (live == before) {
+        return 0;
+      }
+      int capacity = INITIAL_CAPACITY;
+      while (live * 2 > capacity) {
+        capacity *= 2;
+      }
+      int[] oldKeys = keys;
+      int[] oldValues = values;
+      long[] oldDeadlines = deadlines;
+      reset(capacity);
+      for (int slot = 0; slot < oldKeys.length; slot++) {
+        if (oldDeadlines[slot] > now) {
+          insert(oldKeys[slot], oldValues[slot], oldDeadlines[slot]);
+        }
+      }
+      return before - size;
+    }
+
+    synchronized int size() {
+      return size;
+    }
+
+    private int find(int key, int hash) {
+      int mask = keys.length - 1;
+      for (int slot = hash & mask; deadlines[slot] != 0; slot = (slot + 1) & mask) {
+        if (keys[slot] == key) {
+          return slot;
+        }
+      }
+      return -1;
+    }
+
+    private int freeSlot(int hash) {
+      int mask = keys.length - 1;
+      int slot = hash & mask;
+      while (deadlines[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    // Moves each later entry of the run into the hole unless the hole lies before its home slot
+    private void delete(int slot) {
+      int mask = keys.length - 1;
+      int hole = slot;
+      for (int next = (slot + 1) & mask; deadlines[next] != 0; next = (next + 1) & mask) {
+        int home = hash(keys[next]) & mask;
+        if (((next - home) & mask) >= ((next - hole) & mask)) {
+          keys[hole] = keys[next];
+          values[hole] = values[next];
+          deadlines[hole] = deadlines[next];
+          hole = next;
+        }
+      }
+      deadlines[hole] = 0;
+      size--;
+    }
+
+    private void rehash(int capacity) {
+      int[] oldKeys = keys;
+      int[] oldValues = values;
+      long[] oldDeadlines = deadlines;
+      reset(capacity);
+      for (int slot = 0; slot < oldKeys.length; slot++) {
+        if (oldDeadlines[slot] != 0) {
+          insert(oldKeys[slot], oldValues[slot], oldDeadlines[slot]);
+        }
+      }
+    }
+
+    private void reset(int capacity) {
+      keys = new int[capacity];
+      values = new int[capacity];
+      deadlines = new long[capacity];
+      size = 0;
+    }
+
+    private void insert(int key, int value, long deadline) {
+      int slot = freeSlot(hash(key));
+      keys[slot] = key;
+      values[slot] = value;
+      deadlines[slot] = deadline;
+      size++;
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package com.cash.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Loads verification keys from the JWKS document published by the
+ * user-service. The key set is reloaded on a schedule and, throttled, whenever
+ * a token references a key id we have not seen, so key rotation does not need
+ * a restart. Without a configured URI the provider knows no keys and every
+ * token falls back to the ValidateToken RPC.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "auth.jwt.key-source", havingValue = "jwks", matchIfMissing = true)
+public class JwksKeyProvider implements JwtKeyProvider {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final String jwksUri;
+  private final long minRefreshIntervalMillis;
+  private final RestClient restClient = RestClient.create();
+  private final AtomicLong lastRefresh = new AtomicLong();
+
+  private volatile Map<String, PublicKey> keys = Map.of();
+
+  public JwksKeyProvider(
+      @Value("${auth.jwt.jwks-uri:}") String jwksUri,
+      @Value("${auth.jwt.jwks-min-refresh-interval:30s}") Duration minRefreshInterval) {
+    this.jwksUri = jwksUri;
+    this.minRefreshIntervalMillis = minRefreshInterval.toMillis();
+  }
+
+  @Override
+  public PublicKey getKey(String kid) {
+    Map<String, PublicKey> current = keys;
+    if (kid == null) {
+      return current.size() == 1 ? current.values().iterator().next() : null;
+    }
+    return current.get(kid);
+  }
+
+  @Override
+  public boolean refresh() {
+    long now = System.currentTimeMillis();
+    long last = lastRefresh.get();
+    if (now - last < minRefreshIntervalMillis || !lastRefresh.compareAndSet(last, now)) {
+      return false;
+    }
+    return reload();
+  }
+
+  @Scheduled(fixedDelayString = "${auth.jwt.jwks-refresh-interval:PT5M}")
+  public void scheduledRefresh() {
+    lastRefresh.set(System.currentTimeMillis());
+    reload();
+  }
+
+  private boolean reload() {
+    if (jwksUri == null || jwksUri.isBlank()) {
+      return false;
+    }
+    try {
+      String body = restClient.get().uri(jwksUri).retrieve().body(String.class);
+      Map<String, PublicKey> loaded = parse(body);
+      keys = Map.copyOf(loaded);
+      log.debug("Loaded {} JWT verification key(s) from {}", loaded.size(), jwksUri);
+      return true;
+    } catch (Exception e) {
+      // Keep the previous key set; unknown keys fall back to the RPC
+      log.warn("Failed to refresh JWKS from {}: {}", jwksUri, e.getMessage());
+      return false;
+    }
+  }
+
+  static Map<String, PublicKey> parse(String jwks) throws Exception {
+    Map<String, PublicKey> result = new HashMap<>();
+    for (JsonNode jwk : MAPPER.readTree(jwks).path("keys")) {
+      String use = jwk.path("use").asText("sig");
+      if (!"sig".equals(use)) {
+        continue;
+      }
+      PublicKey key = switch (jwk.path("kty").asText()) {
+        case "RSA" -> rsaKey(jwk);
+        case "EC" -> ecKey(jwk);
+        default -> null;
+      };
+      if (key != null) {
+        result.put(jwk.path("kid").asText(""), key);
+      }
+    }
+    return result;
+  }
+
+  private static PublicKey rsaKey(JsonNode jwk) throws Exception {
+    RSAPublicKeySpec spec = new RSAPublicKeySpec(
+        unsigned(jwk.path("n").asText()),
+        unsigned(jwk.path("e").asText()));
+    return KeyFactory.getInstance("RSA").generatePublic(spec);
+  }
+
+  private static PublicKey ecKey(JsonNode jwk) throws Exception {
+    String curve = switch (jwk.path("crv").asText()) {
+      case "P-256" -> "secp256r1";
+      case "P-384" -> "secp384r1";
+      case "P-521" -> "secp521r1";
+      default -> null;
+    };
+    if (curve == null) {
+      return null;
+    }
+    AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+    parameters.init(new ECGenParameterSpec(curve));
+    ECPoint point = new ECPoint(unsigned(jwk.path("x").asText()), unsigned(jwk.path("y").asText()));
+    ECPublicKeySpec spec = new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class));
+    return KeyFactory.getInstance("EC").generatePublic(spec);
+  }
+
+  private static BigInteger unsigned(String base64Url) {
+    return new BigInteger(1, Base64.getUrlDecoder().decode(base64Url));
+  }
+}
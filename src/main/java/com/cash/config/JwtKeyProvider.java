@@ -0,0 +1,25 @@
+package com.cash.config;
+
+import java.security.PublicKey;
+
+/**
+ * Source of the public keys used to verify JWT signatures locally.
+ */
+public interface JwtKeyProvider {
+
+  /**
+   * Returns the verification key for a key id, or {@code null} if it is not
+   * known. {@code kid} may be {@code null} when the token header has none.
+   */
+  PublicKey getKey(String kid);
+
+  /**
+   * Re-reads the key set if the source supports it. Called when a token
+   * references an unknown key id; implementations should throttle this.
+   *
+   * @return true if the key set was reloaded
+   */
+  default boolean refresh() {
+    return false;
+  }
+}
@@ -0,0 +1,97 @@
+package com.cash.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Lightweight helpers for reading unverified claims out of a compact JWT.
+ * Nothing here checks signatures; callers must only use the results as hints
+ * (e.g. how long a validation result may be cached).
+ */
+public final class JwtTokens {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  /** Upper bound on token length; anything longer is rejected before any work. */
+  public static final int MAX_LENGTH = 8192;
+
+  private JwtTokens() {
+  }
+
+  /**
+   * Cheap structural check of a compact JWS: three non-empty base64url
+   * segments whose header starts with an encoded JSON object. Runs without
+   * allocating and is meant to reject garbage before any RPC or decoding.
+   */
+  public static boolean isWellFormed(String jwt) {
+    int length = jwt.length();
+    if (length > MAX_LENGTH || !jwt.startsWith("eyJ")) {
+      return false;
+    }
+    int dots = 0;
+    int segmentLength = 0;
+    for (int i = 0; i < length; i++) {
+      char c = jwt.charAt(i);
+      if (c == '.') {
+        if (segmentLength == 0 || ++dots > 2) {
+          return false;
+        }
+        segmentLength = 0;
+      } else if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+          || c == '-' || c == '_') {
+        segmentLength++;
+      } else {
+        return false;
+      }
+    }
+    return dots == 2 && segmentLength > 0;
+  }
+
+  /**
+   * SHA-256 of the token, base64url-encoded without padding. Revocations are
+   * recorded and shared under this digest so the token itself never leaves
+   * the instance that saw it.
+   */
+  public static String digest(String jwt) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(StandardCharsets.US_ASCII));
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * Returns the {@code exp} claim in epoch seconds, or {@code -1} if the token
+   * has no readable expiry.
+   */
+  public static long expiresAt(String jwt) {
+    JsonNode claims = payload(jwt);
+    if (claims == null || !claims.path("exp").canConvertToLong()) {
+      return -1;
+    }
+    return claims.path("exp").asLong();
+  }
+
+  /**
+   * Decodes the payload segment of a compact JWT, or returns {@code null} if
+   * it is not well formed.
+   */
+  static JsonNode payload(String jwt) {
+    int first = jwt.indexOf('.');
+    int second = first < 0 ? -1 : jwt.indexOf('.', first + 1);
+    if (second < 0) {
+      return null;
+    }
+    try {
+      byte[] json = Base64.getUrlDecoder().decode(jwt.substring(first + 1, second));
+      return MAPPER.readTree(json);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,175 @@
+package com.cash.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+/**
+ * A HATEOAS link to a controller method, resolved from its mapping
+ * annotations once and expanded by string concatenation afterwards.
+ *
+ * <p>
+ * Replaces {@code linkTo(methodOn(...))}, which creates a proxy and expands
+ * a URI template for every link on every request. Controllers hold their
+ * templates in static fields, so a missing or ambiguous method fails when
+ * the controller is loaded. The arguments to {@link #link} are the method's
+ * {@code @PathVariable} and {@code @RequestParam} values in declaration
+ * order; a {@code null} request parameter is left out of the link. The
+ * scheme, host and context path come from the current request (including
+ * forwarded headers) and are computed once per request.
+ */
+public final class LinkTemplate {
+
+    private static final String BASE_ATTRIBUTE = LinkTemplate.class.getName() + ".BASE";
+
+    // Literal path pieces; a path variable goes between each consecutive pair
+    private final String[] pathSegments;
+    private final String[] queryParams;
+    private final int arity;
+
+    private LinkTemplate(String[] pathSegments, String[] queryParams) {
+        this.pathSegments = pathSegments;
+        this.queryParams = queryParams;
+        this.arity = pathSegments.length - 1 + queryParams.length;
+    }
+
+    /**
+     * Resolves the template for the request-mapped method with the given name.
+     */
+    public static LinkTemplate of(Class<?> controller, String methodName) {
+        Method target = null;
+        for (Method method : controller.getDeclaredMethods()) {
+            if (method.getName().equals(methodName)
+                    && AnnotatedElementUtils.hasAnnotation(method, RequestMapping.class)) {
+                if (target != null) {
+                    throw new IllegalStateException("Ambiguous link target " + controller.getSimpleName() + "." + methodName);
+                }
+                target = method;
+            }
+        }
+        if (target == null) {
+            throw new IllegalStateException("No request mapping " + controller.getSimpleName() + "." + methodName);
+        }
+
+        String path = firstPath(AnnotatedElementUtils.findMergedAnnotation(controller, RequestMapping.class))
+                + firstPath(AnnotatedElementUtils.findMergedAnnotation(target, RequestMapping.class));
+
+        List<String> pathVariables = new ArrayList<>();
+        List<String> queryParams = new ArrayList<>();
+        for (Parameter parameter : target.getParameters()) {
+            PathVariable pathVariable = AnnotatedElementUtils.findMergedAnnotation(parameter, PathVariable.class);
+            if (pathVariable != null) {
+                pathVariables.add(name(pathVariable.name(), parameter));
+            }
+            RequestParam requestParam = AnnotatedElementUtils.findMergedAnnotation(parameter, RequestParam.class);
+            if (requestParam != null) {
+                queryParams.add(name(requestParam.name(), parameter));
+            }
+        }
+
+        // Split the path around its {variables}, which must be declared in the same order as the parameters
+        String[] segments = new String[pathVariables.size() + 1];
+        int from = 0;
+        for (int i = 0; i < pathVariables.size(); i++) {
+            String placeholder = "{" + pathVariables.get(i) + "}";
+            int at = path.indexOf(placeholder, from);
+            if (at < 0) {
+                throw new IllegalStateException("Path variable " + placeholder + " not found in order in " + path);
+            }
+            segments[i] = path.substring(from, at);
+            from = at + placeholder.length();
+        }
+        segments[pathVariables.size()] = path.substring(from);
+
+        return new LinkTemplate(segments, queryParams.toArray(String[]::new));
+    }
+
+    public Link link(String rel, Object... args) {
+        return Link.of(href(args), rel);
+    }
+
+    public Link link(LinkRelation rel, Object... args) {
+        return Link.of(href(args), rel);
+    }
+
+    public Link self(Object... args) {
+        return link(IanaLinkRelations.SELF, args);
+    }
+
+    /**
+     * Expands the template against the current request's base URI.
+     */
+    public String href(Object... args) {
+        if (args.length != arity) {
+            throw new IllegalArgumentException("Expected " + arity + " link arguments but got " + args.length);
+        }
+
+        String base = base();
+        StringBuilder href = new StringBuilder(base.length() + 64).append(base);
+        int pathVariables = pathSegments.length - 1;
+        for (int i = 0; i < pathVariables; i++) {
+            href.append(pathSegments[i]).append(encodePath(args[i]));
+        }
+        href.append(pathSegments[pathVariables]);
+
+        char separator = '?';
+        for (int i = 0; i < queryParams.length; i++) {
+            Object value = args[pathVariables + i];
+            if (value != null) {
+                href.append(separator).append(queryParams[i]).append('=')
+                        .append(UriUtils.encodeQueryParam(value.toString(), StandardCharsets.UTF_8));
+                separator = '&';
+            }
+        }
+        return href.toString();
+    }
+
+    private static String encodePath(Object value) {
+        if (value instanceof Integer || value instanceof Long) {
+            return value.toString();
+        }
+        return UriUtils.encodePathSegment(String.valueOf(value), StandardCharsets.UTF_8);
+    }
+
+    private static String base() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return "";
+        }
+        HttpServletRequest request = servletAttributes.getRequest();
+        Object cached = request.getAttribute(BASE_ATTRIBUTE);
+        if (cached instanceof String base) {
+            return base;
+        }
+        String base = ServletUriComponentsBuilder.fromCurrentServletMapping().build().toUriString();
+        request.setAttribute(BASE_ATTRIBUTE, base);
+        return base;
+    }
+
+    private static String firstPath(RequestMapping mapping) {
+        if (mapping == null || mapping.path().length == 0) {
+            return "";
+        }
+        return mapping.path()[0];
+    }
+
+    private static String name(String declared, Parameter parameter) {
+        // Falls back to the compiled parameter name, which Spring Boot builds keep (-parameters)
+        return declared.isEmpty() ? parameter.getName() : declared;
+    }
+}
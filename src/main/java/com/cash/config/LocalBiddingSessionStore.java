@@ -0,0 +1,48 @@
+package com.cash.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps bidding items in this router's memory. Only correct with a single
+ * router instance, or one that always sees the same users.
+ */
+@Component
+@ConditionalOnProperty(name = "bidding.session.store", havingValue = "local", matchIfMissing = true)
+public class LocalBiddingSessionStore implements BiddingSessionStore {
+
+  private final IntIntTtlMap items;
+
+  public LocalBiddingSessionStore(
+      @Value("${bidding.session.local.concurrency:16}") int concurrency,
+      MeterRegistry meterRegistry) {
+    this.items = new IntIntTtlMap(concurrency);
+    Gauge.builder("bidding.sessions", items, IntIntTtlMap::size)
+        .description("Users with a current bidding item held by this router")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public int get(int userId) {
+    return items.get(userId);
+  }
+
+  @Override
+  public void put(int userId, int itemId, long ttlMillis) {
+    items.put(userId, itemId, System.currentTimeMillis() + ttlMillis);
+  }
+
+  @Override
+  public void remove(int userId) {
+    items.remove(userId);
+  }
+
+  @Scheduled(fixedDelayString = "${bidding.session.sweep-interval:PT1M}")
+  public void evictExpired() {
+    items.evictExpired();
+  }
+}
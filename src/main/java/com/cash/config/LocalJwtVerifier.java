@@ -0,0 +1,170 @@
+package com.cash.config;
+
+import com.cash.grpc.userservice.ValidateTokenResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.time.Duration;
+import java.util.Base64;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Verifies JWT signatures and standard claims in-process using keys from the
+ * configured {@link JwtKeyProvider}. Supports the RS* and ES* algorithms used
+ * with published public keys.
+ *
+ * <p>
+ * Tokens must carry an {@code exp} and be issued by {@code auth.jwt.issuer}
+ * for {@code auth.jwt.audience}; both must be configured in local mode, so a
+ * token the same keys signed for another service is not accepted here.
+ */
+@Component
+public class LocalJwtVerifier {
+
+  public enum Outcome {
+    VALID, INVALID, UNKNOWN_KEY
+  }
+
+  public record Result(Outcome outcome, ValidateTokenResponse validation, String reason) {
+
+    static Result valid(ValidateTokenResponse validation) {
+      return new Result(Outcome.VALID, validation, null);
+    }
+
+    static Result invalid(String reason) {
+      return new Result(Outcome.INVALID, null, reason);
+    }
+
+    static Result unknownKey() {
+      return new Result(Outcome.UNKNOWN_KEY, null, "Unknown signing key");
+    }
+  }
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final JwtKeyProvider keyProvider;
+  private final long clockSkewSeconds;
+  private final String issuer;
+  private final String audience;
+
+  public LocalJwtVerifier(
+      JwtKeyProvider keyProvider,
+      @Value("${auth.jwt.clock-skew:30s}") Duration clockSkew,
+      @Value("${auth.jwt.issuer:}") String issuer,
+      @Value("${auth.jwt.audience:}") String audience,
+      @Value("${auth.mode:remote}") String mode) {
+    if ("local".equalsIgnoreCase(mode) && (issuer.isBlank() || audience.isBlank())) {
+      throw new IllegalStateException("auth.jwt.issuer and auth.jwt.audience must be set for local token validation");
+    }
+    this.keyProvider = keyProvider;
+    this.clockSkewSeconds = clockSkew.toSeconds();
+    this.issuer = issuer;
+    this.audience = audience;
+  }
+
+  public Result verify(String jwt) {
+    int first = jwt.indexOf('.');
+    int second = first < 0 ? -1 : jwt.indexOf('.', first + 1);
+    if (second < 0 || jwt.indexOf('.', second + 1) >= 0) {
+      return Result.invalid("Malformed token");
+    }
+
+    JsonNode header = decode(jwt.substring(0, first));
+    JsonNode claims = decode(jwt.substring(first + 1, second));
+    if (header == null || claims == null) {
+      return Result.invalid("Malformed token");
+    }
+
+    String algorithm = jcaAlgorithm(header.path("alg").asText());
+    if (algorithm == null) {
+      return Result.invalid("Unsupported signing algorithm");
+    }
+
+    String kid = header.hasNonNull("kid") ? header.get("kid").asText() : null;
+    PublicKey key = keyProvider.getKey(kid);
+    if (key == null && keyProvider.refresh()) {
+      key = keyProvider.getKey(kid);
+    }
+    if (key == null) {
+      return Result.unknownKey();
+    }
+
+    try {
+      Signature signature = Signature.getInstance(algorithm);
+      signature.initVerify(key);
+      signature.update(jwt.substring(0, second).getBytes(StandardCharsets.US_ASCII));
+      if (!signature.verify(Base64.getUrlDecoder().decode(jwt.substring(second + 1)))) {
+        return Result.invalid("Invalid token signature");
+      }
+    } catch (GeneralSecurityException | IllegalArgumentException e) {
+      return Result.invalid("Invalid token signature");
+    }
+
+    long now = System.currentTimeMillis() / 1000;
+    if (!claims.path("exp").canConvertToLong()) {
+      return Result.invalid("Token has no expiry");
+    }
+    if (claims.path("exp").asLong() + clockSkewSeconds < now) {
+      return Result.invalid("Token has expired");
+    }
+    if (claims.has("nbf") && claims.path("nbf").asLong() - clockSkewSeconds > now) {
+      return Result.invalid("Token is not yet valid");
+    }
+    if (!issuer.equals(claims.path("iss").asText())) {
+      return Result.invalid("Unexpected token issuer");
+    }
+    if (!hasAudience(claims.path("aud"))) {
+      return Result.invalid("Unexpected token audience");
+    }
+
+    int userId = claims.path("userId").asInt(claims.path("user_id").asInt(claims.path("sub").asInt(0)));
+    if (userId <= 0) {
+      return Result.invalid("Token has no user id");
+    }
+
+    return Result.valid(ValidateTokenResponse.newBuilder()
+        .setValid(true)
+        .setUserId(userId)
+        .setUsername(claims.path("username").asText(claims.path("sub").asText("")))
+        .setRole(claims.path("role").asText(""))
+        .setMessage("Token verified locally")
+        .build());
+  }
+
+  // The aud claim is either one string or an array of them
+  private boolean hasAudience(JsonNode aud) {
+    if (aud.isArray()) {
+      for (JsonNode value : aud) {
+        if (audience.equals(value.asText())) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return audience.equals(aud.asText());
+  }
+
+  private static String jcaAlgorithm(String alg) {
+    return switch (alg) {
+      case "RS256" -> "SHA256withRSA";
+      case "RS384" -> "SHA384withRSA";
+      case "RS512" -> "SHA512withRSA";
+      case "ES256" -> "SHA256withECDSAinP1363Format";
+      case "ES384" -> "SHA384withECDSAinP1363Format";
+      case "ES512" -> "SHA512withECDSAinP1363Format";
+      default -> null;
+    };
+  }
+
+  private static JsonNode decode(String segment) {
+    try {
+      return MAPPER.readTree(Base64.getUrlDecoder().decode(segment));
+    } catch (Exception e) {
+      return null;
+    }
+  }
+}
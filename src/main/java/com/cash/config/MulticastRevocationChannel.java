@@ -0,0 +1,128 @@
+package com.cash.config;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shares revocations between router instances on the same network segment
+ * over UDP multicast. Delivery is best effort; the user-service remains the
+ * source of truth for tokens that are not in the local filter.
+ *
+ * <p>
+ * A datagram carries only the 32-byte SHA-256 digest of the token, followed
+ * by an HMAC-SHA256 of it under {@code auth.revocation.multicast.secret},
+ * which every instance must share. Datagrams that do not authenticate are
+ * dropped, so other hosts on the segment can neither read tokens nor inject
+ * revocations. A replayed datagram only repeats a genuine revocation.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "auth.revocation.channel", havingValue = "multicast")
+public class MulticastRevocationChannel implements RevocationChannel {
+
+  private static final String HMAC = "HmacSHA256";
+  private static final int DIGEST_BYTES = 32;
+  private static final int DATAGRAM_BYTES = DIGEST_BYTES * 2;
+
+  private final InetSocketAddress group;
+  private final MulticastSocket socket;
+  private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+  private final Thread receiver;
+  private final SecretKeySpec key;
+
+  public MulticastRevocationChannel(
+      @Value("${auth.revocation.multicast.group:239.1.2.3}") String groupAddress,
+      @Value("${auth.revocation.multicast.port:45678}") int port,
+      @Value("${auth.revocation.multicast.secret:}") String secret) throws IOException {
+    if (secret.length() < 32) {
+      throw new IllegalStateException(
+          "auth.revocation.multicast.secret must be set to at least 32 characters for the multicast channel");
+    }
+    this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC);
+    this.group = new InetSocketAddress(InetAddress.getByName(groupAddress), port);
+    this.socket = new MulticastSocket(port);
+    this.socket.joinGroup(group, null);
+    this.receiver = Thread.ofPlatform().daemon().name("revocation-multicast").start(this::receiveLoop);
+  }
+
+  @Override
+  public void publish(String tokenDigest) {
+    byte[] digest = Base64.getUrlDecoder().decode(tokenDigest);
+    byte[] payload = Arrays.copyOf(digest, DATAGRAM_BYTES);
+    System.arraycopy(mac(digest), 0, payload, DIGEST_BYTES, DIGEST_BYTES);
+    try {
+      socket.send(new DatagramPacket(payload, payload.length, group));
+    } catch (IOException e) {
+      log.warn("Failed to broadcast token revocation: {}", e.getMessage());
+    }
+  }
+
+  @Override
+  public void subscribe(Consumer<String> listener) {
+    listeners.add(listener);
+  }
+
+  @PreDestroy
+  public void close() {
+    receiver.interrupt();
+    socket.close();
+  }
+
+  private void receiveLoop() {
+    // One byte more than a valid datagram, so an oversized one is not mistaken for a truncated valid one
+    byte[] buffer = new byte[DATAGRAM_BYTES + 1];
+    while (!socket.isClosed()) {
+      DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+      try {
+        socket.receive(packet);
+      } catch (IOException e) {
+        if (!socket.isClosed()) {
+          log.warn("Revocation multicast receive failed: {}", e.getMessage());
+        }
+        continue;
+      }
+      if (packet.getLength() != DATAGRAM_BYTES) {
+        log.debug("Dropped revocation datagram of {} bytes from {}", packet.getLength(), packet.getAddress());
+        continue;
+      }
+      byte[] digest = Arrays.copyOfRange(buffer, 0, DIGEST_BYTES);
+      byte[] received = Arrays.copyOfRange(buffer, DIGEST_BYTES, DATAGRAM_BYTES);
+      if (!MessageDigest.isEqual(mac(digest), received)) {
+        log.warn("Dropped revocation datagram with a bad signature from {}", packet.getAddress());
+        continue;
+      }
+      String tokenDigest = Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+      for (Consumer<String> listener : listeners) {
+        listener.accept(tokenDigest);
+      }
+    }
+  }
+
+  private byte[] mac(byte[] digest) {
+    try {
+      Mac mac = Mac.getInstance(HMAC);
+      mac.init(key);
+      return mac.doFinal(digest);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot compute revocation HMAC", e);
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package com.cash.config;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts token revocations between router instances so a logout on one
+ * node is honoured by all of them. Tokens travel as their
+ * {@link JwtTokens#digest(String) digest}, never in the clear.
+ */
+public interface RevocationChannel {
+
+  /**
+   * Announces that the token with this digest has been revoked.
+   */
+  void publish(String tokenDigest);
+
+  /**
+   * Registers a listener for revocations announced by any instance, including
+   * this one.
+   */
+  void subscribe(Consumer<String> listener);
+}
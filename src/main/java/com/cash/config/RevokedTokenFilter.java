@@ -0,0 +1,189 @@
+package com.cash.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compact record of tokens revoked by logout, checked on every authenticated
+ * request. Tokens are identified by their {@link JwtTokens#digest(String)
+ * digest}, the form in which revocations are shared between instances.
+ *
+ * <p>
+ * Recent revocations are kept in an exact set. Every revocation is also
+ * written to a Bloom filter for the time bucket it happened in; buckets are
+ * recycled once they are older than the retention period, which should be at
+ * least the longest token lifetime. A Bloom hit without an exact entry is
+ * reported as {@link Status#MAYBE_REVOKED} so the caller can confirm with the
+ * user-service instead of rejecting on a false positive.
+ *
+ * <p>
+ * {@link #check(String)} does not allocate: it uses
+ * {@link String#hashCode()} plus one extra pass over the characters.
+ * {@link #isEmpty()} lets callers skip computing the digest at all while
+ * nothing has been revoked within the retention period.
+ */
+@Component
+public class RevokedTokenFilter {
+
+  public enum Status {
+    NOT_REVOKED, MAYBE_REVOKED, REVOKED
+  }
+
+  private static final int HASHES = 7;
+
+  private final long bucketWidthMillis;
+  private final long exactWindowMillis;
+  private final int bits;
+  private final Bucket[] buckets;
+  private final ConcurrentHashMap<String, Long> recent = new ConcurrentHashMap<>();
+  private final AtomicLong lastRevocationEpoch = new AtomicLong(Long.MIN_VALUE);
+
+  public RevokedTokenFilter(
+      @Value("${auth.revocation.bucket-width:1h}") Duration bucketWidth,
+      @Value("${auth.revocation.retention:24h}") Duration retention,
+      @Value("${auth.revocation.exact-window:1h}") Duration exactWindow,
+      @Value("${auth.revocation.expected-per-bucket:10000}") int expectedPerBucket,
+      MeterRegistry meterRegistry) {
+    this.bucketWidthMillis = bucketWidth.toMillis();
+    this.exactWindowMillis = exactWindow.toMillis();
+    // ~1% false positive rate with 7 hash functions
+    this.bits = Math.max(1024, (int) Math.ceil(expectedPerBucket * 9.6));
+
+    int bucketCount = (int) Math.max(1, (retention.toMillis() + bucketWidthMillis - 1) / bucketWidthMillis);
+    this.buckets = new Bucket[bucketCount];
+    for (int i = 0; i < bucketCount; i++) {
+      buckets[i] = new Bucket(bits);
+    }
+
+    Gauge.builder("auth.revocation.exact-entries", recent, ConcurrentHashMap::size)
+        .description("Revoked tokens currently held in the exact set")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Records a revocation.
+   */
+  public void revoke(String tokenDigest) {
+    long now = System.currentTimeMillis();
+    recent.put(tokenDigest, now);
+
+    long epoch = now / bucketWidthMillis;
+    Bucket bucket = buckets[(int) (epoch % buckets.length)];
+    bucket.claim(epoch);
+
+    int h1 = tokenDigest.hashCode();
+    int h2 = secondaryHash(tokenDigest);
+    for (int i = 0; i < HASHES; i++) {
+      bucket.set(index(h1, h2, i));
+    }
+    lastRevocationEpoch.accumulateAndGet(epoch, Math::max);
+  }
+
+  /**
+   * Whether no token can currently match: the exact set is empty and every
+   * Bloom bucket holding a revocation has aged out. Constant time and
+   * allocation-free.
+   */
+  public boolean isEmpty() {
+    return recent.isEmpty()
+        && lastRevocationEpoch.get() < System.currentTimeMillis() / bucketWidthMillis - buckets.length + 1;
+  }
+
+  /**
+   * Checks a token digest against the exact set and all live Bloom buckets.
+   */
+  public Status check(String tokenDigest) {
+    if (recent.containsKey(tokenDigest)) {
+      return Status.REVOKED;
+    }
+
+    long oldestLiveEpoch = System.currentTimeMillis() / bucketWidthMillis - buckets.length + 1;
+    int h1 = tokenDigest.hashCode();
+    int h2 = 0;
+    for (Bucket bucket : buckets) {
+      if (bucket.epoch < oldestLiveEpoch || bucket.isEmpty()) {
+        continue;
+      }
+      if (h2 == 0) {
+        h2 = secondaryHash(tokenDigest);
+      }
+      if (bucket.mightContain(h1, h2, this)) {
+        return Status.MAYBE_REVOKED;
+      }
+    }
+    return Status.NOT_REVOKED;
+  }
+
+  @Scheduled(fixedDelayString = "PT1M")
+  public void expireExactEntries() {
+    long cutoff = System.currentTimeMillis() - exactWindowMillis;
+    recent.values().removeIf(revokedAt -> revokedAt < cutoff);
+  }
+
+  private int index(int h1, int h2, int i) {
+    return Math.floorMod(h1 + i * h2, bits);
+  }
+
+  private static int secondaryHash(String s) {
+    int h = 0x9747b28c;
+    for (int i = 0; i < s.length(); i++) {
+      h ^= s.charAt(i);
+      h *= 0x5bd1e995;
+      h ^= h >>> 15;
+    }
+    // never zero so the lazy computation in check() works, and odd so probes spread
+    return h | 1;
+  }
+
+  /**
+   * One time slice of the Bloom filter.
+   */
+  private static final class Bucket {
+
+    private final AtomicLongArray words;
+    private volatile long epoch = Long.MIN_VALUE;
+    private volatile boolean empty = true;
+
+    Bucket(int bits) {
+      this.words = new AtomicLongArray((bits + 63) >>> 6);
+    }
+
+    synchronized void claim(long newEpoch) {
+      if (epoch == newEpoch) {
+        return;
+      }
+      for (int i = 0; i < words.length(); i++) {
+        words.set(i, 0L);
+      }
+      empty = true;
+      epoch = newEpoch;
+    }
+
+    void set(int bit) {
+      long mask = 1L << (bit & 63);
+      words.getAndAccumulate(bit >>> 6, mask, (current, m) -> current | m);
+      empty = false;
+    }
+
+    boolean isEmpty() {
+      return empty;
+    }
+
+    boolean mightContain(int h1, int h2, RevokedTokenFilter filter) {
+      for (int i = 0; i < HASHES; i++) {
+        int bit = filter.index(h1, h2, i);
+        if ((words.get(bit >>> 6) & (1L << (bit & 63))) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package com.cash.config;
+
+import com.cash.grpc.sessionstore.ClearBiddingItemRequest;
+import com.cash.grpc.sessionstore.GetBiddingItemRequest;
+import com.cash.grpc.sessionstore.GetBiddingItemResponse;
+import com.cash.grpc.sessionstore.SessionStoreServiceGrpc;
+import com.cash.grpc.sessionstore.SetBiddingItemRequest;
+import io.grpc.StatusRuntimeException;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps bidding items in the session-store shared by all router instances,
+ * so the one-item rule holds whichever instance a request reaches.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bidding.session.store", havingValue = "shared")
+public class SharedBiddingSessionStore implements BiddingSessionStore {
+
+  @GrpcClient("session-store")
+  private SessionStoreServiceGrpc.SessionStoreServiceBlockingStub sessionStoreStub;
+
+  @Override
+  public int get(int userId) {
+    GetBiddingItemResponse response = sessionStoreStub.getBiddingItem(GetBiddingItemRequest.newBuilder()
+        .setUserId(userId)
+        .build());
+    return response.getFound() ? response.getCatalogueId() : NO_ITEM;
+  }
+
+  @Override
+  public void put(int userId, int itemId, long ttlMillis) {
+    sessionStoreStub.setBiddingItem(SetBiddingItemRequest.newBuilder()
+        .setUserId(userId)
+        .setCatalogueId(itemId)
+        .setTtlMillis(ttlMillis)
+        .build());
+  }
+
+  // Only called on sign-in and logout, which should not fail over it; the entry expires anyway
+  @Override
+  public void remove(int userId) {
+    try {
+      sessionStoreStub.clearBiddingItem(ClearBiddingItemRequest.newBuilder()
+          .setUserId(userId)
+          .build());
+    } catch (StatusRuntimeException e) {
+      log.warn("Could not clear bidding item of user {}: {}", userId, e.getStatus());
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.cash.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Short-lived, single-use tickets that stand in for the session JWT where a
+ * browser can only authenticate through the URL: {@code EventSource}
+ * streams and WebSocket handshakes. URLs end up in access and proxy logs,
+ * so what is written there must be worthless once used or after
+ * {@code auth.stream-ticket.ttl}, unlike the JWT the ticket was issued for.
+ *
+ * <p>
+ * Tickets live in this router instance's memory; a client opens its stream
+ * right after fetching the ticket, through the same instance.
+ */
+@Component
+public class StreamTicketStore {
+
+  public static final String TICKET_PARAM = "ticket";
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  // Ticket to the JWT it was issued for
+  private final Cache<String, String> tickets;
+  private final Duration ttl;
+
+  public StreamTicketStore(
+      @Value("${auth.stream-ticket.ttl:30s}") Duration ttl,
+      @Value("${auth.stream-ticket.max-size:10000}") long maxSize) {
+    this.ttl = ttl;
+    this.tickets = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttl)
+        .build();
+  }
+
+  /** Issues a ticket for a JWT that has just been validated. */
+  public String issue(String jwt) {
+    byte[] bytes = new byte[32];
+    RANDOM.nextBytes(bytes);
+    String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    tickets.put(ticket, jwt);
+    return ticket;
+  }
+
+  /**
+   * Uses up a ticket and returns the JWT it was issued for, which callers
+   * still validate; {@code null} if the ticket is unknown, used or expired.
+   */
+  public String redeem(String ticket) {
+    return ticket == null || ticket.isBlank() ? null : tickets.asMap().remove(ticket.trim());
+  }
+
+  public Duration ttl() {
+    return ttl;
+  }
+}
@@ -0,0 +1,138 @@
+package com.cash.config;
+
+import com.cash.grpc.userservice.ValidateTokenResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of successful token validations. Lets the
+ * {@link AuthenticationInterceptor} skip the user-service round trip for
+ * tokens it has already seen. An entry lives until the token's own
+ * {@code exp} claim or the configured TTL, whichever comes first.
+ *
+ * <p>
+ * Rejected tokens are remembered separately for a short TTL so a client
+ * replaying a bad token does not cost a user-service call per request.
+ *
+ * <p>
+ * A successful validation is kept with the token's
+ * {@link JwtTokens#digest(String) digest}, so a cached token is checked
+ * against the {@link RevokedTokenFilter} without hashing it again.
+ */
+@Component
+public class TokenValidationCache {
+
+  private final Cache<String, Validated> cache;
+  private final Cache<String, ValidateTokenResponse> rejections;
+
+  /**
+   * A successful validation and the digest of the token it belongs to.
+   */
+  public record Validated(ValidateTokenResponse validation, String digest) {
+  }
+
+  public TokenValidationCache(
+      @Value("${auth.token-cache.ttl:5m}") Duration ttl,
+      @Value("${auth.token-cache.max-size:10000}") long maxSize,
+      @Value("${auth.token-cache.negative-ttl:30s}") Duration negativeTtl,
+      @Value("${auth.token-cache.negative-max-size:50000}") long negativeMaxSize,
+      MeterRegistry meterRegistry) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfter(new TokenExpiry(ttl))
+        .recordStats()
+        .build();
+    // cache.gets{result=hit} is the number of ValidateToken calls we saved
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "auth.token-validation");
+
+    this.rejections = Caffeine.newBuilder()
+        .maximumSize(negativeMaxSize)
+        .expireAfterWrite(negativeTtl)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, rejections, "auth.token-rejection");
+  }
+
+  /**
+   * Returns the cached validation for this token, or {@code null} on a miss.
+   */
+  public Validated get(String jwt) {
+    return cache.getIfPresent(jwt);
+  }
+
+  /**
+   * Remembers a successful validation. Invalid results are never cached.
+   */
+  public void put(String jwt, ValidateTokenResponse validation, String digest) {
+    if (validation.getValid()) {
+      cache.put(jwt, new Validated(validation, digest));
+    }
+  }
+
+  /**
+   * Returns the cached rejection for this token, or {@code null} if it has not
+   * failed validation recently.
+   */
+  public ValidateTokenResponse getRejection(String jwt) {
+    return rejections.getIfPresent(jwt);
+  }
+
+  /**
+   * Remembers a failed validation for the negative TTL.
+   */
+  public void putRejection(String jwt, ValidateTokenResponse validation) {
+    if (!validation.getValid()) {
+      rejections.put(jwt, validation);
+    }
+  }
+
+  /**
+   * Drops a token immediately, typically on logout.
+   */
+  public void invalidate(String jwt) {
+    if (jwt != null) {
+      cache.invalidate(jwt);
+    }
+  }
+
+  /**
+   * Expires each entry at min(token exp, ttl).
+   */
+  private static final class TokenExpiry implements Expiry<String, Validated> {
+
+    private final long ttlNanos;
+
+    TokenExpiry(Duration ttl) {
+      this.ttlNanos = ttl.toNanos();
+    }
+
+    @Override
+    public long expireAfterCreate(String jwt, Validated value, long currentTime) {
+      long exp = JwtTokens.expiresAt(jwt);
+      if (exp < 0) {
+        return ttlNanos;
+      }
+      long untilExp = Duration.between(Instant.now(), Instant.ofEpochSecond(exp)).toNanos();
+      return Math.max(0, Math.min(ttlNanos, untilExp));
+    }
+
+    @Override
+    public long expireAfterUpdate(String jwt, Validated value, long currentTime,
+        long currentDuration) {
+      return expireAfterCreate(jwt, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(String jwt, Validated value, long currentTime,
+        long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
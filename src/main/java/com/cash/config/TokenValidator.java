@@ -0,0 +1,199 @@
+package com.cash.config;
+
+import com.cash.grpc.userservice.ValidateTokenResponse;
+import com.cash.services.UserService;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides how a bearer token is validated for the
+ * {@link AuthenticationInterceptor}.
+ *
+ * <p>
+ * In {@code remote} mode (the default) tokens are checked with the
+ * user-service ValidateToken RPC. In {@code local} mode the signature and
+ * claims are verified in-process and the RPC is only used for tokens signed
+ * by a key we do not know. Successful results are cached either way.
+ *
+ * <p>
+ * Before any of that, tokens are checked against the
+ * {@link RevokedTokenFilter}, which every instance keeps up to date through
+ * the {@link RevocationChannel}, by the token's SHA-256 digest. A possible
+ * (Bloom-only) match bypasses the cache and local verification and is
+ * confirmed with the user-service. The filter is consulted before a cached
+ * result is returned, so a revocation received from another instance takes
+ * effect even though it cannot name the cache entry. While the filter holds
+ * no live revocations the digest is not computed at all, and a cached token
+ * reuses the digest stored with it.
+ *
+ * <p>
+ * Malformed and already-expired tokens are rejected without any RPC, and
+ * every rejection is negative-cached briefly so replaying a bad token is
+ * cheap. Token problems reported by the user-service come back as invalid
+ * results; only infrastructure failures are thrown.
+ */
+@Component
+public class TokenValidator {
+
+  private static final ValidateTokenResponse REVOKED = rejection("Token has been revoked");
+  private static final ValidateTokenResponse MALFORMED = rejection("Malformed token");
+  private static final ValidateTokenResponse EXPIRED = rejection("Token has expired");
+
+  private final UserService userService;
+  private final TokenValidationCache tokenValidationCache;
+  private final LocalJwtVerifier localJwtVerifier;
+  private final RevokedTokenFilter revokedTokenFilter;
+  private final RevocationChannel revocationChannel;
+  private final boolean localMode;
+  private final long clockSkewSeconds;
+
+  private final Counter localHits;
+  private final Counter remoteCalls;
+  private final Counter fastRejects;
+
+  public TokenValidator(
+      UserService userService,
+      TokenValidationCache tokenValidationCache,
+      LocalJwtVerifier localJwtVerifier,
+      RevokedTokenFilter revokedTokenFilter,
+      RevocationChannel revocationChannel,
+      @Value("${auth.mode:remote}") String mode,
+      @Value("${auth.jwt.clock-skew:30s}") Duration clockSkew,
+      MeterRegistry meterRegistry) {
+    this.userService = userService;
+    this.tokenValidationCache = tokenValidationCache;
+    this.localJwtVerifier = localJwtVerifier;
+    this.revokedTokenFilter = revokedTokenFilter;
+    this.revocationChannel = revocationChannel;
+    this.localMode = "local".equalsIgnoreCase(mode);
+    this.clockSkewSeconds = clockSkew.toSeconds();
+    this.localHits = meterRegistry.counter("auth.token-validation.source", "source", "local");
+    this.remoteCalls = meterRegistry.counter("auth.token-validation.source", "source", "remote");
+    this.fastRejects = meterRegistry.counter("auth.token-validation.source", "source", "fast-reject");
+
+    revocationChannel.subscribe(revokedTokenFilter::revoke);
+  }
+
+  /**
+   * Validates a token, returning an invalid response rather than throwing when
+   * the token itself is bad. Failures to reach the user-service propagate.
+   */
+  public ValidateTokenResponse validate(String jwt) {
+    if (!JwtTokens.isWellFormed(jwt)) {
+      fastRejects.increment();
+      return MALFORMED;
+    }
+
+    ValidateTokenResponse rejected = tokenValidationCache.getRejection(jwt);
+    if (rejected != null) {
+      fastRejects.increment();
+      return rejected;
+    }
+
+    TokenValidationCache.Validated cached = tokenValidationCache.get(jwt);
+    if (!revokedTokenFilter.isEmpty()) {
+      String digest = cached != null ? cached.digest() : JwtTokens.digest(jwt);
+      switch (revokedTokenFilter.check(digest)) {
+        case REVOKED -> {
+          return REVOKED;
+        }
+        case MAYBE_REVOKED -> {
+          // Bloom filter hit that has aged out of the exact set; let the user-service decide
+          return remember(jwt, callUserService(jwt), false);
+        }
+        case NOT_REVOKED -> {
+        }
+      }
+    }
+    if (cached != null) {
+      return cached.validation();
+    }
+
+    long exp = JwtTokens.expiresAt(jwt);
+    if (exp >= 0 && exp + clockSkewSeconds < System.currentTimeMillis() / 1000) {
+      fastRejects.increment();
+      return remember(jwt, EXPIRED, false);
+    }
+
+    if (localMode) {
+      LocalJwtVerifier.Result result = localJwtVerifier.verify(jwt);
+      switch (result.outcome()) {
+        case VALID -> {
+          localHits.increment();
+          return remember(jwt, result.validation(), true);
+        }
+        case INVALID -> {
+          return remember(jwt, rejection(result.reason()), false);
+        }
+        case UNKNOWN_KEY -> {
+        }
+      }
+    }
+
+    return remember(jwt, callUserService(jwt), true);
+  }
+
+  /**
+   * Forgets any cached result for this token on this instance only, so the
+   * next request with it is validated afresh. Unlike {@link #revoke}, nothing
+   * is recorded or announced.
+   */
+  public void invalidate(String jwt) {
+    tokenValidationCache.invalidate(jwt);
+  }
+
+  /**
+   * Marks a token as revoked on this instance and announces it to the others.
+   */
+  public void revoke(String jwt) {
+    if (jwt == null || jwt.isEmpty()) {
+      return;
+    }
+    String digest = JwtTokens.digest(jwt);
+    revokedTokenFilter.revoke(digest);
+    tokenValidationCache.invalidate(jwt);
+    revocationChannel.publish(digest);
+  }
+
+  private ValidateTokenResponse callUserService(String jwt) {
+    remoteCalls.increment();
+    try {
+      return userService.validateToken(jwt);
+    } catch (StatusRuntimeException e) {
+      if (isTokenProblem(e.getStatus().getCode())) {
+        return rejection(e.getStatus().getDescription() != null
+            ? e.getStatus().getDescription()
+            : "Token validation failed");
+      }
+      throw e;
+    }
+  }
+
+  private ValidateTokenResponse remember(String jwt, ValidateTokenResponse validation, boolean cacheValid) {
+    if (!validation.getValid()) {
+      tokenValidationCache.putRejection(jwt, validation);
+    } else if (cacheValid) {
+      tokenValidationCache.put(jwt, validation, JwtTokens.digest(jwt));
+    }
+    return validation;
+  }
+
+  private static boolean isTokenProblem(Status.Code code) {
+    return code == Status.Code.UNAUTHENTICATED
+        || code == Status.Code.INVALID_ARGUMENT
+        || code == Status.Code.PERMISSION_DENIED
+        || code == Status.Code.NOT_FOUND;
+  }
+
+  private static ValidateTokenResponse rejection(String message) {
+    return ValidateTokenResponse.newBuilder()
+        .setValid(false)
+        .setMessage(message)
+        .build();
+  }
+}
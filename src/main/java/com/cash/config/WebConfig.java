@@ -1,5 +1,6 @@
 package com.cash.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -13,15 +14,18 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class WebConfig implements WebMvcConfigurer {
 
     private final AuthenticationInterceptor authenticationInterceptor;
+    private final String[] allowedOriginPatterns;
 
-    public WebConfig(AuthenticationInterceptor authenticationInterceptor) {
+    public WebConfig(AuthenticationInterceptor authenticationInterceptor,
+            @Value("${cors.allowed-origin-patterns:*}") String[] allowedOriginPatterns) {
         this.authenticationInterceptor = authenticationInterceptor;
+        this.allowedOriginPatterns = allowedOriginPatterns;
     }
 
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
-                .allowedOriginPatterns("*")
+                .allowedOriginPatterns(allowedOriginPatterns)
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH")
                 .allowedHeaders("*")
                 .allowCredentials(true)
@@ -0,0 +1,37 @@
+package com.cash.config;
+
+import com.cash.controllers.BidSocketHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Registers the WebSocket bidding channel at {@code /ws/bids}. Handshakes are
+ * accepted from the same origins as CORS requests, since the token may come
+ * from a query parameter.
+ */
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final BidSocketHandler bidSocketHandler;
+    private final BidSocketHandshakeInterceptor bidSocketHandshakeInterceptor;
+    private final String[] allowedOriginPatterns;
+
+    public WebSocketConfig(BidSocketHandler bidSocketHandler,
+            BidSocketHandshakeInterceptor bidSocketHandshakeInterceptor,
+            @Value("${cors.allowed-origin-patterns:*}") String[] allowedOriginPatterns) {
+        this.bidSocketHandler = bidSocketHandler;
+        this.bidSocketHandshakeInterceptor = bidSocketHandshakeInterceptor;
+        this.allowedOriginPatterns = allowedOriginPatterns;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(bidSocketHandler, "/ws/bids")
+                .addInterceptors(bidSocketHandshakeInterceptor)
+                .setAllowedOriginPatterns(allowedOriginPatterns);
+    }
+}
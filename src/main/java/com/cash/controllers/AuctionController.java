@@ -1,19 +1,20 @@
 package com.cash.controllers;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
-
 import com.cash.config.AuthenticatedUser;
-import com.cash.config.BiddingSessionManager;
+import com.cash.config.GlobalExceptionHandler;
+import com.cash.config.LinkTemplate;
 import com.cash.dtos.*;
 import com.cash.exceptions.ResourceNotFoundException;
 import com.cash.exceptions.UnauthorizedException;
 import com.cash.grpc.auctionservice.*;
-import com.cash.grpc.catalogue.ItemList;
-import com.cash.grpc.catalogue.ItemResponse;
 import com.cash.mappers.AuctionServiceDtoMapper;
-import com.cash.mappers.CatalogueServiceDtoMapper;
 import com.cash.services.AuctionService;
+import com.cash.services.AuctionStatusStreams;
+import com.cash.services.BidHistory;
+import com.cash.services.BiddingService;
 import com.cash.services.CatalogueService;
+import com.cash.services.ItemFacts;
+import com.cash.services.UserWinsIndex;
 import com.google.protobuf.Timestamp;
 import io.grpc.StatusRuntimeException;
 import io.swagger.v3.oas.annotations.Operation;
@@ -23,7 +24,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -32,26 +33,55 @@ import java.util.List;
 
 import org.apache.coyote.Response;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/auctions")
 @Tag(name = "Auctions", description = "Auction management and bidding operations")
 public class AuctionController {
+
+    static final LinkTemplate START_AUCTION = LinkTemplate.of(AuctionController.class, "startAuction");
+    static final LinkTemplate PLACE_BID = LinkTemplate.of(AuctionController.class, "placeBid");
+    static final LinkTemplate AUCTION_END = LinkTemplate.of(AuctionController.class, "getAuctionEnd");
+    static final LinkTemplate AUCTION_STATUS = LinkTemplate.of(AuctionController.class, "getAuctionStatus");
+    static final LinkTemplate AUCTION_WINNER = LinkTemplate.of(AuctionController.class, "getAuctionWinner");
+    static final LinkTemplate AUCTION_STREAM = LinkTemplate.of(AuctionController.class, "streamAuctionStatus");
+    static final LinkTemplate BID_HISTORY = LinkTemplate.of(AuctionController.class, "getBidHistory");
+
+    // Set on GET /{userId}/wins to the number of auctions that could not be checked
+    private static final String PARTIAL_RESULTS_HEADER = "X-Partial-Results";
+
     private final AuctionService auctionService;
-    private final BiddingSessionManager biddingSessionManager;
+    private final BiddingService biddingService;
     private final CatalogueService catalogueService;
+    private final UserWinsIndex userWinsIndex;
+    private final AuctionStatusStreams auctionStatusStreams;
+    private final int defaultBidPageSize;
+    private final int maxBidPageSize;
 
     @Autowired
     public AuctionController(
             AuctionService auctionService,
-            BiddingSessionManager biddingSessionManager,
-            CatalogueService catalogueService) {
+            BiddingService biddingService,
+            CatalogueService catalogueService,
+            UserWinsIndex userWinsIndex,
+            AuctionStatusStreams auctionStatusStreams,
+            @Value("${auction.bid-history.page.default-size:50}") int defaultBidPageSize,
+            @Value("${auction.bid-history.page.max-size:500}") int maxBidPageSize) {
         this.auctionService = auctionService;
-        this.biddingSessionManager = biddingSessionManager;
+        this.biddingService = biddingService;
         this.catalogueService = catalogueService;
+        this.userWinsIndex = userWinsIndex;
+        this.auctionStatusStreams = auctionStatusStreams;
+        this.defaultBidPageSize = defaultBidPageSize;
+        this.maxBidPageSize = maxBidPageSize;
     }
 
     @ApiResponse(responseCode = "200", description = "Auction started successfully", content = @Content(schema = @Schema(implementation = StartAuctionResponseDto.class)))
@@ -64,10 +94,10 @@ public class AuctionController {
             throw new UnauthorizedException("You need to be logged in to start an auction.");
         }
 
-        // Gets the item from the catalogue service
-        ItemResponse item = catalogueService.getItem(catalogueId);
+        // Only the immutable item fields are needed here, which are cached long-term
+        ItemFacts item = catalogueService.getItemFacts(catalogueId);
 
-        String endTime = item.getEndTime();
+        String endTime = item.endTime();
 
         // assume it's UTC
         Instant instant = LocalDateTime.parse(endTime).toInstant(ZoneOffset.UTC);
@@ -80,7 +110,7 @@ public class AuctionController {
         StartAuctionResponse response = auctionService.startAuction(
                 authUser,
                 catalogueId,
-                item.getStartingPrice(),
+                item.startingPrice(),
                 protoTimestamp // Converted end time from string to protobuf Timestamp
         );
 
@@ -95,16 +125,10 @@ public class AuctionController {
                 .build();
 
         // Add HATEOAS links
-        dto.add(
-                linkTo(methodOn(AuctionController.class).startAuction(catalogueId, request)).withSelfRel());
-        dto.add(
-                linkTo(methodOn(AuctionController.class).getAuctionStatus(catalogueId))
-                        .withRel("auction-status"));
-        dto.add(
-                linkTo(methodOn(AuctionController.class).placeBid(catalogueId, null, request, null))
-                        .withRel("place-bid"));
-        dto.add(
-                linkTo(methodOn(CatalogueController.class).getItem(catalogueId)).withRel("catalogue-item"));
+        dto.add(START_AUCTION.self(catalogueId));
+        dto.add(AUCTION_STATUS.link("auction-status", catalogueId));
+        dto.add(PLACE_BID.link("place-bid", catalogueId));
+        dto.add(CatalogueController.ITEM.link("catalogue-item", catalogueId));
 
         return ResponseEntity.ok(dto);
     }
@@ -114,11 +138,9 @@ public class AuctionController {
     public ResponseEntity<PlaceBidResponseDto> placeBid(
             @Parameter(description = "Catalogue item ID", required = true) @PathVariable int catalogueId,
             @Parameter(description = "Bid details", required = true) @RequestBody PlaceBidRequestDto dto,
-            HttpServletRequest request,
-            HttpSession session) {
+            HttpServletRequest request) {
         Integer authUser = AuthenticatedUser.getUserId(request);
         String authUsername = AuthenticatedUser.getUsername(request);
-        Integer currentItemBid = biddingSessionManager.getItem(session);
 
         if (authUser == null) {
             throw new UnauthorizedException("You need to be logged in to place a bid.");
@@ -126,28 +148,9 @@ public class AuctionController {
 
         PlaceBidRequest bidRequest = AuctionServiceDtoMapper.toProto(dto);
 
-        // Gets the item from the catalogue service
-        ItemResponse item = catalogueService.getItem(catalogueId);
-
-        if (currentItemBid != null && !currentItemBid.equals(catalogueId)) {
-            throw new IllegalArgumentException(
-                    "You can only bid on one auction item at a time. Please finish bidding on your current item before placing a bid on another.");
-        }
-
-        // Checks if the authenticated user is the seller of the item
-        if (item.getSellerId() == authUser) {
-            throw new IllegalArgumentException("You cannot place a bid on your own auction item.");
-        }
-
-        PlaceBidResponse response = auctionService.placeBid(authUser, authUsername, catalogueId,
+        PlaceBidResponse response = biddingService.placeBid(authUser, authUsername, catalogueId,
                 bidRequest.getAmount());
 
-        if (!response.getSuccess()) {
-            throw new IllegalArgumentException(response.getMessage());
-        }
-
-        biddingSessionManager.setItem(session, item.getId());
-
         PlaceBidResponseDto responseDto = PlaceBidResponseDto.builder()
                 .success(true)
                 .message(response.getMessage())
@@ -155,17 +158,10 @@ public class AuctionController {
                 .build();
 
         // Add HATEOAS links
-        responseDto.add(
-                linkTo(methodOn(AuctionController.class).placeBid(catalogueId, dto, request, session))
-                        .withSelfRel());
-        responseDto.add(
-                linkTo(methodOn(AuctionController.class).getAuctionStatus(catalogueId))
-                        .withRel("auction-status"));
-        responseDto.add(
-                linkTo(methodOn(AuctionController.class).getAuctionEnd(catalogueId))
-                        .withRel("auction-end"));
-        responseDto.add(
-                linkTo(methodOn(CatalogueController.class).getItem(catalogueId)).withRel("catalogue-item"));
+        responseDto.add(PLACE_BID.self(catalogueId));
+        responseDto.add(AUCTION_STATUS.link("auction-status", catalogueId));
+        responseDto.add(AUCTION_END.link("auction-end", catalogueId));
+        responseDto.add(CatalogueController.ITEM.link("catalogue-item", catalogueId));
 
         return ResponseEntity.ok(responseDto);
     }
@@ -184,15 +180,10 @@ public class AuctionController {
         dto.setCatalogueId(catalogueId);
 
         // Add HATEOAS links
-        dto.add(linkTo(methodOn(AuctionController.class).getAuctionEnd(catalogueId)).withSelfRel());
-        dto.add(
-                linkTo(methodOn(AuctionController.class).getAuctionStatus(catalogueId))
-                        .withRel("auction-status"));
-        dto.add(
-                linkTo(methodOn(AuctionController.class).getAuctionWinner(catalogueId))
-                        .withRel("auction-winner"));
-        dto.add(
-                linkTo(methodOn(CatalogueController.class).getItem(catalogueId)).withRel("catalogue-item"));
+        dto.add(AUCTION_END.self(catalogueId));
+        dto.add(AUCTION_STATUS.link("auction-status", catalogueId));
+        dto.add(AUCTION_WINNER.link("auction-winner", catalogueId));
+        dto.add(CatalogueController.ITEM.link("catalogue-item", catalogueId));
 
         return ResponseEntity.ok(dto);
     }
@@ -216,29 +207,90 @@ public class AuctionController {
                 .build();
 
         // Add HATEOAS links
-        dto.add(linkTo(methodOn(AuctionController.class).getAuctionStatus(catalogueId)).withSelfRel());
-        dto.add(
-                linkTo(methodOn(CatalogueController.class).getItem(catalogueId)).withRel("catalogue-item"));
+        dto.add(AUCTION_STATUS.self(catalogueId));
+        dto.add(CatalogueController.ITEM.link("catalogue-item", catalogueId));
+        dto.add(BID_HISTORY.link("bid-history", catalogueId, null, null));
 
         // Conditional links based on auction state
         if (response.getRemainingTime() > 0) {
             // Auction is still active - allow bidding
-            dto.add(
-                    linkTo(methodOn(AuctionController.class).placeBid(catalogueId, null, null, null))
-                            .withRel("place-bid"));
-            dto.add(
-                    linkTo(methodOn(AuctionController.class).getAuctionEnd(catalogueId))
-                            .withRel("auction-end"));
+            dto.add(PLACE_BID.link("place-bid", catalogueId));
+            dto.add(AUCTION_END.link("auction-end", catalogueId));
+            dto.add(AUCTION_STREAM.link("auction-stream", catalogueId));
         } else {
             // Auction ended - show winner
-            dto.add(
-                    linkTo(methodOn(AuctionController.class).getAuctionWinner(catalogueId))
-                            .withRel("auction-winner"));
+            dto.add(AUCTION_WINNER.link("auction-winner", catalogueId));
         }
 
         return ResponseEntity.ok(dto);
     }
 
+    /**
+     * Streams the status of an auction as Server-Sent Events
+     *
+     * @param catalogueId The ID of the catalogue item
+     * @return SseEmitter sending a status event now and on every change
+     */
+    @Operation(summary = "Stream auction status", description = "Sends the current auction status, then a new status event whenever the highest bid changes, until the auction ends. Browsers using EventSource, which cannot set headers, may instead pass a single-use ticket from POST /api/users/stream-ticket as the ticket query parameter.")
+    @ApiResponse(responseCode = "200", description = "Status event stream opened")
+    @ApiResponse(responseCode = "404", description = "Auction not found")
+    @GetMapping(path = "/{catalogueId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamAuctionStatus(
+            @Parameter(description = "Catalogue item ID", required = true) @PathVariable int catalogueId) {
+        // Event-stream clients cannot read a JSON error body, so failures are reported by status alone
+        try {
+            return ResponseEntity.ok(auctionStatusStreams.subscribe(catalogueId));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (StatusRuntimeException e) {
+            return ResponseEntity.status(GlobalExceptionHandler.mapGrpcStatusToHttp(e)).build();
+        }
+    }
+
+    /**
+     * Gets the bids placed on an auction, oldest first
+     *
+     * @param catalogueId The ID of the catalogue item
+     * @param cursor      Opaque cursor from the previous page's next link
+     * @param limit       Maximum number of bids per page
+     * @return ResponseEntity with one page of bids, tagged with the history's version
+     */
+    @Operation(summary = "Get bid history", description = "Pages through the bids placed on an auction, oldest first. Responses carry an ETag; send it back in If-None-Match to get 304 Not Modified while no bid has been placed.")
+    @ApiResponse(responseCode = "200", description = "Bids retrieved successfully", content = @Content(schema = @Schema(implementation = CollectionModel.class)))
+    @ApiResponse(responseCode = "304", description = "No bids placed since the given ETag")
+    @ApiResponse(responseCode = "404", description = "Auction not found")
+    @GetMapping("/{catalogueId}/bids")
+    public ResponseEntity<CollectionModel<BidDto>> getBidHistory(
+            @Parameter(description = "Catalogue item ID", required = true) @PathVariable int catalogueId,
+            @Parameter(description = "Opaque cursor from a previous page's next link") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of bids per page") @RequestParam(required = false) Integer limit) {
+        int pageSize = limit == null ? defaultBidPageSize : limit;
+        if (pageSize < 1 || pageSize > maxBidPageSize) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxBidPageSize);
+        }
+        long[] after = cursor == null ? null : decodeCursor(cursor);
+
+        BidHistory history = auctionService.getBidHistory(catalogueId);
+        List<Bid> bids = history.bids();
+        int from = after == null ? 0 : history.indexAfter(after[0], (int) after[1], (int) after[2]);
+        int to = Math.min(bids.size(), from + pageSize);
+        List<BidDto> page = AuctionServiceDtoMapper.fromProtoBids(bids.subList(from, to));
+
+        CollectionModel<BidDto> model = CollectionModel.of(page);
+        model.add(BID_HISTORY.self(catalogueId, cursor, limit));
+        if (to < bids.size()) {
+            model.add(BID_HISTORY.link("next", catalogueId, encodeCursor(bids.get(to - 1)), pageSize));
+        }
+        model.add(AUCTION_STATUS.link("auction-status", catalogueId));
+        model.add(CatalogueController.ITEM.link("catalogue-item", catalogueId));
+
+        // Spring answers 304 itself when If-None-Match carries this tag; an ended auction's bids never change
+        return ResponseEntity.ok()
+                .eTag("W/\"" + catalogueId + "-" + history.version() + "\"")
+                .cacheControl(history.ended() ? CacheControl.maxAge(Duration.ofDays(1)) : CacheControl.noCache())
+                .body(model);
+    }
+
     /**
      * Gets the winner of an auction
      *
@@ -265,21 +317,29 @@ public class AuctionController {
                 .build();
 
         // Add HATEOAS links
-        dto.add(linkTo(methodOn(AuctionController.class).getAuctionWinner(catalogueId)).withSelfRel());
-        dto.add(
-                linkTo(methodOn(AuctionController.class).getAuctionStatus(catalogueId))
-                        .withRel("auction-status"));
-        dto.add(
-                linkTo(methodOn(CatalogueController.class).getItem(catalogueId)).withRel("catalogue-item"));
-        dto.add(
-                linkTo(methodOn(AuctionController.class).getAuctionEnd(catalogueId))
-                        .withRel("auction-end"));
+        dto.add(AUCTION_WINNER.self(catalogueId));
+        dto.add(AUCTION_STATUS.link("auction-status", catalogueId));
+        dto.add(CatalogueController.ITEM.link("catalogue-item", catalogueId));
+        dto.add(AUCTION_END.link("auction-end", catalogueId));
 
         return ResponseEntity.ok(dto);
     }
 
+    // Cursors are the time and id of the last bid on the page, so a late bid sorting in earlier does not shift the next page
+    static String encodeCursor(Bid last) {
+        return Cursors.encode("bid", last.getBidTime().getSeconds(), last.getBidTime().getNanos(), last.getBidId());
+    }
+
+    // Returns {seconds, nanos, bid id}
+    static long[] decodeCursor(String cursor) {
+        long[] fields = Cursors.decode(cursor, "bid", 3);
+        Cursors.field(fields[1], 0, 999_999_999);
+        Cursors.field(fields[2], Integer.MIN_VALUE, Integer.MAX_VALUE);
+        return fields;
+    }
+
     @Operation(summary = "Get user auction wins", description = "Retrieves all auction wins for a specific user")
-    @ApiResponse(responseCode = "200", description = "User auction wins retrieved successfully", content = @Content(schema = @Schema(implementation = AuctionWinsResponseDto.class)))
+    @ApiResponse(responseCode = "200", description = "User auction wins retrieved successfully; an X-Partial-Results header counts auctions that could not be checked", content = @Content(schema = @Schema(implementation = AuctionWinsResponseDto.class)))
     @GetMapping("/{userId}/wins")
     public ResponseEntity<List<AuctionWinsResponseDto>> getUserWins(@Parameter(description = "User Id", required = true) @PathVariable int userId,
                                                                     HttpServletRequest request) {
@@ -294,45 +354,32 @@ public class AuctionController {
             throw new UnauthorizedException("You can only view your own auction wins.");
         }
 
-        ItemList response = catalogueService.getAllItems();
-        List<CatalogueItemResponseDto> items = CatalogueServiceDtoMapper.fromProtoList(response.getItemsList());
-        List<AuctionWinsResponseDto> wins = new java.util.ArrayList<>();
+        UserWinsIndex.Lookup lookup = userWinsIndex.winsFor(userId);
 
-        for (CatalogueItemResponseDto item : items) {
-            GetAuctionWinnerResponse auctionWinnerResponse = auctionService.getAuctionWinner(item.getId());
-            if (auctionWinnerResponse.getFound() && auctionWinnerResponse.getWinnerUserId() == userId && item.isActive()) {
-                AuctionWinsResponseDto winDto = AuctionWinsResponseDto.builder()
-                        .catalogueId(item.getId())
-                        .finalPrice(auctionWinnerResponse.getFinalPrice())
-                        .itemName(item.getTitle())
-                        .build();
-
-                // Add HATEOAS links
-                winDto.add(
-                        linkTo(methodOn(AuctionController.class)
-                                .getAuctionStatus(item.getId()))
-                                .withRel("auction-status"));
-                winDto.add(
-                        linkTo(methodOn(AuctionController.class)
-                                .getAuctionWinner(item.getId()))
-                                .withRel("auction-winner"));
-                winDto.add(
-                        linkTo(methodOn(AuctionController.class)
-                                .getAuctionEnd(item.getId()))
-                                .withRel("auction-end"));
-                winDto.add(
-                        linkTo(methodOn(CatalogueController.class)
-                                .getItem(item.getId()))
-                                .withRel("catalogue-item"));
-                winDto.add(
-                        linkTo(methodOn(PaymentRouterController.class)
-                                .processPayment(null, null))
-                                .withRel("process-payment"));
-
-                wins.add(winDto);
-            }
+        List<AuctionWinsResponseDto> wins = new java.util.ArrayList<>();
+        for (UserWinsIndex.Win win : lookup.wins()) {
+            AuctionWinsResponseDto winDto = AuctionWinsResponseDto.builder()
+                    .catalogueId(win.catalogueId())
+                    .finalPrice(win.finalPrice())
+                    .itemName(win.title())
+                    .build();
+
+            // Add HATEOAS links
+            winDto.add(AUCTION_STATUS.link("auction-status", win.catalogueId()));
+            winDto.add(AUCTION_WINNER.link("auction-winner", win.catalogueId()));
+            winDto.add(AUCTION_END.link("auction-end", win.catalogueId()));
+            winDto.add(CatalogueController.ITEM.link("catalogue-item", win.catalogueId()));
+            winDto.add(PaymentRouterController.PROCESS_PAYMENT.link("process-payment"));
+
+            wins.add(winDto);
         }
 
+        if (lookup.unchecked() > 0) {
+            // Some lookups failed or timed out; tell the client the list may be incomplete
+            return ResponseEntity.ok()
+                    .header(PARTIAL_RESULTS_HEADER, Integer.toString(lookup.unchecked()))
+                    .body(wins);
+        }
         return ResponseEntity.ok(wins);
     }
 }
@@ -0,0 +1,274 @@
+package com.cash.controllers;
+
+import com.cash.config.BidSocketHandshakeInterceptor;
+import com.cash.config.TokenValidator;
+import com.cash.dtos.BidSocketRequestDto;
+import com.cash.dtos.BidSocketResponseDto;
+import com.cash.exceptions.ResourceNotFoundException;
+import com.cash.grpc.auctionservice.PlaceBidResponse;
+import com.cash.services.AuctionStatusStreams;
+import com.cash.services.BiddingService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.grpc.StatusRuntimeException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+/**
+ * WebSocket bidding channel at {@code /ws/bids}, for clients placing many
+ * bids in quick succession.
+ *
+ * <p>
+ * The connection is authenticated once by the
+ * {@link BidSocketHandshakeInterceptor}; each frame after that only
+ * re-checks the token against the local validation cache, so a logout still
+ * takes effect. Clients send small JSON frames:
+ * <ul>
+ * <li>{@code {"type":"bid","ref":"r1","catalogueId":12,"bidAmount":150}}
+ * places a bid under the same rules as {@code POST /api/auctions/{id}/bid},
+ * answered by a {@code bid-result} frame carrying the same {@code ref}. A
+ * successful bid also watches the auction.</li>
+ * <li>{@code {"type":"watch","catalogueId":12}} and {@code "unwatch"} start
+ * and stop {@code status} frames for an auction, ending with an
+ * {@code ended} frame.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class BidSocketHandler extends TextWebSocketHandler {
+
+    private static final String ATTR_CONNECTION = "bidSocketConnection";
+
+    private final BiddingService biddingService;
+    private final AuctionStatusStreams auctionStatusStreams;
+    private final TokenValidator tokenValidator;
+    private final ObjectMapper objectMapper;
+    private final int sendTimeLimit;
+    private final int bufferSizeLimit;
+    private final int maxWatches;
+
+    public BidSocketHandler(
+            BiddingService biddingService,
+            AuctionStatusStreams auctionStatusStreams,
+            TokenValidator tokenValidator,
+            ObjectMapper objectMapper,
+            @Value("${auction.ws.send-time-limit:5s}") Duration sendTimeLimit,
+            @Value("${auction.ws.buffer-size-limit:64KB}") DataSize bufferSizeLimit,
+            @Value("${auction.ws.max-watches:10}") int maxWatches) {
+        this.biddingService = biddingService;
+        this.auctionStatusStreams = auctionStatusStreams;
+        this.tokenValidator = tokenValidator;
+        this.objectMapper = objectMapper;
+        this.sendTimeLimit = (int) sendTimeLimit.toMillis();
+        this.bufferSizeLimit = (int) bufferSizeLimit.toBytes();
+        this.maxWatches = maxWatches;
+    }
+
+    /** Per-connection state; status pushes and replies may be sent from different threads. */
+    private static final class Connection {
+        final WebSocketSession session;
+        final Map<Integer, Watch> watches = new ConcurrentHashMap<>();
+
+        Connection(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+
+    /**
+     * One watched auction. The slot is claimed before the stream
+     * subscription exists, so cancelling in between (unwatch, close) must be
+     * remembered and applied once it is attached.
+     */
+    private static final class Watch {
+        private Runnable unwatch;
+        private boolean cancelled;
+
+        /** Returns false, leaving the caller to run it, if already cancelled. */
+        synchronized boolean attach(Runnable unwatch) {
+            if (cancelled) {
+                return false;
+            }
+            this.unwatch = unwatch;
+            return true;
+        }
+
+        void cancel() {
+            Runnable toRun;
+            synchronized (this) {
+                cancelled = true;
+                toRun = unwatch;
+                unwatch = null;
+            }
+            if (toRun != null) {
+                toRun.run();
+            }
+        }
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        // A client too slow to take its frames within the limits is disconnected
+        session.getAttributes().put(ATTR_CONNECTION, new Connection(
+                new ConcurrentWebSocketSessionDecorator(session, sendTimeLimit, bufferSizeLimit)));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        Connection connection = (Connection) session.getAttributes().get(ATTR_CONNECTION);
+        BidSocketRequestDto request;
+        try {
+            request = objectMapper.readValue(message.getPayload(), BidSocketRequestDto.class);
+        } catch (JsonProcessingException e) {
+            reply(connection, BidSocketResponseDto.builder()
+                    .type("error")
+                    .message("Malformed frame")
+                    .build());
+            return;
+        }
+
+        // Parsed first so an error reply can carry the frame's ref
+        String jwt = (String) session.getAttributes().get(BidSocketHandshakeInterceptor.ATTR_JWT);
+        try {
+            if (!tokenValidator.validate(jwt).getValid()) {
+                session.close(CloseStatus.POLICY_VIOLATION.withReason("Token is no longer valid"));
+                return;
+            }
+        } catch (StatusRuntimeException e) {
+            // A cache miss went to the user-service and it failed; the connection stays usable for a retry
+            log.debug("Could not re-check the token of a bidding socket: {}", e.getStatus());
+            reply(connection, BidSocketResponseDto.builder()
+                    .type("error")
+                    .ref(request.getRef())
+                    .message("Token validation is temporarily unavailable")
+                    .build());
+            return;
+        }
+
+        String type = request.getType() == null ? "bid" : request.getType();
+        switch (type) {
+            case "bid" -> placeBid(connection, request);
+            case "watch" -> watch(connection, request);
+            case "unwatch" -> unwatch(connection, request.getCatalogueId());
+            default -> reply(connection, BidSocketResponseDto.builder()
+                    .type("error")
+                    .ref(request.getRef())
+                    .message("Unknown frame type: " + type)
+                    .build());
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Connection connection = (Connection) session.getAttributes().get(ATTR_CONNECTION);
+        if (connection != null) {
+            connection.watches.values().forEach(Watch::cancel);
+            connection.watches.clear();
+        }
+    }
+
+    private void placeBid(Connection connection, BidSocketRequestDto request) throws IOException {
+        Map<String, Object> attributes = connection.session.getAttributes();
+        int userId = (Integer) attributes.get(BidSocketHandshakeInterceptor.ATTR_USER_ID);
+        String username = (String) attributes.get(BidSocketHandshakeInterceptor.ATTR_USERNAME);
+
+        BidSocketResponseDto.BidSocketResponseDtoBuilder result = BidSocketResponseDto.builder()
+                .type("bid-result")
+                .ref(request.getRef())
+                .catalogueId(request.getCatalogueId());
+        try {
+            PlaceBidResponse response = biddingService.placeBid(userId, username,
+                    request.getCatalogueId(), request.getBidAmount());
+            reply(connection, result.success(true).message(response.getMessage()).build());
+        } catch (IllegalArgumentException | ResourceNotFoundException e) {
+            reply(connection, result.success(false).message(e.getMessage()).build());
+            return;
+        } catch (StatusRuntimeException e) {
+            String description = e.getStatus().getDescription();
+            reply(connection, result.success(false)
+                    .message(description == null || description.isBlank() ? "Service error occurred" : description)
+                    .build());
+            return;
+        }
+        watch(connection, request);
+    }
+
+    private void watch(Connection connection, BidSocketRequestDto request) throws IOException {
+        int catalogueId = request.getCatalogueId();
+        // Claim the slot first, so concurrent frames for the same auction subscribe once and the cap holds
+        Watch watch = new Watch();
+        if (connection.watches.putIfAbsent(catalogueId, watch) != null) {
+            return;
+        }
+        if (connection.watches.size() > maxWatches) {
+            connection.watches.remove(catalogueId, watch);
+            reply(connection, BidSocketResponseDto.builder()
+                    .type("error")
+                    .ref(request.getRef())
+                    .catalogueId(catalogueId)
+                    .message("Watching too many auctions on this connection")
+                    .build());
+            return;
+        }
+        try {
+            Runnable unwatch = auctionStatusStreams.watch(catalogueId, new AuctionStatusStreams.Listener() {
+                @Override
+                public void onEvent(String name, String json) throws IOException {
+                    // The status is already serialized once for every subscriber; only wrap it
+                    connection.session.sendMessage(new TextMessage("{\"type\":\"" + name + "\",\"status\":" + json + "}"));
+                }
+
+                @Override
+                public void onComplete() {
+                    // Only this watch; a later one for the same auction may have taken the slot
+                    connection.watches.remove(catalogueId, watch);
+                }
+            });
+            if (!watch.attach(unwatch)) {
+                unwatch.run();
+            } else if (!connection.session.isOpen()) {
+                // Closed while subscribing, after the close handler cancelled what it saw
+                connection.watches.remove(catalogueId, watch);
+                watch.cancel();
+            }
+        } catch (ResourceNotFoundException e) {
+            connection.watches.remove(catalogueId, watch);
+            reply(connection, BidSocketResponseDto.builder()
+                    .type("error")
+                    .ref(request.getRef())
+                    .catalogueId(catalogueId)
+                    .message(e.getMessage())
+                    .build());
+        } catch (StatusRuntimeException e) {
+            connection.watches.remove(catalogueId, watch);
+            log.debug("Could not watch auction {} for a bidding socket: {}", catalogueId, e.getStatus());
+            reply(connection, BidSocketResponseDto.builder()
+                    .type("error")
+                    .ref(request.getRef())
+                    .catalogueId(catalogueId)
+                    .message("Auction status is unavailable")
+                    .build());
+        }
+    }
+
+    private void unwatch(Connection connection, int catalogueId) {
+        Watch watch = connection.watches.remove(catalogueId);
+        if (watch != null) {
+            watch.cancel();
+        }
+    }
+
+    private void reply(Connection connection, BidSocketResponseDto response) throws IOException {
+        connection.session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
+    }
+}
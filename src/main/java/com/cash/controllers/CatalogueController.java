@@ -1,14 +1,16 @@
 package com.cash.controllers;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
-
 import com.cash.config.AuthenticatedUser;
+import com.cash.config.LinkTemplate;
 import com.cash.dtos.CatalogueItemRequestDto;
 import com.cash.dtos.CatalogueItemResponseDto;
 import com.cash.grpc.catalogue.*;
 import com.cash.mappers.CatalogueServiceDtoMapper;
 import com.cash.services.AuctionService;
+import com.cash.services.CatalogueSearchIndex;
 import com.cash.services.CatalogueService;
+import com.cash.services.CatalogueSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.protobuf.Timestamp;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -17,6 +19,8 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -26,59 +30,126 @@ import java.util.stream.Collectors;
 import jakarta.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/catalogue")
 @Tag(name = "Catalogue", description = "Catalogue item management")
 public class CatalogueController {
 
+    static final LinkTemplate ITEMS = LinkTemplate.of(CatalogueController.class, "getAllItems");
+    static final LinkTemplate SEARCH = LinkTemplate.of(CatalogueController.class, "searchItems");
+    static final LinkTemplate ITEM = LinkTemplate.of(CatalogueController.class, "getItem");
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int STREAM_FLUSH_EVERY = 64;
+
     private final CatalogueService catalogueService;
     private final AuctionService auctionService;
+    private final CatalogueSnapshot catalogueSnapshot;
+    private final CatalogueSearchIndex catalogueSearchIndex;
+    private final ObjectMapper objectMapper;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     @Autowired
-    public CatalogueController(CatalogueService catalogueService, AuctionService auctionService) {
+    public CatalogueController(CatalogueService catalogueService, AuctionService auctionService,
+            CatalogueSnapshot catalogueSnapshot, CatalogueSearchIndex catalogueSearchIndex,
+            ObjectMapper objectMapper,
+            @Value("${catalogue.page.default-size:50}") int defaultPageSize,
+            @Value("${catalogue.page.max-size:500}") int maxPageSize) {
         this.catalogueService = catalogueService;
         this.auctionService = auctionService;
+        this.catalogueSnapshot = catalogueSnapshot;
+        this.catalogueSearchIndex = catalogueSearchIndex;
+        this.objectMapper = objectMapper;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
-    @Operation(summary = "Get all catalogue items", description = "Fetches all items in the catalogue")
+    @Operation(summary = "Get all catalogue items", description = "Fetches all items in the catalogue. Pass limit (and the cursor from the previous page's next link) to page through them in id order.")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved all items", content = @Content(schema = @Schema(implementation = CollectionModel.class)))
     @GetMapping("/items")
-    public ResponseEntity<CollectionModel<CatalogueItemResponseDto>> getAllItems() {
-        ItemList response = catalogueService.getAllItems();
-        List<CatalogueItemResponseDto> items = CatalogueServiceDtoMapper.fromProtoList(response.getItemsList());
+    public ResponseEntity<CollectionModel<CatalogueItemResponseDto>> getAllItems(
+            @Parameter(description = "Opaque cursor from a previous page's next link") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of items per page") @RequestParam(required = false) Integer limit) {
+        // Served from the router-side snapshot; see CatalogueSnapshot for staleness bounds
+        CatalogueSnapshot.Snapshot snapshot = catalogueSnapshot.get();
+
+        List<ItemResponse> page;
+        String nextCursor = null;
+        if (cursor == null && limit == null) {
+            page = snapshot.items();
+        } else {
+            int pageSize = limit == null ? defaultPageSize : limit;
+            if (pageSize < 1 || pageSize > maxPageSize) {
+                throw new IllegalArgumentException("limit must be between 1 and " + maxPageSize);
+            }
+            page = snapshot.page(cursor == null ? 0 : decodeCursor(cursor), pageSize);
+            if (page.size() == pageSize) {
+                nextCursor = encodeCursor(page.get(page.size() - 1).getId());
+            }
+        }
+
+        List<CatalogueItemResponseDto> items = CatalogueServiceDtoMapper.fromProtoList(page);
 
         // Add HATEOAS links to each item
         items = items.stream().map(this::addLinksToItem).collect(Collectors.toList());
 
         // Create CollectionModel with links
         CollectionModel<CatalogueItemResponseDto> collectionModel = CollectionModel.of(items);
-        collectionModel.add(linkTo(methodOn(CatalogueController.class).getAllItems()).withSelfRel());
+        collectionModel.add(ITEMS.self(cursor, limit));
+        if (nextCursor != null) {
+            collectionModel.add(ITEMS.link("next", nextCursor, page.size()));
+        }
 
         return ResponseEntity.ok(collectionModel);
     }
 
+    @Operation(summary = "Stream all catalogue items", description = "Streams every catalogue item as newline-delimited JSON, written as items arrive from the catalogue-service")
+    @ApiResponse(responseCode = "200", description = "One JSON item per line")
+    @GetMapping(value = "/items/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamItems() {
+        StreamingResponseBody body = out -> {
+            int[] written = {0};
+            catalogueService.streamAllItems(item -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(CatalogueServiceDtoMapper.fromProto(item)));
+                    out.write('\n');
+                    // Push a chunk to the client regularly instead of waiting for the buffer to fill
+                    if (++written[0] % STREAM_FLUSH_EVERY == 0) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
     @Operation(summary = "Search catalogue items", description = "Search for items by keyword in title")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved matching items", content = @Content(schema = @Schema(implementation = CollectionModel.class)))
     @GetMapping("/search")
     public ResponseEntity<CollectionModel<CatalogueItemResponseDto>> searchItems(
             @Parameter(description = "Search keyword to filter items", required = true) @RequestParam String keyword) {
-        ItemList response = catalogueService.searchItems(keyword);
-        List<CatalogueItemResponseDto> items = CatalogueServiceDtoMapper.fromProtoList(response.getItemsList());
+        // Served from the router-side index when fresh, otherwise by the catalogue-service
+        List<CatalogueItemResponseDto> items = CatalogueServiceDtoMapper.fromProtoList(catalogueSearchIndex.search(keyword));
 
         // Add HATEOAS links to each item
         items = items.stream().map(this::addLinksToItem).collect(Collectors.toList());
 
         // Create CollectionModel with links
         CollectionModel<CatalogueItemResponseDto> collectionModel = CollectionModel.of(items);
-        collectionModel.add(
-                linkTo(methodOn(CatalogueController.class).searchItems(keyword)).withSelfRel());
-        collectionModel.add(
-                linkTo(methodOn(CatalogueController.class).getAllItems()).withRel("all-items"));
+        collectionModel.add(SEARCH.self(keyword));
+        collectionModel.add(ITEMS.link("all-items", null, null));
 
         return ResponseEntity.ok(collectionModel);
     }
@@ -128,28 +199,31 @@ public class CatalogueController {
         return ResponseEntity.ok(item);
     }
 
+    // Cursors are the last item id of the previous page
+    static String encodeCursor(int lastId) {
+        return Cursors.encode("id", lastId);
+    }
+
+    static int decodeCursor(String cursor) {
+        return Cursors.field(Cursors.decode(cursor, "id", 1)[0], Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
     /** Helper method to add HATEOAS links to a catalogue item */
     private CatalogueItemResponseDto addLinksToItem(CatalogueItemResponseDto item) {
         // Add self link
-        item.add(linkTo(methodOn(CatalogueController.class).getItem(item.getId())).withSelfRel());
+        item.add(ITEM.self(item.getId()));
 
         // Add link to all items
-        item.add(linkTo(methodOn(CatalogueController.class).getAllItems()).withRel("catalogue"));
+        item.add(ITEMS.link("catalogue", null, null));
 
         // Add conditional links based on item state
         if (item.isActive()) {
             // If item is active, add auction-related links
-            item.add(
-                    linkTo(methodOn(AuctionController.class).getAuctionStatus(item.getId()))
-                            .withRel("auction-status"));
-            item.add(
-                    linkTo(methodOn(AuctionController.class).placeBid(item.getId(), null, null, null))
-                            .withRel("place-bid"));
+            item.add(AuctionController.AUCTION_STATUS.link("auction-status", item.getId()));
+            item.add(AuctionController.PLACE_BID.link("place-bid", item.getId()));
         } else {
             // If not active, might show link to start auction (if user is seller)
-            item.add(
-                    linkTo(methodOn(AuctionController.class).startAuction(item.getId(), null))
-                            .withRel("start-auction"));
+            item.add(AuctionController.START_AUCTION.link("start-auction", item.getId()));
         }
 
         return item;
@@ -0,0 +1,63 @@
+package com.cash.controllers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Paging cursors: a prefix naming the format followed by a fixed number of
+ * numeric fields, separated by colons and Base64url-encoded so clients treat
+ * them as opaque.
+ */
+final class Cursors {
+
+    private Cursors() {
+    }
+
+    static String encode(String prefix, long... fields) {
+        StringBuilder raw = new StringBuilder(prefix);
+        for (long field : fields) {
+            raw.append(':').append(field);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the fields of a cursor made by {@link #encode} with the given
+     * prefix and number of fields.
+     *
+     * @throws IllegalArgumentException if the cursor is not one
+     */
+    static long[] decode(String cursor, String prefix, int fieldCount) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(":", -1);
+            if (parts.length == fieldCount + 1 && parts[0].equals(prefix)) {
+                long[] fields = new long[fieldCount];
+                for (int i = 0; i < fieldCount; i++) {
+                    fields[i] = Long.parseLong(parts[i + 1]);
+                }
+                return fields;
+            }
+        } catch (IllegalArgumentException e) {
+            // Bad Base64 and bad numbers (NumberFormatException) end up as the error below
+        }
+        throw invalid();
+    }
+
+    /**
+     * Returns a decoded field that must lie within {@code [min, max]}.
+     *
+     * @throws IllegalArgumentException if it does not
+     */
+    static int field(long value, int min, int max) {
+        if (value < min || value > max) {
+            throw invalid();
+        }
+        return (int) value;
+    }
+
+    /** The error for any cursor the server did not hand out. */
+    static IllegalArgumentException invalid() {
+        return new IllegalArgumentException("Invalid cursor");
+    }
+}
@@ -1,7 +1,6 @@
 package com.cash.controllers;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
-
+import com.cash.config.LinkTemplate;
 import com.cash.dtos.TotalCostDTO;
 import com.cash.exceptions.ConflictException;
 import com.cash.exceptions.UnauthorizedException;
@@ -13,7 +12,10 @@ import com.cash.services.PaymentService;
 import com.cash.services.CatalogueService;
 import com.cash.services.UserService;
 import com.cash.services.AuctionService;
-import com.cash.grpc.catalogue.ItemResponse;
+import com.cash.services.BoundedFanOut;
+import com.cash.services.DeactivationOutbox;
+import com.cash.services.PaymentIdempotencyStore;
+import com.cash.services.ItemFacts;
 
 import io.grpc.StatusRuntimeException;
 import io.swagger.v3.oas.annotations.Operation;
@@ -24,16 +26,23 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.hateoas.CollectionModel;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.cash.grpc.auctionservice.GetAuctionWinnerResponse;
 import com.cash.grpc.userservice.GetUserResponse;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @RestController
@@ -44,10 +53,40 @@ import java.util.stream.Collectors;
 @Tag(name = "Payment Router", description = "Payment routing endpoints for payment processing")
 public class PaymentRouterController {
 
+    static final LinkTemplate PROCESS_PAYMENT = LinkTemplate.of(PaymentRouterController.class, "processPayment");
+    static final LinkTemplate TOTAL_COST = LinkTemplate.of(PaymentRouterController.class, "calculateTotalCost");
+    static final LinkTemplate RECEIPT = LinkTemplate.of(PaymentRouterController.class, "getReceipt");
+    static final LinkTemplate PAYMENT_HISTORY = LinkTemplate.of(PaymentRouterController.class, "getMyPaymentHistory");
+    static final LinkTemplate PAYMENT_HISTORY_EXPORT = LinkTemplate.of(PaymentRouterController.class, "exportMyPaymentHistory");
+
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    // Set on a response repeated from an earlier request with the same Idempotency-Key
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    private static final String NDJSON = "application/x-ndjson";
+
     private final PaymentService paymentClient;
     private final CatalogueService catalogueService;
     private final UserService userService;
     private final AuctionService auctionService;
+    private final DeactivationOutbox deactivationOutbox;
+    private final PaymentIdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+
+    // Bounds the user, item and winner lookups that run side by side before a payment
+    @Value("${payment.lookup.deadline:5s}")
+    private Duration lookupDeadline;
+
+    @Value("${payment.history.page.default-size:10}")
+    private int defaultHistoryPageSize;
+
+    @Value("${payment.history.page.max-size:100}")
+    private int maxHistoryPageSize;
+
+    // Page size the export fetches from the payment-service; bounds what it holds in memory at once
+    @Value("${payment.history.export.page-size:100}")
+    private int historyExportPageSize;
 
     /**
      * Use Case 5: Process Payment
@@ -57,8 +96,10 @@ public class PaymentRouterController {
     @PostMapping("/process")
     @Operation(summary = "Process payment", description = "Process payment by aggregating user info, catalogue data, and credit card information")
     @ApiResponse(responseCode = "200", description = "Payment processed successfully", content = @Content(schema = @Schema(implementation = PaymentResponseDTO.class)))
+    @ApiResponse(responseCode = "409", description = "Idempotency-Key reused for a different request, its first request is still running, or that request failed with an unknown outcome")
     public ResponseEntity<PaymentResponseDTO> processPayment(
             @Valid @RequestBody PaymentRequestDTO request,
+            @Parameter(description = "Client-chosen key; retries with the same key are charged at most once") @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             jakarta.servlet.http.HttpServletRequest httpReq // read auth attrs
     ) {
         Integer authedUserId = com.cash.config.AuthenticatedUser.getUserId(httpReq);
@@ -70,67 +111,36 @@ public class PaymentRouterController {
         if (request.getItemId() <= 0) {
             throw new IllegalArgumentException("Invalid itemId");
         }
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
 
         try {
-            // Get user information from User Service
-            GetUserResponse user = userService.getUser(authedUserId);
-
-            // Get item details from Catalogue Service
-            ItemDetails itemDetails = getItemDetailsFromCatalogueService(request.getItemId());
-
-            // Verfiy auction winner before payment
-            var winnerResponse = auctionService.getAuctionWinner(request.getItemId());
-            if (!winnerResponse.getFound()) {
-                // auction not ended or no winner yet
-                log.warn("Auction winner not found for catalogue {}", request.getItemId());
-                throw new ConflictException("Auction has not ended or no winner is determined yet.");
-            }
-            if (winnerResponse.getWinnerUserId() != authedUserId) {
-                // caller is not the winner
-                throw new UnauthorizedException("You are not the winning bidder for this item.");
+            PaymentResponse grpcResp;
+            boolean replayed = false;
+            if (idempotencyKey == null) {
+                grpcResp = pay(request, authedUserId, () -> { });
+            } else {
+                // Card details are left out of the fingerprint so they are never kept
+                String fingerprint = request.getItemId() + ":" + request.getShippingType();
+                PaymentIdempotencyStore.Outcome outcome = idempotencyStore.execute(authedUserId, idempotencyKey,
+                        fingerprint, charging -> pay(request, authedUserId, charging));
+                grpcResp = outcome.response();
+                replayed = outcome.replayed();
             }
-            int finalAuctionPrice = winnerResponse.getFinalPrice();
-            // Calculate shipping cost based on type
-            int shippingCost = calculateShippingCost(request.getShippingType(), itemDetails.getBaseShippingCost());
-
-            PaymentRequest grpcReq = PaymentServiceDtoMapper.toProto(
-                    request,
-                    user,
-                    authedUserId,
-                    itemDetails.getItemId(),
-                    finalAuctionPrice, // int (whole dollars)
-                    shippingCost, // int (whole dollars)
-                    itemDetails.estimatedShippingDays);
-
-            // Build gRPC payment request
-            PaymentResponse grpcResp = paymentClient.processPayment(grpcReq);
 
             // Call Payment Service via gRPC
             PaymentResponseDTO dto = PaymentServiceDtoMapper.fromProto(grpcResp);
 
-            log.info("Payment processed successfully with ID: {}", dto.getPaymentId());
-
-            if (grpcResp.getSuccess()) {
-                try {
-                    log.info("Item {} deactivated after successful payment. Message: {}",
-                            request.getItemId(),
-                            catalogueService.deactivateItem(request.getItemId()).getMessage());
-                } catch (Exception e) {
-                    log.error("Failed to deactivate item {} after payment", request.getItemId(), e);
-                }
-            }
-
             // Add HATEOAS links
-            dto.add(linkTo(methodOn(PaymentRouterController.class)
-                    .processPayment(request, httpReq)).withSelfRel());
-            dto.add(linkTo(methodOn(PaymentRouterController.class)
-                    .getReceipt(String.valueOf(dto.getPaymentId()))).withRel("receipt"));
-            dto.add(linkTo(methodOn(PaymentRouterController.class)
-                    .getMyPaymentHistory(httpReq)).withRel("payment-history"));
-            dto.add(linkTo(methodOn(CatalogueController.class)
-                    .getItem(request.getItemId())).withRel("catalogue-item"));
+            dto.add(PROCESS_PAYMENT.self());
+            dto.add(RECEIPT.link("receipt", dto.getPaymentId()));
+            dto.add(PAYMENT_HISTORY.link("payment-history", null, null));
+            dto.add(CatalogueController.ITEM.link("catalogue-item", request.getItemId()));
 
-            return ResponseEntity.ok(dto);
+            return replayed
+                    ? ResponseEntity.ok().header(IDEMPOTENT_REPLAYED_HEADER, "true").body(dto)
+                    : ResponseEntity.ok(dto);
 
         } catch (StatusRuntimeException e) {
             log.error("gRPC error while processing payment", e);
@@ -142,6 +152,65 @@ public class PaymentRouterController {
         }
     }
 
+    /**
+     * Aggregates user, item and winner data, charges the card through the
+     * Payment Service and queues the item's deactivation. {@code charging}
+     * runs once the lookups are done, right before the card is charged.
+     */
+    private PaymentResponse pay(PaymentRequestDTO request, int authedUserId, Runnable charging) {
+        // User info, item details and the winner check do not depend on each other, so they run
+        // concurrently; the first to fail (e.g. the caller did not win) cancels the others
+        List<Object> lookups = BoundedFanOut.all(lookupDeadline, List.<Supplier<?>>of(
+                () -> userService.getUser(authedUserId),
+                () -> getItemDetailsFromCatalogueService(request.getItemId()),
+                () -> verifyWinner(request.getItemId(), authedUserId)));
+        GetUserResponse user = (GetUserResponse) lookups.get(0);
+        ItemDetails itemDetails = (ItemDetails) lookups.get(1);
+        GetAuctionWinnerResponse winnerResponse = (GetAuctionWinnerResponse) lookups.get(2);
+
+        int finalAuctionPrice = winnerResponse.getFinalPrice();
+        // Calculate shipping cost based on type
+        int shippingCost = calculateShippingCost(request.getShippingType(), itemDetails.getBaseShippingCost());
+
+        PaymentRequest grpcReq = PaymentServiceDtoMapper.toProto(
+                request,
+                user,
+                authedUserId,
+                itemDetails.getItemId(),
+                finalAuctionPrice, // int (whole dollars)
+                shippingCost, // int (whole dollars)
+                itemDetails.estimatedShippingDays);
+
+        // Build gRPC payment request
+        PaymentResponse grpcResp;
+        charging.run();
+        try {
+            grpcResp = paymentClient.processPayment(grpcReq);
+        } finally {
+            // Even a failed or timed-out attempt may have been recorded in the user's history
+            paymentClient.evictHistory(authedUserId);
+        }
+
+        log.info("Payment processed successfully with ID: {}", grpcResp.getPaymentId());
+
+        if (grpcResp.getSuccess()) {
+            // The item is sold, so its checkout quotes are no longer needed
+            paymentClient.evictQuotes(request.getItemId());
+            try {
+                // Deactivated in the background, retried until the catalogue-service takes it
+                deactivationOutbox.enqueue(request.getItemId());
+            } catch (java.io.UncheckedIOException e) {
+                log.error("Could not queue deactivation of item {}; deactivating it now", request.getItemId(), e);
+                try {
+                    catalogueService.deactivateItem(request.getItemId());
+                } catch (Exception ex) {
+                    log.error("Failed to deactivate item {} after payment", request.getItemId(), ex);
+                }
+            }
+        }
+        return grpcResp;
+    }
+
     /**
      * Estimate total cost (item + shipping + HST)
      * Uses the same aggregation as /process but calls CalculateTotalCost RPC.
@@ -157,37 +226,47 @@ public class PaymentRouterController {
         log.info("Calculating total cost for item: {}", request.getItemId());
 
         try {
-            // Require auction to have ended so we can use the final auction price
-            var winnerResponse = auctionService.getAuctionWinner(request.getItemId());
-            if (!winnerResponse.getFound()) {
-                throw new ConflictException(
-                        "Auction has not ended yet; total cost will be available after a winner is determined.");
-            }
-            // User winner
-
-            ItemDetails itemDetails = getItemDetailsFromCatalogueService(request.getItemId());
-            // int baseCataloguePrice = itemDetails.getItemCost();
-            int finalAuctionPrice = winnerResponse.getFinalPrice();
-            // base from catalogue; surcharge applied inside payment-service if EXPEDITED
             var shipType = request.getShippingType() == null
                     ? PaymentRequestDTO.ShippingTypeDTO.REGULAR
                     : request.getShippingType();
-
-            int shippingCost = calculateShippingCost(shipType, itemDetails.getBaseShippingCost());
-
-            // Build proto *without* credit-card (quote only)
-            PaymentRequest grpcReq = PaymentServiceDtoMapper.toProtoQuote(
-                    itemDetails.getItemId(),
-                    finalAuctionPrice,
-                    shippingCost,
-                    itemDetails.getEstimatedShippingDays(),
-                    shipType);
-
-            // Call RPC
-            TotalCostResponse rpc = paymentClient.calculateTotalCost(grpcReq);
+            ShippingType protoShipType = shipType == PaymentRequestDTO.ShippingTypeDTO.EXPEDITED
+                    ? ShippingType.EXPEDITED : ShippingType.REGULAR;
+
+            // A quote is only cached once the winner is final, so a hit needs no downstream calls
+            TotalCostResponse rpc = paymentClient.cachedQuote(request.getItemId(), protoShipType);
+            if (rpc == null) {
+                long quoteStamp = paymentClient.quoteStamp(request.getItemId());
+                // Require auction to have ended so we can use the final auction price
+                var winnerResponse = auctionService.getAuctionWinner(request.getItemId());
+                if (!winnerResponse.getFound()) {
+                    throw new ConflictException(
+                            "Auction has not ended yet; total cost will be available after a winner is determined.");
+                }
+                // User winner
+
+                ItemDetails itemDetails = getItemDetailsFromCatalogueService(request.getItemId());
+                int finalAuctionPrice = winnerResponse.getFinalPrice();
+                // base from catalogue; surcharge applied inside payment-service if EXPEDITED
+                int shippingCost = calculateShippingCost(shipType, itemDetails.getBaseShippingCost());
+
+                // Build proto *without* credit-card (quote only)
+                PaymentRequest grpcReq = PaymentServiceDtoMapper.toProtoQuote(
+                        itemDetails.getItemId(),
+                        finalAuctionPrice,
+                        shippingCost,
+                        itemDetails.getEstimatedShippingDays(),
+                        shipType);
+
+                // Call RPC
+                rpc = paymentClient.calculateTotalCost(grpcReq);
+                // Only a price AuctionService holds as final may be kept until the item is paid
+                if (auctionService.knownAuctionWinner(request.getItemId()) != null) {
+                    paymentClient.cacheQuote(request.getItemId(), protoShipType, rpc, quoteStamp);
+                }
+            }
             double derivedShipping = round2(rpc.getTotalCost() - rpc.getHstAmount() - rpc.getItemCost());
             int shippingCostEffective = (int) Math.round(derivedShipping);
-            // Map to REST DTO
+            // Map to REST DTO; built per request so links are never added to a shared instance
             TotalCostDTO dto = TotalCostDTO.builder()
                     .itemCost(rpc.getItemCost())
                     .shippingCost(shippingCostEffective)
@@ -198,12 +277,9 @@ public class PaymentRouterController {
                     .build();
 
             // Add HATEOAS links
-            dto.add(linkTo(methodOn(PaymentRouterController.class)
-                    .calculateTotalCost(request)).withSelfRel());
-            dto.add(linkTo(methodOn(CatalogueController.class)
-                    .getItem(request.getItemId())).withRel("catalogue-item"));
-            dto.add(linkTo(methodOn(AuctionController.class)
-                    .getAuctionWinner(request.getItemId())).withRel("auction-winner"));
+            dto.add(TOTAL_COST.self());
+            dto.add(CatalogueController.ITEM.link("catalogue-item", request.getItemId()));
+            dto.add(AuctionController.AUCTION_WINNER.link("auction-winner", request.getItemId()));
 
             return ResponseEntity.ok(dto);
 
@@ -241,10 +317,8 @@ public class PaymentRouterController {
             PaymentResponseDTO dto = PaymentServiceDtoMapper.fromProto(grpcResp);
 
             // Add HATEOAS links
-            dto.add(linkTo(methodOn(PaymentRouterController.class)
-                    .getReceipt(paymentId)).withSelfRel());
-            dto.add(linkTo(methodOn(PaymentRouterController.class)
-                    .getMyPaymentHistory(null)).withRel("payment-history"));
+            dto.add(RECEIPT.self(paymentId));
+            dto.add(PAYMENT_HISTORY.link("payment-history", null, null));
 
             return ResponseEntity.ok(dto);
 
@@ -255,14 +329,18 @@ public class PaymentRouterController {
     }
 
     /**
-     * Get Payment History
+     * Get Payment History, one page at a time
+     *
+     * @param cursor Opaque cursor from the previous page's next link
+     * @param limit  Maximum number of payments per page; a cursor keeps the
+     *               size of the page it came from
      */
-    private static final int DEFAULT_HISTORY_SIZE = 10;
-
     @GetMapping("/history")
-    @Operation(summary = "My payment history (authenticated)", description = "Returns payment history for the authenticated user. No input parameters.")
+    @Operation(summary = "My payment history (authenticated)", description = "Returns payment history for the authenticated user, one page at a time. Follow the next link to see older payments; X-Total-Count holds the number of payments overall.")
     @ApiResponse(responseCode = "200", description = "History returned")
     public ResponseEntity<CollectionModel<PaymentResponseDTO>> getMyPaymentHistory(
+            @Parameter(description = "Opaque cursor from a previous page's next link") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of payments per page") @RequestParam(required = false) Integer limit,
             jakarta.servlet.http.HttpServletRequest httpReq // CHANGE: read auth attrs
     ) {
         Integer authedUserId = com.cash.config.AuthenticatedUser.getUserId(httpReq);
@@ -270,11 +348,24 @@ public class PaymentRouterController {
             throw new UnauthorizedException("No authenticated user in request");
         }
 
-        log.info("Retrieving payment history for authenticated user: {}", authedUserId);
+        int page = 0;
+        int pageSize = limit == null ? defaultHistoryPageSize : limit;
+        if (cursor != null) {
+            int[] position = decodeHistoryCursor(cursor);
+            page = position[0];
+            pageSize = position[1];
+        }
+        if (pageSize < 1 || pageSize > maxHistoryPageSize) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxHistoryPageSize);
+        }
+
+        log.info("Retrieving payment history page {} for authenticated user: {}", page, authedUserId);
 
         try {
-            // internally pick a default window
-            PaymentHistoryResponse resp = paymentClient.getHistory(authedUserId, 0, DEFAULT_HISTORY_SIZE);
+            // The first page is what users open most and is cached until they pay again
+            PaymentHistoryResponse resp = page == 0
+                    ? paymentClient.getFirstHistoryPage(authedUserId, pageSize)
+                    : paymentClient.getHistory(authedUserId, page, pageSize);
 
             List<PaymentResponseDTO> paymentList = resp.getPaymentsList().stream()
                     .map(PaymentServiceDtoMapper::fromProto)
@@ -283,10 +374,15 @@ public class PaymentRouterController {
 
             // Create CollectionModel with links
             CollectionModel<PaymentResponseDTO> collectionModel = CollectionModel.of(paymentList);
-            collectionModel.add(linkTo(methodOn(PaymentRouterController.class)
-                    .getMyPaymentHistory(httpReq)).withSelfRel());
+            collectionModel.add(PAYMENT_HISTORY.self(cursor, limit));
+            if (hasMoreHistory(resp, page, pageSize)) {
+                collectionModel.add(PAYMENT_HISTORY.link("next", encodeHistoryCursor(page + 1, pageSize), null));
+            }
+            collectionModel.add(PAYMENT_HISTORY_EXPORT.link("export"));
 
-            return ResponseEntity.ok(collectionModel);
+            return ResponseEntity.ok()
+                    .header(TOTAL_COUNT_HEADER, Integer.toString(resp.getTotalCount()))
+                    .body(collectionModel);
         } catch (io.grpc.StatusRuntimeException e) {
             log.error("gRPC error while retrieving payment history", e);
             throw e; // Let GlobalExceptionHandler handle gRPC exceptions
@@ -296,6 +392,64 @@ public class PaymentRouterController {
         }
     }
 
+    /**
+     * Export the whole payment history as newline-delimited JSON. Pages are
+     * fetched and written one at a time, so memory use does not grow with the
+     * length of the history.
+     */
+    @GetMapping(value = "/history/export", produces = NDJSON)
+    @Operation(summary = "Export my payment history (authenticated)", description = "Streams every payment of the authenticated user as newline-delimited JSON, fetched page by page")
+    @ApiResponse(responseCode = "200", description = "One JSON payment per line")
+    public ResponseEntity<StreamingResponseBody> exportMyPaymentHistory(
+            jakarta.servlet.http.HttpServletRequest httpReq // read auth attrs
+    ) {
+        Integer authedUserId = com.cash.config.AuthenticatedUser.getUserId(httpReq);
+        if (authedUserId == null || authedUserId <= 0) {
+            throw new UnauthorizedException("No authenticated user in request");
+        }
+
+        log.info("Exporting payment history for authenticated user: {}", authedUserId);
+
+        StreamingResponseBody body = out -> {
+            for (int page = 0; ; page++) {
+                PaymentHistoryResponse resp = paymentClient.getHistory(authedUserId, page, historyExportPageSize);
+                for (PaymentResponse payment : resp.getPaymentsList()) {
+                    out.write(objectMapper.writeValueAsBytes(PaymentServiceDtoMapper.fromProto(payment)));
+                    out.write('\n');
+                }
+                // One chunk per page, so the client sees progress while later pages are fetched
+                out.flush();
+                if (!hasMoreHistory(resp, page, historyExportPageSize)) {
+                    break;
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    // Without a total_count from the payment-service, a full page is taken to mean there may be more
+    private static boolean hasMoreHistory(PaymentHistoryResponse resp, int page, int pageSize) {
+        if (resp.getPaymentsCount() == 0) {
+            return false;
+        }
+        if (resp.getTotalCount() > 0) {
+            return (long) (page + 1) * pageSize < resp.getTotalCount();
+        }
+        return resp.getPaymentsCount() >= pageSize;
+    }
+
+    // Cursors are the next page number and the page size, which together fix the payment-service window
+    static String encodeHistoryCursor(int page, int pageSize) {
+        return Cursors.encode("page", page, pageSize);
+    }
+
+    static int[] decodeHistoryCursor(String cursor) {
+        long[] fields = Cursors.decode(cursor, "page", 2);
+        return new int[] {
+                Cursors.field(fields[0], 0, Integer.MAX_VALUE),
+                Cursors.field(fields[1], Integer.MIN_VALUE, Integer.MAX_VALUE)};
+    }
+
     /**
      * Get item details from Catalogue Service
      * In production, this would call the actual Catalogue Service via gRPC
@@ -303,17 +457,33 @@ public class PaymentRouterController {
     private ItemDetails getItemDetailsFromCatalogueService(int itemId) {
         log.debug("Fetching item details for item ID: {}", itemId);
 
-        ItemResponse ir = catalogueService.getItem(itemId);
-        if (ir.getId() == 0) {
+        // Shipping details never change after creation, so the long-lived facts cache is enough
+        ItemFacts facts = catalogueService.getItemFacts(itemId);
+        if (facts.id() == 0) {
             throw new IllegalArgumentException("Catalogue item " + itemId + " not found");
         }
 
-        int itemCost = ir.getCurrentPrice() != 0 ? ir.getCurrentPrice()
-                : (ir.getStartingPrice() != 0 ? ir.getStartingPrice() : 0);
-        int shippingCost = ir.getShippingCost();
-        int shippingDays = ir.getShippingTime() != 0 ? ir.getShippingTime() : 5;
+        int shippingCost = facts.shippingCost();
+        int shippingDays = facts.shippingTime() != 0 ? facts.shippingTime() : 5;
 
-        return new ItemDetails(ir.getId(), itemCost, shippingCost, shippingDays);
+        return new ItemDetails(facts.id(), shippingCost, shippingDays);
+    }
+
+    /**
+     * Verify the caller won the auction before taking payment
+     */
+    private GetAuctionWinnerResponse verifyWinner(int itemId, int userId) {
+        GetAuctionWinnerResponse winnerResponse = auctionService.getAuctionWinner(itemId);
+        if (!winnerResponse.getFound()) {
+            // auction not ended or no winner yet
+            log.warn("Auction winner not found for catalogue {}", itemId);
+            throw new ConflictException("Auction has not ended or no winner is determined yet.");
+        }
+        if (winnerResponse.getWinnerUserId() != userId) {
+            // caller is not the winner
+            throw new UnauthorizedException("You are not the winning bidder for this item.");
+        }
+        return winnerResponse;
     }
 
     /**
@@ -335,11 +505,9 @@ public class PaymentRouterController {
      */
     private PaymentResponseDTO addLinksToPayment(PaymentResponseDTO payment) {
         if (payment.getPaymentId() != null) {
-            payment.add(linkTo(methodOn(PaymentRouterController.class)
-                    .getReceipt(String.valueOf(payment.getPaymentId()))).withRel("receipt"));
+            payment.add(RECEIPT.link("receipt", payment.getPaymentId()));
         }
-        payment.add(linkTo(methodOn(PaymentRouterController.class)
-                .getMyPaymentHistory(null)).withRel("payment-history"));
+        payment.add(PAYMENT_HISTORY.link("payment-history", null, null));
         return payment;
     }
 
@@ -348,13 +516,11 @@ public class PaymentRouterController {
      */
     private static class ItemDetails {
         private final int itemId;
-        private final int itemCost;
         private final int baseShippingCost;
         private final int estimatedShippingDays;
 
-        public ItemDetails(int itemId, int itemCost, int baseShippingCost, int estimatedShippingDays) {
+        public ItemDetails(int itemId, int baseShippingCost, int estimatedShippingDays) {
             this.itemId = itemId;
-            this.itemCost = itemCost;
             this.baseShippingCost = baseShippingCost;
             this.estimatedShippingDays = estimatedShippingDays;
         }
@@ -363,10 +529,6 @@ public class PaymentRouterController {
             return itemId;
         }
 
-        public int getItemCost() {
-            return itemCost;
-        }
-
         public int getBaseShippingCost() {
             return baseShippingCost;
         }
@@ -1,9 +1,10 @@
 package com.cash.controllers;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
-
 import com.cash.config.AuthenticatedUser;
 import com.cash.config.BiddingSessionManager;
+import com.cash.config.LinkTemplate;
+import com.cash.config.StreamTicketStore;
+import com.cash.config.TokenValidator;
 import com.cash.dtos.*;
 import com.cash.dtos.ValidateTokenResponseDto;
 import com.cash.exceptions.UnauthorizedException;
@@ -17,7 +18,6 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -28,20 +28,32 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/users")
 @Tag(name = "Users", description = "User authentication and account management")
 public class UserController {
+
+    static final LinkTemplate SIGN_IN = LinkTemplate.of(UserController.class, "signIn");
+    static final LinkTemplate USER = LinkTemplate.of(UserController.class, "getUser");
+    static final LinkTemplate VALIDATE_TOKEN = LinkTemplate.of(UserController.class, "validateToken");
+    static final LinkTemplate RESET_PASSWORD = LinkTemplate.of(UserController.class, "resetPassword");
+    static final LinkTemplate LOGOUT = LinkTemplate.of(UserController.class, "logout");
+    static final LinkTemplate STREAM_TICKET = LinkTemplate.of(UserController.class, "issueStreamTicket");
+
     private final UserService userService;
     private final BiddingSessionManager biddingSessionManager;
+    private final TokenValidator tokenValidator;
+    private final StreamTicketStore streamTickets;
 
     @Autowired
-    public UserController(UserService userService, BiddingSessionManager biddingSessionManager) {
+    public UserController(UserService userService, BiddingSessionManager biddingSessionManager,
+            TokenValidator tokenValidator, StreamTicketStore streamTickets) {
         this.userService = userService;
         this.biddingSessionManager = biddingSessionManager;
+        this.tokenValidator = tokenValidator;
+        this.streamTickets = streamTickets;
     }
 
     @ApiResponse(responseCode = "200", description = "Successfully authenticated", content = @Content(schema = @Schema(implementation = SignInResponseDto.class)))
     @PostMapping("/signin")
     public ResponseEntity<SignInResponseDto> signIn(
-            @Parameter(description = "Sign-in credentials", required = true) @Valid @RequestBody SignInRequestDto dto,
-            HttpSession session) {
+            @Parameter(description = "Sign-in credentials", required = true) @Valid @RequestBody SignInRequestDto dto) {
         SignInRequest request = UserServiceDtoMapper.toProto(dto);
         SignInResponse response = userService.signIn(request.getUsername(), request.getPassword());
 
@@ -49,7 +61,7 @@ public class UserController {
             throw new UnauthorizedException(response.getMessage());
         }
 
-        biddingSessionManager.clear(session);
+        biddingSessionManager.clear(response.getUserId());
 
         SignInResponseDto responseDto = SignInResponseDto.builder()
                 .jwt(response.getJwt())
@@ -58,13 +70,9 @@ public class UserController {
                 .build();
 
         // Add HATEOAS links
-        responseDto.add(
-                linkTo(methodOn(UserController.class).getUser(response.getUserId(), null))
-                        .withRel("profile"));
-        responseDto.add(
-                linkTo(methodOn(UserController.class).logout(null, null, session)).withRel("logout"));
-        responseDto.add(
-                linkTo(methodOn(CatalogueController.class).getAllItems()).withRel("catalogue"));
+        responseDto.add(USER.link("profile", response.getUserId()));
+        responseDto.add(LOGOUT.link("logout"));
+        responseDto.add(CatalogueController.ITEMS.link("catalogue", null, null));
 
         return ResponseEntity.ok(responseDto);
     }
@@ -92,10 +100,8 @@ public class UserController {
                 .build();
 
         // Add HATEOAS links
-        responseDto.add(linkTo(methodOn(UserController.class).signIn(null, null)).withRel("signin"));
-        responseDto.add(
-                linkTo(methodOn(UserController.class).getUser(response.getUserId(), null))
-                        .withRel("profile"));
+        responseDto.add(SIGN_IN.link("signin"));
+        responseDto.add(USER.link("profile", response.getUserId()));
 
         return ResponseEntity.status(HttpStatus.CREATED).body(responseDto);
     }
@@ -118,9 +124,9 @@ public class UserController {
         GetUserResponseDto dto = UserServiceDtoMapper.fromProto(response);
 
         // Add HATEOAS links
-        dto.add(linkTo(methodOn(UserController.class).getUser(userId, request)).withSelfRel());
-        dto.add(linkTo(methodOn(UserController.class).logout(null, request, null)).withRel("logout"));
-        dto.add(linkTo(methodOn(CatalogueController.class).getAllItems()).withRel("catalogue"));
+        dto.add(USER.self(userId));
+        dto.add(LOGOUT.link("logout"));
+        dto.add(CatalogueController.ITEMS.link("catalogue", null, null));
 
         return ResponseEntity.ok(dto);
     }
@@ -150,11 +156,9 @@ public class UserController {
                 .build();
 
         // Add HATEOAS links
-        dto.add(linkTo(methodOn(UserController.class).validateToken(token)).withSelfRel());
+        dto.add(VALIDATE_TOKEN.self());
         if (response.getValid()) {
-            dto.add(
-                    linkTo(methodOn(UserController.class).getUser(response.getUserId(), null))
-                            .withRel("profile"));
+            dto.add(USER.link("profile", response.getUserId()));
         }
 
         return ResponseEntity.ok(dto);
@@ -175,9 +179,8 @@ public class UserController {
                 .build();
 
         // Add HATEOAS links
-        responseDto.add(
-                linkTo(methodOn(UserController.class).resetPassword(null)).withRel("reset-password"));
-        responseDto.add(linkTo(methodOn(UserController.class).signIn(null, null)).withRel("signin"));
+        responseDto.add(RESET_PASSWORD.link("reset-password"));
+        responseDto.add(SIGN_IN.link("signin"));
 
         return ResponseEntity.ok(responseDto);
     }
@@ -197,7 +200,7 @@ public class UserController {
                 .build();
 
         // Add HATEOAS links
-        responseDto.add(linkTo(methodOn(UserController.class).signIn(null, null)).withRel("signin"));
+        responseDto.add(SIGN_IN.link("signin"));
 
         return ResponseEntity.ok(responseDto);
     }
@@ -206,22 +209,44 @@ public class UserController {
     @PostMapping("/logout")
     public ResponseEntity<LogoutResponseDto> logout(
             @Parameter(description = "Logout request with JWT and user ID", required = true) @Valid @RequestBody LogoutRequestDto dto,
-            HttpServletRequest request,
-            HttpSession session) {
+            HttpServletRequest request) {
         Integer authenticatedUserId = AuthenticatedUser.getUserId(request);
         if (authenticatedUserId == null || dto.getUserId() != authenticatedUserId) {
             throw new UnauthorizedException("You are not authorized to perform this action");
         }
         LogoutRequest logoutRequest = UserServiceDtoMapper.toProto(dto);
         LogoutResponse response = userService.logout(logoutRequest.getJwt(), authenticatedUserId);
-        biddingSessionManager.clear(session);
+        biddingSessionManager.clear(authenticatedUserId);
+
+        if (response.getSuccess()) {
+            // Stop honouring the token this request was authenticated with on every router instance right
+            // away. The body's token is not announced, so callers cannot fill the revocation filter with
+            // arbitrary strings; it is only dropped from this instance's validation cache, which would
+            // otherwise keep accepting it without asking the user-service again.
+            tokenValidator.revoke(AuthenticatedUser.getJwt(request));
+            tokenValidator.invalidate(logoutRequest.getJwt());
+        }
 
         LogoutResponseDto responseDto = LogoutResponseDto.builder().message(response.getMessage()).build();
 
         // Add HATEOAS links
-        responseDto.add(linkTo(methodOn(UserController.class).signIn(null, null)).withRel("signin"));
-        responseDto.add(linkTo(methodOn(CatalogueController.class).getAllItems()).withRel("catalogue"));
+        responseDto.add(SIGN_IN.link("signin"));
+        responseDto.add(CatalogueController.ITEMS.link("catalogue", null, null));
 
         return ResponseEntity.ok(responseDto);
     }
+
+    @Operation(summary = "Issue a stream ticket", description = "Exchanges the caller's token for a short-lived, single-use ticket to open a live-status stream or the /ws/bids bidding socket with, for clients that cannot set headers. Unlike the token, a ticket is safe to put in a URL.")
+    @ApiResponse(responseCode = "200", description = "Ticket issued", content = @Content(schema = @Schema(implementation = StreamTicketResponseDto.class)))
+    @PostMapping("/stream-ticket")
+    public ResponseEntity<StreamTicketResponseDto> issueStreamTicket(HttpServletRequest request) {
+        StreamTicketResponseDto dto = StreamTicketResponseDto.builder()
+                .ticket(streamTickets.issue(AuthenticatedUser.getJwt(request)))
+                .expiresInSeconds(streamTickets.ttl().toSeconds())
+                .build();
+
+        dto.add(STREAM_TICKET.self());
+
+        return ResponseEntity.ok(dto);
+    }
 }
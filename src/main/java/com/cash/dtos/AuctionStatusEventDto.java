@@ -0,0 +1,15 @@
+package com.cash.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class AuctionStatusEventDto {
+  private int catalogueId;
+  private int highestBidder;
+  private int currentHighestBid;
+  private int remainingTime;
+  private boolean ended;
+  private String auctionStatus;
+}
@@ -0,0 +1,11 @@
+package com.cash.dtos;
+
+import lombok.Data;
+
+@Data
+public class BidSocketRequestDto {
+    private String type;
+    private String ref;
+    private int catalogueId;
+    private int bidAmount;
+}
@@ -0,0 +1,16 @@
+package com.cash.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BidSocketResponseDto {
+  private String type;
+  private String ref;
+  private Integer catalogueId;
+  private Boolean success;
+  private String message;
+}
@@ -0,0 +1,14 @@
+package com.cash.dtos;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.hateoas.RepresentationModel;
+
+@Data
+@Builder
+@EqualsAndHashCode(callSuper = false)
+public class StreamTicketResponseDto extends RepresentationModel<StreamTicketResponseDto> {
+  private String ticket;
+  private long expiresInSeconds;
+}
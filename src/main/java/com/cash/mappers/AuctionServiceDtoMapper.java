@@ -2,6 +2,7 @@ package com.cash.mappers;
 
 import com.cash.dtos.AuctionWinnerResponseDto;
 import com.cash.dtos.AuctionWinsResponseDto;
+import com.cash.dtos.BidDto;
 import com.cash.dtos.EndTimeResponseDto;
 import com.cash.dtos.PlaceBidRequestDto;
 import com.cash.grpc.auctionservice.*;
@@ -25,6 +26,20 @@ public class AuctionServiceDtoMapper {
                 .build();
     }
 
+    public static List<BidDto> fromProtoBids(List<Bid> bids) {
+        return bids.stream()
+                .map(bid -> {
+                    BidDto dto = new BidDto();
+                    dto.setBidId(bid.getBidId());
+                    dto.setUserId(bid.getUserId());
+                    dto.setCatalogueId(bid.getCatalogueId());
+                    dto.setAmount(bid.getAmount());
+                    dto.setTimestamp(Instant.ofEpochSecond(bid.getBidTime().getSeconds(), bid.getBidTime().getNanos()));
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
     public static List<AuctionWinsResponseDto> fromProtoList(List<AuctionWinnerResponseDto> items) {
         return items.stream()
                 .map(item -> AuctionWinsResponseDto.builder()
@@ -0,0 +1,177 @@
+package com.cash.services;
+
+import com.cash.grpc.catalogue.ItemResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Does the work every client triggers right after an auction closes before
+ * the first of them asks: within a few milliseconds of each end time, plus
+ * {@link AuctionService#settleMargin()}, the winner is fetched (which caches it for good and feeds the
+ * {@link UserWinsIndex}) and open live-status streams get their final
+ * status.
+ *
+ * <p>
+ * Closing times come from the active items of each {@link CatalogueSnapshot},
+ * preferring the end time AuctionService has already cached, and only those
+ * within the horizon are put on a {@link HashedTimerWheel}. Later closes
+ * are picked up by a later snapshot. The number of warm-ups running at once
+ * is capped, so a burst of auctions closing together is worked off at a
+ * steady rate. Until the winner is cached as final, the auction is asked
+ * about again a few times.
+ */
+@Slf4j
+@Component
+public class AuctionCloseWarmer {
+
+    private final AuctionService auctionService;
+    private final AuctionStatusStreams auctionStatusStreams;
+    private final HashedTimerWheel wheel;
+    private final Map<Integer, Scheduled> scheduled = new ConcurrentHashMap<>();
+    private final Semaphore running;
+    private final long horizonMillis;
+    private final long delayMillis;
+    private final Duration[] retryDelays;
+    private final Counter warmed;
+    private final Counter unsettled;
+
+    private record Scheduled(long endMillis, HashedTimerWheel.Timeout timeout) {
+    }
+
+    public AuctionCloseWarmer(
+            AuctionService auctionService,
+            AuctionStatusStreams auctionStatusStreams,
+            @Value("${auction.close-warmup.tick:10ms}") Duration tick,
+            @Value("${auction.close-warmup.wheel-size:1024}") int wheelSize,
+            @Value("${auction.close-warmup.horizon:10m}") Duration horizon,
+            @Value("${auction.close-warmup.delay:20ms}") Duration delay,
+            @Value("${auction.close-warmup.max-concurrency:16}") int maxConcurrency,
+            @Value("${auction.close-warmup.retry-delays:250ms,1s,5s}") Duration[] retryDelays,
+            MeterRegistry meterRegistry) {
+        this.auctionService = auctionService;
+        this.auctionStatusStreams = auctionStatusStreams;
+        this.horizonMillis = horizon.toMillis();
+        this.delayMillis = delay.toMillis();
+        this.retryDelays = retryDelays;
+        this.running = new Semaphore(maxConcurrency);
+        this.wheel = new HashedTimerWheel("auction-close-wheel", tick, wheelSize,
+                Executors.newVirtualThreadPerTaskExecutor());
+        this.warmed = Counter.builder("auction.close-warmup.warmed")
+                .description("Auctions whose winner was fetched when they closed")
+                .register(meterRegistry);
+        this.unsettled = Counter.builder("auction.close-warmup.unsettled")
+                .description("Closed auctions without a winner after all retries, usually because nobody bid")
+                .register(meterRegistry);
+        Gauge.builder("auction.close-warmup.scheduled", wheel, HashedTimerWheel::pending)
+                .description("Auction closes waiting on the timer wheel")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.close();
+    }
+
+    @EventListener
+    public void onSnapshotRefreshed(CatalogueSnapshot.Refreshed event) {
+        long now = System.currentTimeMillis();
+        Set<Integer> active = new HashSet<>();
+        for (ItemResponse item : event.snapshot().items()) {
+            if (!item.getActive()) {
+                continue;
+            }
+            active.add(item.getId());
+            Instant knownEnd = auctionService.knownAuctionEnd(item.getId());
+            long endMillis = knownEnd != null ? knownEnd.toEpochMilli() : endMillis(item);
+            if (endMillis >= now && endMillis - now <= horizonMillis) {
+                schedule(item.getId(), endMillis);
+            }
+        }
+        // Withdrawn or paid items no longer need warming
+        scheduled.forEach((id, entry) -> {
+            if (!active.contains(id) && scheduled.remove(id, entry)) {
+                entry.timeout().cancel();
+            }
+        });
+    }
+
+    private void schedule(int catalogueId, long endMillis) {
+        scheduled.compute(catalogueId, (id, existing) -> {
+            if (existing != null) {
+                if (existing.endMillis() == endMillis) {
+                    return existing;
+                }
+                existing.timeout().cancel();
+            }
+            // The winner cannot be final before the settle margin has passed
+            long warmAt = endMillis + auctionService.settleMargin().toMillis() + delayMillis;
+            return new Scheduled(endMillis, wheel.schedule(() -> warm(id, endMillis, 0), warmAt));
+        });
+    }
+
+    private void warm(int catalogueId, long endMillis, int attempt) {
+        boolean settled;
+        try {
+            running.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            auctionService.getAuctionWinner(catalogueId);
+            auctionStatusStreams.refresh(catalogueId);
+            // Settled only once the winner is cached as final; an end not yet confirmed is asked again
+            settled = auctionService.knownAuctionWinner(catalogueId) != null;
+        } catch (RuntimeException e) {
+            log.debug("Warming closed auction {} failed: {}", catalogueId, e.getMessage());
+            settled = false;
+        } finally {
+            running.release();
+        }
+
+        if (settled) {
+            warmed.increment();
+            finish(catalogueId, endMillis);
+        } else if (attempt < retryDelays.length) {
+            // The auction-service may need a moment to confirm the end; auctions without bids never get a winner.
+            // The retry takes the entry's place, so a snapshot can still cancel it and will not schedule another
+            long retryAt = System.currentTimeMillis() + retryDelays[attempt].toMillis();
+            scheduled.computeIfPresent(catalogueId, (id, entry) -> entry.endMillis() != endMillis
+                    ? entry
+                    : new Scheduled(endMillis, wheel.schedule(() -> warm(id, endMillis, attempt + 1), retryAt)));
+        } else {
+            unsettled.increment();
+            finish(catalogueId, endMillis);
+        }
+    }
+
+    // Leaves the entry alone if the item was rescheduled for another end time meanwhile
+    private void finish(int catalogueId, long endMillis) {
+        scheduled.computeIfPresent(catalogueId, (id, entry) -> entry.endMillis() == endMillis ? null : entry);
+    }
+
+    private static long endMillis(ItemResponse item) {
+        try {
+            return LocalDateTime.parse(item.getEndTime()).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
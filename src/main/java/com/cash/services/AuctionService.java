@@ -1,10 +1,25 @@
 package com.cash.services;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import com.cash.grpc.auctionservice.AuctionServiceGrpc;
 import com.cash.grpc.auctionservice.*;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.cash.exceptions.ResourceNotFoundException;
 import com.google.protobuf.Timestamp;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class AuctionService {
@@ -12,6 +27,118 @@ public class AuctionService {
     @GrpcClient("auction-service")
     private AuctionServiceGrpc.AuctionServiceBlockingStub auctionServiceStub;
 
+    private final ApplicationEventPublisher eventPublisher;
+    private final int winnerLookupConcurrency;
+    private final Duration winnerLookupDeadline;
+    private final boolean winnerLookupPartialResults;
+
+    // Single lookups made within a few milliseconds of each other share one batch RPC
+    private final BatchLoader<GetAuctionEndResponse> ends;
+    private final BatchLoader<GetAuctionStatusResponse> statuses;
+    private final BatchLoader<GetAuctionWinnerResponse> winners;
+
+    // End times never change once an auction is started, and winners never change once it has ended
+    private final Cache<Integer, GetAuctionEndResponse> endCache;
+    private final Cache<Integer, GetAuctionWinnerResponse> winnerCache;
+    // Auctions the auction-service has confirmed are over; see confirmedEnded
+    private final Cache<Integer, Boolean> endedAuctions;
+    private final Duration settleMargin;
+
+    // GetAuctionWinner's found only says the auction-service knows a highest bidder, which need not be
+    // the final one. This service reports found only for auctions confirmed over, and this otherwise
+    private static final GetAuctionWinnerResponse NOT_ENDED = GetAuctionWinnerResponse.newBuilder()
+            .setFound(false)
+            .setMessage("Auction has not ended yet")
+            .build();
+
+    // Hot auctions are asked for their status by many users at once; answers are shared for a very short time
+    private final Cache<Integer, CachedStatus> statusCache;
+    private final SingleFlight<Integer, CachedStatus> statusLoads = new SingleFlight<>();
+
+    // An ended auction's bid history is kept for good; a live one is dropped when a bid is placed here and fetched again
+    private final Cache<Integer, CachedHistory> historyCache;
+    private final SingleFlight<Integer, BidHistory> historyLoads = new SingleFlight<>();
+
+    /**
+     * A status as fetched, with the end time derived from it so the remaining
+     * time keeps counting down while cached. An entry without a response
+     * marks a bid placed at {@code stampNanos}; fetches started before it
+     * must not be cached.
+     */
+    private record CachedStatus(GetAuctionStatusResponse response, long endsAtMillis, long stampNanos) {
+    }
+
+    /**
+     * A bid history as last fetched at {@code stampNanos}. As
+     * with {@link CachedStatus}, an entry without a history marks a bid whose
+     * history was not cached; fetches started before it must not be cached.
+     */
+    private record CachedHistory(BidHistory history, long stampNanos) {
+    }
+
+    public AuctionService(
+            ApplicationEventPublisher eventPublisher,
+            @Value("${auction.winner-lookup.max-concurrency:16}") int winnerLookupConcurrency,
+            @Value("${auction.winner-lookup.deadline:5s}") Duration winnerLookupDeadline,
+            @Value("${auction.winner-lookup.partial-results:true}") boolean winnerLookupPartialResults,
+            @Value("${auction.batching.window:2ms}") Duration batchWindow,
+            @Value("${auction.batching.max-size:100}") int batchMaxSize,
+            @Value("${auction.status-cache.ttl:200ms}") Duration statusTtl,
+            @Value("${auction.status-cache.max-size:10000}") long statusCacheSize,
+            @Value("${auction.final-cache.max-size:50000}") long finalCacheSize,
+            @Value("${auction.final-cache.settle-margin:2s}") Duration settleMargin,
+            @Value("${auction.bid-history.live-ttl:30s}") Duration liveHistoryTtl,
+            @Value("${auction.bid-history.max-bids:500000}") long historyMaxBids,
+            MeterRegistry meterRegistry) {
+        this.eventPublisher = eventPublisher;
+        this.winnerLookupConcurrency = winnerLookupConcurrency;
+        this.winnerLookupDeadline = winnerLookupDeadline;
+        this.winnerLookupPartialResults = winnerLookupPartialResults;
+        this.ends = new BatchLoader<>("GetAuctionEnds", this::fetchEnds, this::fetchEnd,
+                batchWindow, batchMaxSize, meterRegistry);
+        this.statuses = new BatchLoader<>("GetAuctionStatuses", this::fetchStatuses, this::fetchStatus,
+                batchWindow, batchMaxSize, meterRegistry);
+        this.winners = new BatchLoader<>("GetAuctionWinners", this::fetchWinners, this::fetchWinner,
+                batchWindow, batchMaxSize, meterRegistry);
+        this.endCache = Caffeine.newBuilder()
+                .maximumSize(finalCacheSize)
+                .recordStats()
+                .build();
+        this.winnerCache = Caffeine.newBuilder()
+                .maximumSize(finalCacheSize)
+                .recordStats()
+                .build();
+        this.endedAuctions = Caffeine.newBuilder()
+                .maximumSize(finalCacheSize)
+                .build();
+        this.settleMargin = settleMargin;
+        CaffeineCacheMetrics.monitor(meterRegistry, endCache, "auction.ends");
+        CaffeineCacheMetrics.monitor(meterRegistry, winnerCache, "auction.winners");
+        // Live histories expire as a safety net for bids placed through other routers
+        this.historyCache = Caffeine.newBuilder()
+                .maximumWeight(historyMaxBids)
+                .weigher((Integer id, CachedHistory cached) -> cached.history() == null ? 1 : 1 + cached.history().bids().size())
+                .expireAfter(Expiry.writing((Integer id, CachedHistory cached) -> cached.history() != null && cached.history().ended()
+                        ? Duration.ofNanos(Long.MAX_VALUE)
+                        : liveHistoryTtl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, historyCache, "auction.bid-history");
+        if (statusTtl.isZero()) {
+            this.statusCache = null;
+        } else {
+            this.statusCache = Caffeine.newBuilder()
+                    .maximumSize(statusCacheSize)
+                    .expireAfterWrite(statusTtl)
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, statusCache, "auction.status");
+            FunctionCounter.builder("auction.status.coalesced", statusLoads, SingleFlight::sharedCount)
+                    .description("GetAuctionStatus calls avoided by sharing an in-flight call")
+                    .register(meterRegistry);
+        }
+    }
+
     public StartAuctionResponse startAuction(int userId, int catalogueId, int startingAmount, Timestamp endTime){
         StartAuctionRequest request = StartAuctionRequest.newBuilder()
                 .setUserId(userId)
@@ -19,7 +146,15 @@ public class AuctionService {
                 .setStartingAmount(startingAmount)
                 .setEndTime(endTime)
                 .build();
-        return auctionServiceStub.startAuction(request);
+        StartAuctionResponse response = auctionServiceStub.startAuction(request);
+        if (response.getSuccess()) {
+            // Only matters if an id is ever reused for a new auction
+            endCache.invalidate(catalogueId);
+            winnerCache.invalidate(catalogueId);
+            endedAuctions.invalidate(catalogueId);
+            historyCache.invalidate(catalogueId);
+        }
+        return response;
     }
 
     public PlaceBidResponse placeBid(int userId, String username, int catalogueId, int bidAmount){
@@ -29,27 +164,361 @@ public class AuctionService {
                 .setCatalogueId(catalogueId)
                 .setAmount(bidAmount)
                 .build();
-        return auctionServiceStub.placeBid(request);
+        PlaceBidResponse response = auctionServiceStub.placeBid(request);
+        if (response.getSuccess()) {
+            if (statusCache != null) {
+                statusCache.put(catalogueId, new CachedStatus(null, 0, System.nanoTime()));
+            }
+            invalidateHistory(catalogueId);
+        }
+        return response;
+    }
+
+    // The auction-service does not tell us the new bid's id or time, so the history is fetched again
+    private void invalidateHistory(int catalogueId) {
+        historyCache.put(catalogueId, new CachedHistory(null, System.nanoTime()));
+    }
+
+    /**
+     * Returns the bids placed on an auction, oldest first. The history of an
+     * auction the auction-service has confirmed ended is cached for good; a live one is cached for
+     * {@code auction.bid-history.live-ttl} and dropped when a bid is placed
+     * through this router.
+     *
+     * @throws ResourceNotFoundException if there is no such auction
+     */
+    public BidHistory getBidHistory(int catalogueId) {
+        CachedHistory cached = historyCache.getIfPresent(catalogueId);
+        if (cached != null && cached.history() != null) {
+            return cached.history();
+        }
+        return historyLoads.execute(catalogueId, () -> loadHistory(catalogueId));
     }
 
+    private BidHistory loadHistory(int catalogueId) {
+        long started = System.nanoTime();
+        // Only a history fetched after the auction-service confirmed the end is sure to hold the last bid
+        boolean ended = confirmedEnded(catalogueId);
+        GetBidHistoryResponse response = auctionServiceStub.getBidHistory(GetBidHistoryRequest.newBuilder()
+                .setCatalogueId(catalogueId)
+                .build());
+        if (!response.getSuccess()) {
+            throw new ResourceNotFoundException(response.getMessage());
+        }
+        BidHistory loaded = BidHistory.of(response.getBidHistoryList(), ended);
+        historyCache.asMap().compute(catalogueId, (id, existing) -> existing != null
+                && existing.stampNanos() - started > 0 ? existing : new CachedHistory(loaded, started));
+        return loaded;
+    }
+
+    /**
+     * Returns the end time of an auction, cached for good once found.
+     */
     public GetAuctionEndResponse getAuctionEnd(int catalogueId){
+        GetAuctionEndResponse cached = endCache.getIfPresent(catalogueId);
+        if (cached != null) {
+            return cached;
+        }
+        GetAuctionEndResponse response = ends.load(catalogueId);
+        if (response.getFound()) {
+            endCache.put(catalogueId, response);
+        }
+        return response;
+    }
+
+    /**
+     * Returns the status of an auction. Unless disabled, answers are cached
+     * for {@code auction.status-cache.ttl}, concurrent misses share one
+     * lookup, and a bid placed through this router drops the entry.
+     */
+    public GetAuctionStatusResponse getAuctionStatus(int catalogueId){
+        if (statusCache == null) {
+            return statuses.load(catalogueId);
+        }
+        CachedStatus cached = statusCache.getIfPresent(catalogueId);
+        if (cached == null || cached.response() == null) {
+            cached = statusLoads.execute(catalogueId, () -> loadStatus(catalogueId));
+        }
+        return countDown(cached);
+    }
+
+    /**
+     * Returns the end time of an auction if it is already cached, without
+     * asking the auction-service; {@code null} otherwise.
+     */
+    public Instant knownAuctionEnd(int catalogueId) {
+        GetAuctionEndResponse cached = endCache.getIfPresent(catalogueId);
+        return cached == null
+                ? null
+                : Instant.ofEpochSecond(cached.getEndTime().getSeconds(), cached.getEndTime().getNanos());
+    }
+
+    /**
+     * Returns the final winner of an auction if it is already cached, without
+     * asking the auction-service; {@code null} otherwise.
+     */
+    public GetAuctionWinnerResponse knownAuctionWinner(int catalogueId) {
+        return winnerCache.getIfPresent(catalogueId);
+    }
+
+    /**
+     * Returns the final winner of an auction: {@code found} only once the
+     * auction-service has confirmed the auction is over (see
+     * {@link #confirmedEnded(int)}) and reports a winner. A final winner is
+     * cached for good and announced once with an {@link AuctionWinnerEvent};
+     * anything else is asked again next time.
+     */
+    public GetAuctionWinnerResponse getAuctionWinner(int catalogueId){
+        GetAuctionWinnerResponse cached = winnerCache.getIfPresent(catalogueId);
+        if (cached != null) {
+            return cached;
+        }
+        return lookUpWinner(catalogueId);
+    }
+
+    /**
+     * Looks up the winners of several auctions concurrently, in the order of
+     * the given ids, with the same meaning of {@code found} as
+     * {@link #getAuctionWinner(int)}. Depending on configuration, a failed or
+     * late lookup either fails the whole call or leaves a {@code null} gap in
+     * the result. The ids are sent in batches when the auction-service
+     * supports it.
+     */
+    public BoundedFanOut.Result<GetAuctionWinnerResponse> getAuctionWinners(List<Integer> catalogueIds) {
+        if (!winners.batchSupported()) {
+            return BoundedFanOut.run(catalogueIds, this::getAuctionWinner,
+                    winnerLookupConcurrency, winnerLookupDeadline, !winnerLookupPartialResults);
+        }
+        return loadWinners(catalogueIds, winnerCache.getAllPresent(catalogueIds));
+    }
+
+    /**
+     * Like {@link #getAuctionWinners(List)}, but never answered from the
+     * cache, so the answers can be used to check what the router believes.
+     * Final winners found replace the cached ones.
+     */
+    public BoundedFanOut.Result<GetAuctionWinnerResponse> fetchAuctionWinners(List<Integer> catalogueIds) {
+        if (!winners.batchSupported()) {
+            return BoundedFanOut.run(catalogueIds, this::lookUpWinner,
+                    winnerLookupConcurrency, winnerLookupDeadline, !winnerLookupPartialResults);
+        }
+        return loadWinners(catalogueIds, Map.of());
+    }
+
+    /**
+     * How long after its end time the router waits before asking the
+     * auction-service whether an auction is over.
+     */
+    public Duration settleMargin() {
+        return settleMargin;
+    }
+
+    private GetAuctionWinnerResponse lookUpWinner(int catalogueId) {
+        // Confirmed before the winner is asked for, so no bid can come after the answer
+        if (!confirmedEnded(catalogueId)) {
+            return NOT_ENDED;
+        }
+        return rememberWinner(catalogueId, winners.load(catalogueId));
+    }
+
+    // Batched lookup of every id not already known
+    private BoundedFanOut.Result<GetAuctionWinnerResponse> loadWinners(List<Integer> catalogueIds,
+                                                                       Map<Integer, GetAuctionWinnerResponse> known) {
+        List<Integer> missing = catalogueIds.stream().filter(id -> !known.containsKey(id)).distinct().toList();
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < missing.size(); from += winners.maxBatchSize()) {
+            chunks.add(missing.subList(from, Math.min(missing.size(), from + winners.maxBatchSize())));
+        }
+        BoundedFanOut.Result<Map<Integer, GetAuctionWinnerResponse>> batches = BoundedFanOut.run(chunks,
+                this::loadEndedWinners, winnerLookupConcurrency, winnerLookupDeadline, !winnerLookupPartialResults);
+
+        Map<Integer, GetAuctionWinnerResponse> fetched = new HashMap<>(known);
+        for (Map<Integer, GetAuctionWinnerResponse> batch : batches.results()) {
+            if (batch != null) {
+                fetched.putAll(batch);
+            }
+        }
+
+        List<GetAuctionWinnerResponse> results = new ArrayList<>(catalogueIds.size());
+        int failures = 0;
+        for (Integer id : catalogueIds) {
+            GetAuctionWinnerResponse response = fetched.get(id);
+            if (response == null) {
+                failures++;
+            }
+            results.add(response);
+        }
+        return new BoundedFanOut.Result<>(results, failures);
+    }
+
+    // Runs inside the fan-out, so every lookup shares its deadline: one bulk call each for the ends not
+    // cached yet, for the statuses of auctions that should be over, and for the winners of those confirmed
+    private Map<Integer, GetAuctionWinnerResponse> loadEndedWinners(List<Integer> chunk) {
+        List<Integer> endless = chunk.stream().filter(id -> endCache.getIfPresent(id) == null).toList();
+        if (!endless.isEmpty()) {
+            ends.loadAll(endless).forEach((id, end) -> {
+                if (end.getFound()) {
+                    endCache.put(id, end);
+                }
+            });
+        }
+        long now = System.currentTimeMillis();
+        List<Integer> due = chunk.stream()
+                .filter(id -> endedAuctions.getIfPresent(id) == null && pastSettleMargin(endCache.getIfPresent(id), now))
+                .toList();
+        if (!due.isEmpty()) {
+            statuses.loadAll(due).forEach(this::rememberEnded);
+        }
+
+        Map<Integer, GetAuctionWinnerResponse> results = new HashMap<>();
+        List<Integer> ended = chunk.stream().filter(id -> endedAuctions.getIfPresent(id) != null).toList();
+        if (!ended.isEmpty()) {
+            winners.loadAll(ended).forEach((id, response) -> results.put(id, rememberWinner(id, response)));
+        }
+        chunk.forEach(id -> results.putIfAbsent(id, NOT_ENDED));
+        return results;
+    }
+
+    /**
+     * Whether the auction-service has confirmed the auction is over. It is
+     * only asked once the router's clock is {@code settleMargin} past the end
+     * time, and only a status with no remaining time counts; the answer is
+     * cached once it is yes.
+     */
+    private boolean confirmedEnded(int catalogueId) {
+        if (endedAuctions.getIfPresent(catalogueId) != null) {
+            return true;
+        }
+        if (!pastSettleMargin(getAuctionEnd(catalogueId), System.currentTimeMillis())) {
+            return false;
+        }
+        // Straight from the auction-service; the status micro-cache counts down on the router's clock
+        return rememberEnded(catalogueId, statuses.load(catalogueId));
+    }
+
+    private boolean pastSettleMargin(GetAuctionEndResponse end, long nowMillis) {
+        return end != null && end.getFound() && endMillis(end) + settleMargin.toMillis() <= nowMillis;
+    }
+
+    private boolean rememberEnded(int catalogueId, GetAuctionStatusResponse status) {
+        boolean ended = status.getSuccess() && status.getRemainingTime() == 0;
+        if (ended) {
+            endedAuctions.put(catalogueId, Boolean.TRUE);
+        }
+        return ended;
+    }
+
+    // Callers only pass answers asked for after the end was confirmed, so a found winner is final.
+    // It is cached, and announced when it first enters the cache
+    private GetAuctionWinnerResponse rememberWinner(int catalogueId, GetAuctionWinnerResponse response) {
+        if (response != null && response.getFound()
+                && !response.equals(winnerCache.asMap().put(catalogueId, response))) {
+            announce(catalogueId, response);
+        }
+        return response;
+    }
+
+    /**
+     * Like {@link #getAuctionStatus(int)}, but never answered from the cache.
+     * The fresh answer replaces the cached one.
+     */
+    public GetAuctionStatusResponse refreshAuctionStatus(int catalogueId) {
+        if (statusCache == null) {
+            return statuses.load(catalogueId);
+        }
+        return countDown(statusLoads.execute(catalogueId, () -> loadStatus(catalogueId)));
+    }
+
+    private CachedStatus loadStatus(int catalogueId) {
+        long started = System.nanoTime();
+        GetAuctionStatusResponse response = statuses.load(catalogueId);
+        CachedStatus loaded = new CachedStatus(response,
+                System.currentTimeMillis() + response.getRemainingTime() * 1000L, started);
+        statusCache.asMap().compute(catalogueId, (id, existing) -> existing != null
+                && existing.response() == null
+                && existing.stampNanos() - started > 0 ? existing : loaded);
+        return loaded;
+    }
+
+    private static long endMillis(GetAuctionEndResponse end) {
+        return end.getEndTime().getSeconds() * 1000L + end.getEndTime().getNanos() / 1_000_000;
+    }
+
+    private static GetAuctionStatusResponse countDown(CachedStatus cached) {
+        GetAuctionStatusResponse response = cached.response();
+        if (!response.getSuccess()) {
+            return response;
+        }
+        long remainingMillis = cached.endsAtMillis() - System.currentTimeMillis();
+        int remaining = (int) Math.max(0, (remainingMillis + 999) / 1000);
+        return remaining == response.getRemainingTime()
+                ? response
+                : response.toBuilder().setRemainingTime(remaining).build();
+    }
+
+    // Callers only pass final winners
+    private void announce(int catalogueId, GetAuctionWinnerResponse response) {
+        eventPublisher.publishEvent(new AuctionWinnerEvent(
+                catalogueId, response.getWinnerUserId(), response.getFinalPrice()));
+    }
+
+    private GetAuctionEndResponse fetchEnd(int catalogueId) {
         GetAuctionEndRequest request = GetAuctionEndRequest.newBuilder()
                 .setCatalogueId(catalogueId)
                 .build();
         return auctionServiceStub.getAuctionEnd(request);
     }
 
-    public GetAuctionStatusResponse getAuctionStatus(int catalogueId){
+    private GetAuctionStatusResponse fetchStatus(int catalogueId) {
         GetAuctionStatusRequest request = GetAuctionStatusRequest.newBuilder()
                 .setCatalogueId(catalogueId)
                 .build();
         return auctionServiceStub.getAuctionStatus(request);
     }
 
-    public GetAuctionWinnerResponse getAuctionWinner(int catalogueId){
+    private GetAuctionWinnerResponse fetchWinner(int catalogueId) {
         GetAuctionWinnerRequest request = GetAuctionWinnerRequest.newBuilder()
                 .setCatalogueId(catalogueId)
                 .build();
         return auctionServiceStub.getAuctionWinner(request);
     }
+
+    private Map<Integer, GetAuctionEndResponse> fetchEnds(List<Integer> catalogueIds) {
+        GetAuctionEndsResponse response = auctionServiceStub.getAuctionEnds(GetAuctionEndsRequest.newBuilder()
+                .addAllCatalogueIds(catalogueIds)
+                .build());
+        return complete(catalogueIds, response.getEndsMap(), GetAuctionEndResponse.newBuilder()
+                .setFound(false)
+                .setMessage("Auction not found")
+                .build());
+    }
+
+    private Map<Integer, GetAuctionStatusResponse> fetchStatuses(List<Integer> catalogueIds) {
+        GetAuctionStatusesResponse response = auctionServiceStub.getAuctionStatuses(GetAuctionStatusesRequest.newBuilder()
+                .addAllCatalogueIds(catalogueIds)
+                .build());
+        return complete(catalogueIds, response.getStatusesMap(), GetAuctionStatusResponse.newBuilder()
+                .setSuccess(false)
+                .setMessage("Auction not found")
+                .build());
+    }
+
+    private Map<Integer, GetAuctionWinnerResponse> fetchWinners(List<Integer> catalogueIds) {
+        GetAuctionWinnersResponse response = auctionServiceStub.getAuctionWinners(GetAuctionWinnersRequest.newBuilder()
+                .addAllCatalogueIds(catalogueIds)
+                .build());
+        return complete(catalogueIds, response.getWinnersMap(), GetAuctionWinnerResponse.newBuilder()
+                .setFound(false)
+                .setMessage("Auction not found")
+                .build());
+    }
+
+    // The batch contract answers every id; treat any the server left out as not found
+    private static <V> Map<Integer, V> complete(List<Integer> catalogueIds, Map<Integer, V> answered, V notFound) {
+        Map<Integer, V> results = new HashMap<>(answered);
+        for (Integer id : catalogueIds) {
+            results.putIfAbsent(id, notFound);
+        }
+        return results;
+    }
 }
@@ -0,0 +1,404 @@
+package com.cash.services;
+
+import com.cash.dtos.AuctionStatusEventDto;
+import com.cash.exceptions.ResourceNotFoundException;
+import com.cash.grpc.auctionservice.GetAuctionStatusResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Live auction status over Server-Sent Events, with one upstream poller per
+ * watched auction however many clients watch it.
+ *
+ * <p>
+ * A watch exists while an auction has subscribers. Every poll interval all
+ * watched auctions are polled together, so their GetAuctionStatus calls
+ * share batch RPCs, and a {@code status} event goes out only when the
+ * leader, the price or the running state changed. Subscribers are async
+ * requests and hold no thread while idle. Each one has a single pending-event
+ * slot: an update that arrives before the previous one was written replaces
+ * it, so a slow client receives the latest status late rather than a growing
+ * backlog. Each event is serialized once and shared by all subscribers.
+ * Besides SSE streams, other push channels can subscribe with a
+ * {@link Listener}.
+ * Once an auction has ended, the final status is sent as an {@code ended}
+ * event and its streams are completed.
+ */
+@Slf4j
+@Component
+public class AuctionStatusStreams {
+
+    private static final Object HEARTBEAT = new Object();
+
+    private record Event(String name, String json) {
+    }
+
+    /**
+     * Receives the events of one watched auction. Calls for one listener never
+     * overlap; an {@link IOException} ends the subscription.
+     */
+    public interface Listener {
+
+        /**
+         * @param name {@code status}, or {@code ended} for the final event
+         * @param json the auction status as JSON
+         */
+        void onEvent(String name, String json) throws IOException;
+
+        default void onKeepAlive() throws IOException {
+        }
+
+        /** Called after the {@code ended} event; the subscription is over. */
+        void onComplete();
+    }
+
+    private final AuctionService auctionService;
+    private final ObjectMapper objectMapper;
+    private final Map<Integer, Watch> watches = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Duration timeout;
+    private final int maxSubscribers;
+    private final int maxConcurrency;
+    private final Duration pollDeadline;
+    private final long heartbeatIntervalNanos;
+    private final Duration pollInterval;
+    private final Counter coalesced;
+    // Own thread, so live status never waits behind the other scheduled tasks on Spring's scheduler
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "auction-stream-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long lastHeartbeat = System.nanoTime();
+
+    public AuctionStatusStreams(
+            AuctionService auctionService,
+            ObjectMapper objectMapper,
+            @Value("${auction.stream.timeout:30m}") Duration timeout,
+            @Value("${auction.stream.max-subscribers:10000}") int maxSubscribers,
+            @Value("${auction.stream.poll-concurrency:32}") int maxConcurrency,
+            @Value("${auction.stream.poll-deadline:2s}") Duration pollDeadline,
+            @Value("${auction.stream.heartbeat-interval:15s}") Duration heartbeatInterval,
+            @Value("${auction.stream.poll-interval:PT1S}") Duration pollInterval,
+            MeterRegistry meterRegistry) {
+        this.auctionService = auctionService;
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+        this.maxSubscribers = maxSubscribers;
+        this.maxConcurrency = maxConcurrency;
+        this.pollDeadline = pollDeadline;
+        this.heartbeatIntervalNanos = heartbeatInterval.toNanos();
+        this.pollInterval = pollInterval;
+        this.coalesced = Counter.builder("auction.stream.coalesced")
+                .description("Status events replaced by a newer one before a slow subscriber received them")
+                .register(meterRegistry);
+        Gauge.builder("auction.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Open auction status streams")
+                .register(meterRegistry);
+        Gauge.builder("auction.stream.watched", watches, Map::size)
+                .description("Auctions polled for status streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a status stream for an auction. The current status is sent right
+     * away; an unknown auction fails before the stream is opened.
+     */
+    public SseEmitter subscribe(int catalogueId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        AtomicInteger nextEventId = new AtomicInteger();
+        Runnable unsubscribe = watch(catalogueId, new Listener() {
+            @Override
+            public void onEvent(String name, String json) throws IOException {
+                emitter.send(SseEmitter.event()
+                        .id(Integer.toString(nextEventId.incrementAndGet()))
+                        .name(name)
+                        .data(json, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void onKeepAlive() throws IOException {
+                emitter.send(SseEmitter.event().comment("keep-alive"));
+            }
+
+            @Override
+            public void onComplete() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(() -> {
+            unsubscribe.run();
+            // Ends the response normally; EventSource clients reconnect on their own
+            emitter.complete();
+        });
+        emitter.onError(e -> unsubscribe.run());
+        return emitter;
+    }
+
+    /**
+     * Subscribes a listener to an auction's status. The current status is
+     * delivered right away; an unknown auction fails before anything is
+     * delivered.
+     *
+     * @return cancels the subscription
+     */
+    public Runnable watch(int catalogueId, Listener listener) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw Status.RESOURCE_EXHAUSTED
+                    .withDescription("Too many open auction streams, try again later")
+                    .asRuntimeException();
+        }
+
+        Subscriber subscriber;
+        try {
+            Watch known = watches.get(catalogueId);
+            GetAuctionStatusResponse current = known == null ? null : known.last.get();
+            if (current == null) {
+                current = auctionService.getAuctionStatus(catalogueId);
+                if (!current.getSuccess()) {
+                    throw new ResourceNotFoundException(current.getMessage());
+                }
+            }
+            subscriber = attach(catalogueId, current, listener);
+            subscriber.offer(toEvent(catalogueId, current));
+            if (ended(current)) {
+                subscriber.finish();
+            }
+        } catch (RuntimeException e) {
+            subscribers.decrementAndGet();
+            throw e;
+        }
+        return () -> unsubscribe(subscriber);
+    }
+
+    // Adding and removing subscribers is atomic per auction, so a watch is never dropped while in use
+    private Subscriber attach(int catalogueId, GetAuctionStatusResponse current, Listener listener) {
+        Subscriber[] attached = new Subscriber[1];
+        watches.compute(catalogueId, (id, watch) -> {
+            if (watch == null) {
+                watch = new Watch(id);
+            }
+            watch.last.compareAndSet(null, current);
+            attached[0] = new Subscriber(listener, watch);
+            watch.subscribers.add(attached[0]);
+            return watch;
+        });
+        return attached[0];
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                // A task that throws is not run again by the executor
+                log.warn("Auction status poll failed: {}", e.getMessage());
+            }
+        }, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        poller.shutdownNow();
+    }
+
+    /**
+     * Polls every watched auction and pushes changes to its subscribers.
+     */
+    public void poll() {
+        List<Watch> polled = new ArrayList<>(watches.values());
+        if (!polled.isEmpty()) {
+            List<Integer> ids = polled.stream().map(watch -> watch.catalogueId).toList();
+            BoundedFanOut.Result<GetAuctionStatusResponse> result = BoundedFanOut.run(
+                    ids, auctionService::getAuctionStatus, maxConcurrency, pollDeadline, false);
+            if (result.partial()) {
+                log.debug("{} of {} auction status polls failed", result.failures(), ids.size());
+            }
+            for (int i = 0; i < polled.size(); i++) {
+                GetAuctionStatusResponse status = result.results().get(i);
+                if (status != null) {
+                    publish(polled.get(i), status);
+                }
+            }
+        }
+
+        long now = System.nanoTime();
+        if (now - lastHeartbeat >= heartbeatIntervalNanos) {
+            lastHeartbeat = now;
+            // Detects clients that went away without closing, and keeps idle proxies from cutting the stream
+            watches.values().forEach(watch -> watch.subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT)));
+        }
+    }
+
+    /**
+     * Fetches an auction's status right away, bypassing the status cache, and
+     * pushes it to the auction's subscribers, if it has any.
+     */
+    public void refresh(int catalogueId) {
+        Watch watch = watches.get(catalogueId);
+        if (watch != null) {
+            publish(watch, auctionService.refreshAuctionStatus(catalogueId));
+        }
+    }
+
+    private void publish(Watch watch, GetAuctionStatusResponse status) {
+        GetAuctionStatusResponse previous = watch.last.getAndSet(status);
+        boolean ended = ended(status);
+        if (!changed(previous, status) && !ended) {
+            return;
+        }
+        Event event = toEvent(watch.catalogueId, status);
+        for (Subscriber subscriber : watch.subscribers) {
+            subscriber.offer(event);
+            if (ended) {
+                subscriber.finish();
+            }
+        }
+        if (ended) {
+            watches.remove(watch.catalogueId, watch);
+        }
+    }
+
+    private static boolean ended(GetAuctionStatusResponse status) {
+        return !status.getSuccess() || status.getRemainingTime() <= 0;
+    }
+
+    // Remaining time ticks down on every poll; clients count it down themselves between events
+    private static boolean changed(GetAuctionStatusResponse previous, GetAuctionStatusResponse current) {
+        return previous == null
+                || previous.getHighestBidder() != current.getHighestBidder()
+                || previous.getCurrentAmount() != current.getCurrentAmount()
+                || previous.getSuccess() != current.getSuccess();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        Watch watch = subscriber.watch;
+        if (watch.subscribers.remove(subscriber)) {
+            subscribers.decrementAndGet();
+        }
+        watches.computeIfPresent(watch.catalogueId,
+                (id, current) -> current == watch && current.subscribers.isEmpty() ? null : current);
+    }
+
+    private Event toEvent(int catalogueId, GetAuctionStatusResponse status) {
+        boolean ended = ended(status);
+        AuctionStatusEventDto dto = AuctionStatusEventDto.builder()
+                .catalogueId(catalogueId)
+                .highestBidder(status.getHighestBidder())
+                .currentHighestBid(status.getCurrentAmount())
+                .remainingTime(status.getRemainingTime())
+                .ended(ended)
+                .auctionStatus(status.getMessage())
+                .build();
+        try {
+            return new Event(ended ? "ended" : "status", objectMapper.writeValueAsString(dto));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize auction status", e);
+        }
+    }
+
+    private static final class Watch {
+        final int catalogueId;
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        final AtomicReference<GetAuctionStatusResponse> last = new AtomicReference<>();
+
+        Watch(int catalogueId) {
+            this.catalogueId = catalogueId;
+        }
+    }
+
+    private final class Subscriber {
+        final Listener listener;
+        final Watch watch;
+        final AtomicReference<Object> pending = new AtomicReference<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile boolean finishing;
+
+        Subscriber(Listener listener, Watch watch) {
+            this.listener = listener;
+            this.watch = watch;
+        }
+
+        void offer(Object event) {
+            if (event == HEARTBEAT) {
+                // Never displaces a real update
+                pending.compareAndSet(null, HEARTBEAT);
+            } else if (pending.getAndSet(event) instanceof Event) {
+                coalesced.increment();
+            }
+            drain();
+        }
+
+        /** Completes the stream once the pending event has been written. */
+        void finish() {
+            finishing = true;
+            drain();
+        }
+
+        private void drain() {
+            if (draining.compareAndSet(false, true)) {
+                Thread.ofVirtual().name("auction-stream-" + watch.catalogueId).start(this::writePending);
+            }
+        }
+
+        private void writePending() {
+            try {
+                while (true) {
+                    Object event = pending.getAndSet(null);
+                    if (event == null) {
+                        break;
+                    }
+                    if (event == HEARTBEAT) {
+                        listener.onKeepAlive();
+                    } else {
+                        Event update = (Event) event;
+                        listener.onEvent(update.name(), update.json());
+                    }
+                }
+                if (finishing) {
+                    unsubscribe(this);
+                    listener.onComplete();
+                    return;
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away or the stream was already completed
+                unsubscribe(this);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // An offer that raced with the end of the loop found draining still set
+            if (pending.get() != null || finishing) {
+                drain();
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.cash.services;
+
+/**
+ * Published by {@link AuctionService} when a GetAuctionWinner call reports a
+ * final winner, one found after the auction-service confirmed the auction's
+ * end, that the router had not cached yet, so router-side views of auction results can pick it up without
+ * calling again. Answers served from the cache are not announced again, and
+ * a leader reported while the auction is still running is never announced.
+ *
+ * @param catalogueId  the auction's catalogue item
+ * @param winnerUserId the winning user
+ * @param finalPrice   the winning bid
+ */
+public record AuctionWinnerEvent(int catalogueId, int winnerUserId, int finalPrice) {
+}
@@ -0,0 +1,265 @@
+package com.cash.services;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects single-key lookups made within a short window into one batch
+ * call, in the manner of a DataLoader.
+ *
+ * <p>
+ * The first lookup of a window starts a timer; the batch is sent when the
+ * timer fires or when it reaches the maximum size, whichever comes first.
+ * Concurrent lookups of the same key share one slot. Callers block until
+ * their batch answers, but no longer than the deadline of their gRPC
+ * {@link Context}. If the server answers a batch call with UNIMPLEMENTED,
+ * the loader switches to single calls for good.
+ *
+ * <p>
+ * The batch call runs with the earliest deadline among its callers, and is
+ * cancelled once every caller has given up waiting (timed out or been
+ * interrupted, as {@link BoundedFanOut} does with calls it abandons). A
+ * caller whose own deadline had not passed when the batch ran out of time
+ * repeats its lookup as a single call.
+ */
+@Slf4j
+final class BatchLoader<V> {
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "batch-loader-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final Function<List<Integer>, Map<Integer, V>> batchCall;
+    private final IntFunction<V> singleCall;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSizes;
+
+    private final Object lock = new Object();
+    private Batch pending = new Batch();
+    private volatile boolean batchSupported = true;
+
+    /**
+     * Lookups collected in one window. Joining happens under the loader's
+     * lock before dispatch; leaving and dispatch synchronize on the batch.
+     */
+    private final class Batch {
+        final Map<Integer, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        // Earliest deadline among the callers, or null while none of them has one
+        Deadline deadline;
+        int waiters;
+        Context.CancellableContext context;
+        boolean timerStarted;
+        boolean finished;
+
+        void join(Deadline callerDeadline) {
+            waiters++;
+            if (callerDeadline != null && (deadline == null || callerDeadline.isBefore(deadline))) {
+                deadline = callerDeadline;
+            }
+        }
+
+        /** Called by a caller that stops waiting; the last one out cancels the batch call. */
+        synchronized void leave() {
+            if (--waiters == 0 && !finished && context != null) {
+                context.cancel(Status.CANCELLED.withDescription("Every caller gave up").asRuntimeException());
+            }
+        }
+
+        /** Hands the batch its call context, unless every caller has already left. */
+        synchronized boolean start(Context.CancellableContext callContext) {
+            if (waiters == 0) {
+                return false;
+            }
+            context = callContext;
+            return true;
+        }
+
+        synchronized void finish() {
+            finished = true;
+        }
+    }
+
+    /**
+     * @param batchCall  answers a list of keys with a map holding every one
+     *                   of them
+     * @param singleCall answers one key, used when batching is off or not
+     *                   supported by the server
+     * @param window     how long to wait for more keys; zero disables
+     *                   batching of single lookups
+     */
+    BatchLoader(String name, Function<List<Integer>, Map<Integer, V>> batchCall, IntFunction<V> singleCall,
+            Duration window, int maxBatchSize, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.batchCall = batchCall;
+        this.singleCall = singleCall;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizes = DistributionSummary.builder("auction.batch.size")
+                .description("Keys per batched auction-service call")
+                .tag("rpc", name)
+                .register(meterRegistry);
+    }
+
+    int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    boolean batchSupported() {
+        return batchSupported;
+    }
+
+    /**
+     * Returns the value for one key, batched with other lookups made around
+     * the same time.
+     */
+    V load(int key) {
+        if (!batchSupported || windowNanos <= 0) {
+            return singleCall.apply(key);
+        }
+
+        Deadline callerDeadline = Context.current().getDeadline();
+        Batch batch;
+        CompletableFuture<V> future;
+        Batch full = null;
+        synchronized (lock) {
+            batch = pending;
+            future = batch.futures.computeIfAbsent(key, k -> new CompletableFuture<>());
+            synchronized (batch) {
+                batch.join(callerDeadline);
+            }
+            if (!batch.timerStarted) {
+                batch.timerStarted = true;
+                TIMER.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+            if (batch.futures.size() >= maxBatchSize) {
+                full = batch;
+                pending = new Batch();
+            }
+        }
+        if (full != null) {
+            Batch ready = full;
+            Thread.ofVirtual().name("batch-loader-" + name).start(() -> dispatch(ready));
+        }
+        return await(batch, key, future, callerDeadline);
+    }
+
+    /**
+     * Answers all keys in one batch call right away, without waiting for
+     * other lookups. The keys must fit in one batch.
+     */
+    Map<Integer, V> loadAll(List<Integer> keys) {
+        if (!batchSupported) {
+            return loadEach(keys);
+        }
+        try {
+            batchSizes.record(keys.size());
+            return batchCall.apply(keys);
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() != Status.Code.UNIMPLEMENTED) {
+                throw e;
+            }
+            disableBatching();
+            return loadEach(keys);
+        }
+    }
+
+    private Map<Integer, V> loadEach(List<Integer> keys) {
+        Map<Integer, V> results = new HashMap<>();
+        for (Integer key : keys) {
+            results.put(key, singleCall.apply(key));
+        }
+        return results;
+    }
+
+    private void flush() {
+        Batch batch;
+        synchronized (lock) {
+            if (pending.futures.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new Batch();
+        }
+        // Off the timer thread, which must never block on an RPC
+        Thread.ofVirtual().name("batch-loader-" + name).start(() -> dispatch(batch));
+    }
+
+    private void dispatch(Batch batch) {
+        // The callers' contexts do not reach this thread, so their earliest deadline is applied here
+        Context.CancellableContext context = batch.deadline == null
+                ? Context.ROOT.withCancellation()
+                : Context.ROOT.withDeadline(batch.deadline, TIMER);
+        try {
+            if (!batch.start(context)) {
+                batch.futures.values().forEach(future -> future.completeExceptionally(
+                        Status.CANCELLED.withDescription("Every caller gave up").asRuntimeException()));
+                return;
+            }
+            List<Integer> keys = new ArrayList<>(batch.futures.keySet());
+            Map<Integer, V> results = context.call(() -> loadAll(keys));
+            batch.futures.forEach((key, future) -> future.complete(results.get(key)));
+        } catch (Exception e) {
+            RuntimeException failure = e instanceof RuntimeException runtime ? runtime : new IllegalStateException(e);
+            batch.futures.values().forEach(future -> future.completeExceptionally(failure));
+        } finally {
+            batch.finish();
+            context.cancel(null);
+        }
+    }
+
+    private void disableBatching() {
+        if (batchSupported) {
+            batchSupported = false;
+            log.info("auction-service does not implement batched {}, falling back to single calls", name);
+        }
+    }
+
+    private V await(Batch batch, int key, CompletableFuture<V> future, Deadline deadline) {
+        try {
+            return deadline == null
+                    ? future.get()
+                    : future.get(deadline.timeRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof StatusRuntimeException status
+                    && status.getStatus().getCode() == Status.Code.DEADLINE_EXCEEDED
+                    && (deadline == null || !deadline.isExpired())) {
+                // The batch ran out of another caller's time; this one still has some of its own
+                return singleCall.apply(key);
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            batch.leave();
+            throw Status.DEADLINE_EXCEEDED.withDescription("Batched lookup did not finish in time").asRuntimeException();
+        } catch (InterruptedException e) {
+            batch.leave();
+            Thread.currentThread().interrupt();
+            throw Status.CANCELLED.withDescription("Interrupted").withCause(e).asRuntimeException();
+        }
+    }
+}
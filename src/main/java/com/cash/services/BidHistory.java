@@ -0,0 +1,51 @@
+package com.cash.services;
+
+import com.cash.grpc.auctionservice.Bid;
+import com.google.protobuf.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The bids of one auction, as the auction-service reported them, ordered by
+ * bid time and then bid id. The proto leaves the order of the list open, so
+ * it is sorted here; pages are cut by {@link #indexAfter(long, int, int)}
+ * rather than by position, which shifts when a late bid sorts in between.
+ *
+ * @param ended whether the auction had ended when the history was fetched,
+ *              so no bid can be added to it any more
+ */
+public record BidHistory(List<Bid> bids, boolean ended, int highestBidId) {
+
+    static final Comparator<Bid> ORDER = Comparator
+            .comparingLong((Bid bid) -> bid.getBidTime().getSeconds())
+            .thenComparingInt(bid -> bid.getBidTime().getNanos())
+            .thenComparingInt(Bid::getBidId);
+
+    static BidHistory of(List<Bid> bids, boolean ended) {
+        List<Bid> sorted = new ArrayList<>(bids);
+        sorted.sort(ORDER);
+        return new BidHistory(List.copyOf(sorted), ended,
+                sorted.stream().mapToInt(Bid::getBidId).max().orElse(0));
+    }
+
+    /**
+     * Changes whenever a bid is added. Histories only ever grow and bid ids
+     * are the auction-service's own, so the count and the highest id are
+     * enough to tell two fetches apart.
+     */
+    public String version() {
+        return bids.size() + "-" + Integer.toHexString(highestBidId);
+    }
+
+    /** Returns the index of the first bid ordered after the given time and id. */
+    public int indexAfter(long seconds, int nanos, int bidId) {
+        Bid key = Bid.newBuilder()
+                .setBidId(bidId)
+                .setBidTime(Timestamp.newBuilder().setSeconds(seconds).setNanos(nanos))
+                .build();
+        int index = Collections.binarySearch(bids, key, ORDER);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
@@ -0,0 +1,60 @@
+package com.cash.services;
+
+import com.cash.config.BiddingSessionManager;
+import com.cash.grpc.auctionservice.PlaceBidResponse;
+import org.springframework.stereotype.Service;
+
+/**
+ * Places bids on behalf of a signed-in user, enforcing the router's bidding
+ * rules for every channel bids arrive on: a user cannot bid on their own
+ * item, and bids on one item at a time, as remembered by the
+ * {@link BiddingSessionManager}.
+ */
+@Service
+public class BiddingService {
+
+    private final AuctionService auctionService;
+    private final CatalogueService catalogueService;
+    private final BiddingSessionManager biddingSessionManager;
+
+    public BiddingService(
+            AuctionService auctionService,
+            CatalogueService catalogueService,
+            BiddingSessionManager biddingSessionManager) {
+        this.auctionService = auctionService;
+        this.catalogueService = catalogueService;
+        this.biddingSessionManager = biddingSessionManager;
+    }
+
+    /**
+     * Places a bid and makes the item the one this user is bidding on.
+     *
+     * @throws IllegalArgumentException if a rule forbids the bid or the
+     *                                  auction-service rejects it
+     */
+    public PlaceBidResponse placeBid(int userId, String username, int catalogueId, int bidAmount) {
+        Integer currentItemBid = biddingSessionManager.getItem(userId);
+
+        // Only the seller is needed here, which never changes and is cached long-term
+        ItemFacts item = catalogueService.getItemFacts(catalogueId);
+
+        if (currentItemBid != null && !currentItemBid.equals(catalogueId)) {
+            throw new IllegalArgumentException(
+                    "You can only bid on one auction item at a time. Please finish bidding on your current item before placing a bid on another.");
+        }
+
+        // Checks if the authenticated user is the seller of the item
+        if (item.sellerId() == userId) {
+            throw new IllegalArgumentException("You cannot place a bid on your own auction item.");
+        }
+
+        PlaceBidResponse response = auctionService.placeBid(userId, username, catalogueId, bidAmount);
+
+        if (!response.getSuccess()) {
+            throw new IllegalArgumentException(response.getMessage());
+        }
+
+        biddingSessionManager.setItem(userId, item.id());
+        return response;
+    }
+}
@@ -0,0 +1,143 @@
+package com.cash.services;
+
+import io.grpc.Context;
+import io.grpc.Status;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs one blocking call per input on virtual threads, with at most a fixed
+ * number in flight and one deadline for the whole batch.
+ *
+ * <p>
+ * The calls run inside a gRPC {@link Context} carrying the deadline, so
+ * blocking stubs inherit it, and cancelling the context aborts every RPC
+ * still in flight; calls left behind are also interrupted and never waited
+ * for. Results keep the order of the inputs.
+ */
+public final class BoundedFanOut {
+
+    private static final ScheduledExecutorService DEADLINES = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fan-out-deadlines");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private BoundedFanOut() {
+    }
+
+    /**
+     * Outcome of a fan-out.
+     *
+     * @param results  one entry per input, in input order; {@code null} where
+     *                 the call failed or did not finish before the deadline
+     * @param failures number of {@code null} entries
+     */
+    public record Result<R>(List<R> results, int failures) {
+
+        public boolean partial() {
+            return failures > 0;
+        }
+    }
+
+    /**
+     * Runs unrelated calls side by side and returns their results in the
+     * given order. The first failure cancels the other calls and is rethrown,
+     * so the whole takes as long as the slowest call rather than the sum.
+     */
+    public static List<Object> all(Duration deadline, List<Supplier<?>> calls) {
+        return BoundedFanOut.<Supplier<?>, Object>run(calls, Supplier::get, calls.size(), deadline, true).results();
+    }
+
+    /**
+     * Applies {@code call} to every input, at most {@code maxConcurrency} at a
+     * time. With {@code failFast}, the first failure cancels the remaining
+     * calls and is rethrown, and running out of time throws
+     * DEADLINE_EXCEEDED. Otherwise failed and unfinished calls are reported
+     * as gaps in the result. {@code call} must not return {@code null}.
+     */
+    public static <T, R> Result<R> run(List<T> inputs, Function<? super T, ? extends R> call,
+            int maxConcurrency, Duration deadline, boolean failFast) {
+        int count = inputs.size();
+        AtomicReferenceArray<R> results = new AtomicReferenceArray<>(count);
+        long deadlineAt = System.nanoTime() + deadline.toNanos();
+        RuntimeException failure = null;
+
+        Context.CancellableContext context = Context.current()
+                .withDeadlineAfter(deadline.toNanos(), TimeUnit.NANOSECONDS, DEADLINES);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            ExecutorCompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+            try {
+                int submitted = 0;
+                int finished = 0;
+                while (finished < count) {
+                    while (submitted < count && submitted - finished < maxConcurrency) {
+                        int index = submitted++;
+                        T input = inputs.get(index);
+                        completion.submit(context.wrap(() -> {
+                            results.set(index, call.apply(input));
+                            return null;
+                        }));
+                    }
+
+                    long remaining = deadlineAt - System.nanoTime();
+                    Future<Void> next = remaining > 0 ? completion.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        if (failFast) {
+                            failure = Status.DEADLINE_EXCEEDED
+                                    .withDescription("Only " + finished + " of " + count + " calls finished in time")
+                                    .asRuntimeException();
+                        }
+                        break;
+                    }
+                    finished++;
+
+                    try {
+                        next.get();
+                    } catch (ExecutionException e) {
+                        if (failFast) {
+                            failure = e.getCause() instanceof RuntimeException runtime
+                                    ? runtime
+                                    : new IllegalStateException(e.getCause());
+                            break;
+                        }
+                    }
+                }
+            } finally {
+                // Abort whatever is still running; nothing waits for it
+                context.cancel(null);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Status.CANCELLED.withDescription("Interrupted").withCause(e).asRuntimeException();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        List<R> ordered = new ArrayList<>(count);
+        int failures = 0;
+        for (int i = 0; i < count; i++) {
+            R result = results.get(i);
+            if (result == null) {
+                failures++;
+            }
+            ordered.add(result);
+        }
+        return new Result<>(ordered, failures);
+    }
+}
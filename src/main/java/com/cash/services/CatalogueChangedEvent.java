@@ -0,0 +1,10 @@
+package com.cash.services;
+
+/**
+ * Published by {@link CatalogueService} after the router changes a catalogue
+ * item, so router-side views of the catalogue can refresh.
+ *
+ * @param itemId the created or deactivated item
+ */
+public record CatalogueChangedEvent(int itemId) {
+}
@@ -0,0 +1,263 @@
+package com.cash.services;
+
+import com.cash.grpc.catalogue.ItemResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serves catalogue keyword search from an in-memory trigram index built from
+ * the {@link CatalogueSnapshot}.
+ *
+ * <p>
+ * Matching mirrors the catalogue-service: a case-insensitive substring match
+ * of the keyword against the item title (and optionally the description).
+ * The index only narrows the candidates; every hit is confirmed with a plain
+ * {@code contains} check, so results never depend on how text was
+ * tokenized. The index is updated incrementally from each new snapshot and
+ * search falls back to the SearchItems RPC while it is warming up or when
+ * the snapshot it was built from is too old.
+ */
+@Slf4j
+@Component
+public class CatalogueSearchIndex {
+
+    private final CatalogueService catalogueService;
+    private final boolean enabled;
+    private final boolean matchDescription;
+    private final long maxStalenessMillis;
+    private final Counter localSearches;
+    private final Counter remoteSearches;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Each indexed item version occupies a slot; replaced or removed items leave dead slots behind
+    private final List<Entry> slots = new ArrayList<>();
+    private final Map<Integer, Integer> slotById = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private int deadSlots;
+    private long indexedAt = -1;
+
+    public CatalogueSearchIndex(
+            CatalogueService catalogueService,
+            @Value("${catalogue.search.local-enabled:true}") boolean enabled,
+            @Value("${catalogue.search.match-description:false}") boolean matchDescription,
+            @Value("${catalogue.search.max-staleness:60s}") Duration maxStaleness,
+            MeterRegistry meterRegistry) {
+        this.catalogueService = catalogueService;
+        this.enabled = enabled;
+        this.matchDescription = matchDescription;
+        this.maxStalenessMillis = maxStaleness.toMillis();
+        this.localSearches = meterRegistry.counter("catalogue.search", "source", "local");
+        this.remoteSearches = meterRegistry.counter("catalogue.search", "source", "remote");
+    }
+
+    /**
+     * Returns the items matching the keyword, locally when the index is fresh
+     * and through the catalogue-service otherwise.
+     */
+    public List<ItemResponse> search(String keyword) {
+        List<ItemResponse> local = searchLocally(keyword);
+        if (local != null) {
+            localSearches.increment();
+            return local;
+        }
+        remoteSearches.increment();
+        return catalogueService.searchItems(keyword).getItemsList();
+    }
+
+    /**
+     * Applies the difference between the indexed items and a new snapshot.
+     */
+    @EventListener
+    public void onSnapshotRefreshed(CatalogueSnapshot.Refreshed event) {
+        if (!enabled) {
+            return;
+        }
+        CatalogueSnapshot.Snapshot snapshot = event.snapshot();
+        lock.writeLock().lock();
+        try {
+            apply(snapshot.items());
+            indexedAt = snapshot.builtAt();
+        } catch (RuntimeException e) {
+            // Leave the index marked stale so searches go to the catalogue-service
+            log.warn("Failed to update catalogue search index", e);
+            indexedAt = -1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<ItemResponse> searchLocally(String keyword) {
+        if (!enabled) {
+            return null;
+        }
+        String needle = keyword.toLowerCase(Locale.ROOT);
+
+        lock.readLock().lock();
+        try {
+            if (indexedAt < 0 || System.currentTimeMillis() - indexedAt > maxStalenessMillis) {
+                return null;
+            }
+
+            List<Entry> matches = new ArrayList<>();
+            if (needle.length() < 3) {
+                for (Entry entry : slots) {
+                    if (entry != null && entry.matches(needle)) {
+                        matches.add(entry);
+                    }
+                }
+            } else {
+                Postings candidates = smallestPostings(needle);
+                if (candidates == null) {
+                    return List.of();
+                }
+                for (int i = 0; i < candidates.size; i++) {
+                    Entry entry = slots.get(candidates.slots[i]);
+                    if (entry != null && entry.matches(needle)) {
+                        matches.add(entry);
+                    }
+                }
+            }
+
+            matches.sort(Comparator.comparingInt(Entry::position));
+            List<ItemResponse> result = new ArrayList<>(matches.size());
+            for (Entry entry : matches) {
+                result.add(entry.item());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Postings smallestPostings(String needle) {
+        Postings smallest = null;
+        for (int i = 0; i + 3 <= needle.length(); i++) {
+            Postings list = postings.get(trigram(needle, i));
+            if (list == null) {
+                // some trigram of the keyword occurs nowhere, so nothing can match
+                return null;
+            }
+            if (smallest == null || list.size < smallest.size) {
+                smallest = list;
+            }
+        }
+        return smallest;
+    }
+
+    private void apply(List<ItemResponse> items) {
+        Set<Integer> seen = new HashSet<>();
+        for (int position = 0; position < items.size(); position++) {
+            ItemResponse item = items.get(position);
+            seen.add(item.getId());
+
+            String text = searchableText(item);
+            Integer slot = slotById.get(item.getId());
+            if (slot != null && slots.get(slot).text().equals(text)) {
+                // Same searchable text: keep the postings, refresh the item and its order
+                slots.set(slot, new Entry(item, text, position));
+                continue;
+            }
+            if (slot != null) {
+                kill(slot);
+            }
+            add(item, text, position);
+        }
+
+        for (Integer id : new ArrayList<>(slotById.keySet())) {
+            if (!seen.contains(id)) {
+                kill(slotById.remove(id));
+            }
+        }
+
+        if (deadSlots > slots.size() / 2) {
+            compact();
+        }
+    }
+
+    private void add(ItemResponse item, String text, int position) {
+        int slot = slots.size();
+        slots.add(new Entry(item, text, position));
+        slotById.put(item.getId(), slot);
+
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(trigram(text, i));
+        }
+        for (Long gram : grams) {
+            postings.computeIfAbsent(gram, g -> new Postings()).add(slot);
+        }
+    }
+
+    private void kill(int slot) {
+        slots.set(slot, null);
+        deadSlots++;
+    }
+
+    private void compact() {
+        List<Entry> live = new ArrayList<>();
+        for (Entry entry : slots) {
+            if (entry != null) {
+                live.add(entry);
+            }
+        }
+        slots.clear();
+        slotById.clear();
+        postings.clear();
+        deadSlots = 0;
+        for (Entry entry : live) {
+            add(entry.item(), entry.text(), entry.position());
+        }
+    }
+
+    private String searchableText(ItemResponse item) {
+        String title = item.getTitle().toLowerCase(Locale.ROOT);
+        if (!matchDescription) {
+            return title;
+        }
+        // \u0000 keeps a match from spanning the end of the title and the start of the description
+        return title + '\u0000' + item.getDescription().toLowerCase(Locale.ROOT);
+    }
+
+    private static long trigram(String text, int at) {
+        return ((long) text.charAt(at) << 32) | ((long) text.charAt(at + 1) << 16) | text.charAt(at + 2);
+    }
+
+    private record Entry(ItemResponse item, String text, int position) {
+
+        boolean matches(String needle) {
+            return text.contains(needle);
+        }
+    }
+
+    /**
+     * Growable list of slot numbers for one trigram.
+     */
+    private static final class Postings {
+
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+}
@@ -2,7 +2,20 @@ package com.cash.services;
 
 
 import com.cash.grpc.catalogue.*;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
 import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -11,33 +24,139 @@ public class CatalogueService {
     @GrpcClient("catalogue-service")
     private CatalogueServiceGrpc.CatalogueServiceBlockingStub blockingStub;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Full items change during the auction (price, active flag), so they are only kept briefly.
+    // The immutable parts are kept much longer for callers that only need those.
+    // Keys are boxed because Caffeine only takes object keys; ids up to 127 come from the Integer
+    // cache, and a larger one costs a 16-byte allocation per lookup, which is small next to the gRPC
+    // call it saves. IntIntTtlMap avoids boxing but only maps ints to ints, so it cannot hold these.
+    // A load that started before an item was deactivated is not stored after it
+    private final EpochGuardedCache<Integer, ItemResponse> items;
+    private final Cache<Integer, ItemFacts> facts;
+    private final SingleFlight<Integer, ItemResponse> itemLoads = new SingleFlight<>();
+
+    public CatalogueService(
+            ApplicationEventPublisher eventPublisher,
+            @Value("${catalogue.item-cache.ttl:5s}") Duration itemTtl,
+            @Value("${catalogue.item-cache.facts-ttl:24h}") Duration factsTtl,
+            @Value("${catalogue.item-cache.max-size:10000}") long maxSize,
+            MeterRegistry meterRegistry) {
+        this.eventPublisher = eventPublisher;
+        Cache<Integer, ItemResponse> itemCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(itemTtl)
+                .recordStats()
+                .build();
+        this.items = new EpochGuardedCache<>(itemCache, Integer::intValue);
+        this.facts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(factsTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, itemCache, "catalogue.items");
+        CaffeineCacheMetrics.monitor(meterRegistry, facts, "catalogue.item-facts");
+    }
+
     public ItemList getAllItems() {
         return blockingStub.getAllItems(Empty.newBuilder().build());
     }
 
+    /**
+     * Passes every catalogue item to the consumer as it arrives over
+     * StreamAllItems, without collecting them first. Falls back to
+     * GetAllItems against a catalogue-service that does not implement the
+     * stream yet. If the consumer throws, the stream is cancelled.
+     */
+    public void streamAllItems(Consumer<ItemResponse> consumer) {
+        Context.CancellableContext context = Context.current().withCancellation();
+        try {
+            context.run(() -> {
+                Iterator<ItemResponse> stream = blockingStub.streamAllItems(Empty.newBuilder().build());
+                boolean received = false;
+                try {
+                    while (stream.hasNext()) {
+                        received = true;
+                        consumer.accept(stream.next());
+                    }
+                } catch (StatusRuntimeException e) {
+                    if (received || e.getStatus().getCode() != Status.Code.UNIMPLEMENTED) {
+                        throw e;
+                    }
+                    getAllItems().getItemsList().forEach(consumer);
+                }
+            });
+        } finally {
+            context.cancel(null);
+        }
+    }
+
     public ItemList searchItems(String keyword) {
         return blockingStub.searchItems(SearchRequest.newBuilder().setKeyword(keyword).build());
     }
 
     public ItemResponse createItem(CreateItemRequest request) {
-        return blockingStub.createItem(request);
+        ItemResponse created = blockingStub.createItem(request);
+        remember(created, items.stamp(created.getId()));
+        eventPublisher.publishEvent(new CatalogueChangedEvent(created.getId()));
+        return created;
     }
+
+    /**
+     * Returns the item, served from a short-lived cache. Concurrent misses for
+     * the same id share one GetItem call.
+     */
     public ItemResponse getItem(int id) {
-        GetItemRequest request = GetItemRequest.newBuilder()
-            .setId(id)
-            .build();
-     return blockingStub.getItem(request);
+        ItemResponse cached = items.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Stamped inside the load, so callers joining it late do not vouch for an older answer
+        return itemLoads.execute(id, () -> {
+            long stamp = items.stamp(id);
+            ItemResponse item = blockingStub.getItem(GetItemRequest.newBuilder()
+                    .setId(id)
+                    .build());
+            remember(item, stamp);
+            return item;
+        });
     }
-    
-    public DeactivateItemResponse deactivateItem(int id) {
-    DeactivateItemRequest request = DeactivateItemRequest.newBuilder()
-            .setId(id)
-            .build();
 
-    return blockingStub.deactivateItem(request);
-}
+    /**
+     * Returns only the fields of an item that never change, cached long-term.
+     * Prefer this over {@link #getItem(int)} when price and state are not
+     * needed.
+     */
+    public ItemFacts getItemFacts(int id) {
+        ItemFacts cached = facts.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        return ItemFacts.of(getItem(id));
+    }
 
-    
-    
+    public DeactivateItemResponse deactivateItem(int id) {
+        DeactivateItemRequest request = DeactivateItemRequest.newBuilder()
+                .setId(id)
+                .build();
 
+        DeactivateItemResponse response = blockingStub.deactivateItem(request);
+        items.evict(id, List.of(id));
+        eventPublisher.publishEvent(new CatalogueChangedEvent(id));
+        return response;
+    }
+
+    /**
+     * Caches the item, unless it was deactivated since {@code stamp} was
+     * taken. Its immutable facts are cached either way.
+     */
+    private void remember(ItemResponse item, long stamp) {
+        // id 0 is the catalogue-service's "not found" answer; never cache it
+        if (item.getId() == 0) {
+            return;
+        }
+        facts.asMap().putIfAbsent(item.getId(), ItemFacts.of(item));
+        items.putIfNotEvicted(item.getId(), item, stamp);
+    }
 }
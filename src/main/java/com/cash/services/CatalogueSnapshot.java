@@ -0,0 +1,192 @@
+package com.cash.services;
+
+import com.cash.grpc.catalogue.ItemResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Router-side copy of the full catalogue listing.
+ *
+ * <p>
+ * Readers get the current immutable {@link Snapshot} through a volatile read
+ * and never wait on a lock. The snapshot is rebuilt in the background on a
+ * schedule, ahead of time when a reader notices it is getting old, and after
+ * the router creates or deactivates an item. Only when it is older than the
+ * maximum staleness (or missing) does a reader wait for a rebuild; concurrent
+ * rebuilds are coalesced into one GetAllItems call. Each new snapshot is
+ * announced with a {@link Refreshed} event for views derived from it.
+ */
+@Slf4j
+@Component
+public class CatalogueSnapshot {
+
+    /**
+     * An immutable view of the catalogue at a point in time.
+     *
+     * @param items      items in the order returned by the catalogue-service
+     * @param itemsById  the same items ordered by id, for paging
+     * @param builtAt    wall-clock time the snapshot was taken, in millis
+     * @param buildNanos how long fetching and building it took
+     */
+    public record Snapshot(List<ItemResponse> items, List<ItemResponse> itemsById, long builtAt, long buildNanos) {
+
+        static Snapshot of(List<ItemResponse> items, long builtAt, long buildNanos) {
+            List<ItemResponse> byId = new ArrayList<>(items);
+            byId.sort(Comparator.comparingInt(ItemResponse::getId));
+            return new Snapshot(List.copyOf(items), List.copyOf(byId), builtAt, buildNanos);
+        }
+
+        public long ageMillis() {
+            return System.currentTimeMillis() - builtAt;
+        }
+
+        /**
+         * Returns up to {@code limit} items with an id greater than
+         * {@code afterId}, in id order. Because the position is an id rather
+         * than an offset, paging stays consistent across snapshot refreshes:
+         * items added or removed in between never shift later pages.
+         */
+        public List<ItemResponse> page(int afterId, int limit) {
+            int low = 0;
+            int high = itemsById.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (itemsById.get(mid).getId() <= afterId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return itemsById.subList(low, Math.min(itemsById.size(), low + limit));
+        }
+    }
+
+    /**
+     * Published after a new snapshot has been installed.
+     */
+    public record Refreshed(Snapshot snapshot) {
+    }
+
+    private final CatalogueService catalogueService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long refreshAheadMillis;
+    private final long maxStalenessMillis;
+    private final SingleFlight<Boolean, Snapshot> rebuilds = new SingleFlight<>();
+    private final AtomicBoolean backgroundRefresh = new AtomicBoolean();
+    private final Timer buildTimer;
+
+    private volatile Snapshot current;
+
+    public CatalogueSnapshot(
+            CatalogueService catalogueService,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${catalogue.snapshot.refresh-ahead:10s}") Duration refreshAhead,
+            @Value("${catalogue.snapshot.max-staleness:60s}") Duration maxStaleness,
+            MeterRegistry meterRegistry) {
+        this.catalogueService = catalogueService;
+        this.eventPublisher = eventPublisher;
+        this.refreshAheadMillis = refreshAhead.toMillis();
+        this.maxStalenessMillis = maxStaleness.toMillis();
+        this.buildTimer = Timer.builder("catalogue.snapshot.build")
+                .description("Time to fetch and build a catalogue snapshot")
+                .register(meterRegistry);
+        Gauge.builder("catalogue.snapshot.age", this, s -> s.current == null ? Double.NaN : s.current.ageMillis() / 1000.0)
+                .description("Age of the catalogue snapshot in seconds")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("catalogue.snapshot.items", this, s -> s.current == null ? 0 : s.current.items().size())
+                .description("Items in the catalogue snapshot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns a snapshot no older than the configured maximum staleness,
+     * rebuilding it first if necessary. If the rebuild fails and an older
+     * snapshot exists, the older one is returned.
+     */
+    public Snapshot get() {
+        Snapshot snapshot = current;
+        if (snapshot == null) {
+            return rebuild();
+        }
+
+        long age = snapshot.ageMillis();
+        if (age > maxStalenessMillis) {
+            try {
+                return rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Catalogue snapshot rebuild failed, serving snapshot aged {} ms", age, e);
+                return snapshot;
+            }
+        }
+        if (age > refreshAheadMillis) {
+            refreshInBackground();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the current snapshot without triggering any rebuild, or
+     * {@code null} before the first one has been built.
+     */
+    public Snapshot peek() {
+        return current;
+    }
+
+    @Scheduled(fixedDelayString = "${catalogue.snapshot.refresh-interval:PT30S}")
+    public void scheduledRefresh() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Scheduled catalogue snapshot refresh failed: {}", e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onCatalogueChanged(CatalogueChangedEvent event) {
+        refreshInBackground();
+    }
+
+    private void refreshInBackground() {
+        if (!backgroundRefresh.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("catalogue-snapshot-refresh").start(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Background catalogue snapshot refresh failed: {}", e.getMessage());
+            } finally {
+                backgroundRefresh.set(false);
+            }
+        });
+    }
+
+    private Snapshot rebuild() {
+        return rebuilds.execute(Boolean.TRUE, () -> {
+            long start = System.nanoTime();
+            // Streamed so the catalogue is never one message, on either side or on the wire
+            List<ItemResponse> items = new ArrayList<>();
+            catalogueService.streamAllItems(items::add);
+            long buildNanos = System.nanoTime() - start;
+            buildTimer.record(Duration.ofNanos(buildNanos));
+
+            Snapshot snapshot = Snapshot.of(items, System.currentTimeMillis(), buildNanos);
+            current = snapshot;
+            eventPublisher.publishEvent(new Refreshed(snapshot));
+            return snapshot;
+        });
+    }
+}
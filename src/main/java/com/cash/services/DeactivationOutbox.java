@@ -0,0 +1,329 @@
+package com.cash.services;
+
+import com.cash.grpc.catalogue.DeactivateItemResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Deactivates paid items in the catalogue-service in the background, so
+ * checkout does not wait for it and a catalogue-service outage only delays
+ * it.
+ *
+ * <p>
+ * Each item is first written to an append-only journal and flushed to disk,
+ * and only then handed to the dispatcher thread; a completed deactivation is
+ * journalled too. On startup the journal is replayed, so items the router
+ * had not finished with before a restart are picked up again. The
+ * dispatcher sends due items in batches, several at a time, journals the
+ * whole batch's completions in one write, and retries failures with
+ * exponential backoff until they succeed. The journal is rewritten with
+ * only the pending items once it has grown past a threshold.
+ *
+ * <p>
+ * Journal lines are {@code +<itemId>} when an item is queued and
+ * {@code -<itemId>} when it is done. A line cut short by a crash is
+ * ignored.
+ */
+@Slf4j
+@Component
+public class DeactivationOutbox {
+
+    private static final String JOURNAL = "deactivations.log";
+
+    private final CatalogueService catalogueService;
+    private final Path journalPath;
+    private final int batchSize;
+    private final int maxConcurrency;
+    private final Duration batchDeadline;
+    private final long retryInitialMillis;
+    private final long retryMaxMillis;
+    private final long compactBytes;
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private final Object journalLock = new Object();
+    private final Object signal = new Object();
+    private final Counter deactivated;
+    private final Counter retried;
+    private volatile Thread dispatcher;
+    private FileChannel journal;
+    private boolean kicked;
+    private volatile boolean closed;
+
+    /** Queued item with the time of its next attempt. */
+    private static final class Pending {
+        volatile int attempts;
+        volatile long dueMillis;
+    }
+
+    public DeactivationOutbox(
+            CatalogueService catalogueService,
+            @Value("${payment.outbox.dir:data/outbox}") Path dir,
+            @Value("${payment.outbox.batch-size:50}") int batchSize,
+            @Value("${payment.outbox.max-concurrency:8}") int maxConcurrency,
+            @Value("${payment.outbox.batch-deadline:10s}") Duration batchDeadline,
+            @Value("${payment.outbox.retry-initial:1s}") Duration retryInitial,
+            @Value("${payment.outbox.retry-max:5m}") Duration retryMax,
+            @Value("${payment.outbox.compact-threshold:1MB}") DataSize compactThreshold,
+            MeterRegistry meterRegistry) throws IOException {
+        this.catalogueService = catalogueService;
+        this.batchSize = batchSize;
+        this.maxConcurrency = maxConcurrency;
+        this.batchDeadline = batchDeadline;
+        this.retryInitialMillis = retryInitial.toMillis();
+        this.retryMaxMillis = retryMax.toMillis();
+        this.compactBytes = compactThreshold.toBytes();
+
+        Files.createDirectories(dir);
+        this.journalPath = dir.resolve(JOURNAL);
+        replay();
+        this.journal = openJournal();
+        if (!pending.isEmpty()) {
+            log.info("Resuming {} item deactivation(s) left from a previous run", pending.size());
+        }
+
+        this.deactivated = Counter.builder("payment.outbox.deactivated")
+                .description("Paid items deactivated in the catalogue-service from the outbox")
+                .register(meterRegistry);
+        this.retried = Counter.builder("payment.outbox.retries")
+                .description("Item deactivations that failed and were scheduled again")
+                .register(meterRegistry);
+        Gauge.builder("payment.outbox.pending", pending, Map::size)
+                .description("Paid items waiting to be deactivated")
+                .register(meterRegistry);
+    }
+
+    // Items left from a previous run are only sent once the gRPC clients and stand-ins are up
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (dispatcher == null) {
+            dispatcher = Thread.ofPlatform().daemon().name("deactivation-outbox").start(this::dispatchLoop);
+        }
+    }
+
+    /**
+     * Durably queues the item for deactivation and returns; the dispatcher
+     * takes it from there.
+     *
+     * @throws UncheckedIOException if the item could not be written to the
+     *                              journal
+     */
+    public void enqueue(int itemId) {
+        synchronized (journalLock) {
+            try {
+                append("+" + itemId + "\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not journal deactivation of item " + itemId, e);
+            }
+            pending.computeIfAbsent(itemId, id -> new Pending());
+        }
+        kick();
+    }
+
+    /** Number of items not deactivated yet. */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        closed = true;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        synchronized (journalLock) {
+            journal.close();
+        }
+    }
+
+    private void kick() {
+        synchronized (signal) {
+            kicked = true;
+            signal.notifyAll();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (!closed) {
+            long waitMillis;
+            try {
+                waitMillis = dispatch();
+            } catch (RuntimeException e) {
+                log.warn("Deactivation outbox dispatch failed: {}", e.getMessage());
+                waitMillis = retryInitialMillis;
+            }
+            synchronized (signal) {
+                try {
+                    if (!kicked && waitMillis > 0) {
+                        signal.wait(waitMillis);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                kicked = false;
+            }
+        }
+    }
+
+    /**
+     * Sends one batch of due items.
+     *
+     * @return milliseconds until the next item falls due, or 0 after
+     *         sending a batch, to look again straight away
+     */
+    private long dispatch() {
+        long now = System.currentTimeMillis();
+        List<Integer> due = new ArrayList<>();
+        long nextDue = now + retryMaxMillis;
+        for (Map.Entry<Integer, Pending> entry : pending.entrySet()) {
+            long dueMillis = entry.getValue().dueMillis;
+            if (dueMillis > now) {
+                nextDue = Math.min(nextDue, dueMillis);
+            } else if (due.size() < batchSize) {
+                due.add(entry.getKey());
+            }
+        }
+        if (due.isEmpty()) {
+            return nextDue - now;
+        }
+
+        BoundedFanOut.Result<Boolean> result = BoundedFanOut.run(due, this::deactivate,
+                maxConcurrency, batchDeadline, false);
+
+        StringBuilder done = new StringBuilder();
+        List<Integer> completed = new ArrayList<>();
+        for (int i = 0; i < due.size(); i++) {
+            int itemId = due.get(i);
+            if (result.results().get(i) != null) {
+                done.append('-').append(itemId).append('\n');
+                completed.add(itemId);
+            } else {
+                scheduleRetry(itemId);
+            }
+        }
+
+        if (!completed.isEmpty()) {
+            synchronized (journalLock) {
+                try {
+                    append(done.toString());
+                    completed.forEach(pending::remove);
+                    compactIfLarge();
+                } catch (IOException e) {
+                    // Still pending in the journal, so they are deactivated again after a restart; that is harmless
+                    log.warn("Could not journal {} completed deactivation(s): {}", completed.size(), e.getMessage());
+                    completed.forEach(pending::remove);
+                }
+            }
+            deactivated.increment(completed.size());
+        }
+        return 0;
+    }
+
+    // A rejection by the catalogue-service is final and only logged, as before; transport errors are retried
+    private Boolean deactivate(int itemId) {
+        DeactivateItemResponse response = catalogueService.deactivateItem(itemId);
+        if (response.getSuccess()) {
+            log.info("Item {} deactivated after successful payment. Message: {}", itemId, response.getMessage());
+        } else {
+            log.warn("Catalogue-service did not deactivate paid item {}: {}", itemId, response.getMessage());
+        }
+        return Boolean.TRUE;
+    }
+
+    private void scheduleRetry(int itemId) {
+        Pending entry = pending.get(itemId);
+        if (entry == null) {
+            return;
+        }
+        int attempts = ++entry.attempts;
+        long backoff = Math.min(retryMaxMillis, retryInitialMillis << Math.min(attempts - 1, 20));
+        entry.dueMillis = System.currentTimeMillis() + backoff;
+        retried.increment();
+        log.warn("Deactivation of paid item {} failed (attempt {}); retrying in {} ms", itemId, attempts, backoff);
+    }
+
+    private void replay() throws IOException {
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+        for (String line : Files.readAllLines(journalPath, StandardCharsets.US_ASCII)) {
+            if (line.length() < 2) {
+                continue;
+            }
+            int itemId;
+            try {
+                itemId = Integer.parseInt(line.substring(1));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (line.charAt(0) == '+') {
+                pending.computeIfAbsent(itemId, id -> new Pending());
+            } else if (line.charAt(0) == '-') {
+                pending.remove(itemId);
+            }
+        }
+    }
+
+    private FileChannel openJournal() throws IOException {
+        FileChannel channel = FileChannel.open(journalPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Start on a fresh line in case the last write was cut short
+        if (channel.size() > 0) {
+            channel.write(ByteBuffer.wrap(new byte[] {'\n'}));
+        }
+        return channel;
+    }
+
+    // Callers hold journalLock
+    private void append(String lines) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.US_ASCII));
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        journal.force(false);
+    }
+
+    // Callers hold journalLock, so no item can be queued between the snapshot and the swap
+    private void compactIfLarge() throws IOException {
+        if (journal.size() < compactBytes) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        pending.keySet().forEach(itemId -> lines.append('+').append(itemId).append('\n'));
+        Path compacted = journalPath.resolveSibling(JOURNAL + ".tmp");
+        try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.US_ASCII));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        journal.close();
+        try {
+            Files.move(compacted, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            journal = openJournal();
+        }
+    }
+}
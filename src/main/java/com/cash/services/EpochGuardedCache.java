@@ -0,0 +1,67 @@
+package com.cash.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToIntFunction;
+
+/**
+ * A cache whose entries are evicted by group (an item or user id), where a
+ * value loaded before an eviction must not be stored after it.
+ *
+ * <p>
+ * Each group maps to one of a fixed set of epoch stripes, bumped on every
+ * eviction. A loader takes a {@link #stamp} before it starts and passes it
+ * to {@link #putIfNotEvicted}, which stores nothing if the stripe has moved
+ * since. Groups sharing a stripe only cost each other the occasional
+ * skipped put.
+ */
+final class EpochGuardedCache<K, V> {
+
+    private final Cache<K, V> cache;
+    private final ToIntFunction<K> group;
+    private final AtomicLongArray epochs = new AtomicLongArray(64);
+
+    /**
+     * @param group the group of a key; evicting the group evicts the key
+     */
+    EpochGuardedCache(Cache<K, V> cache, ToIntFunction<K> group) {
+        this.cache = cache;
+        this.group = group;
+    }
+
+    V getIfPresent(K key) {
+        return cache.getIfPresent(key);
+    }
+
+    /** Marks the start of a load for the group. */
+    long stamp(int group) {
+        return epochs.get(stripe(group));
+    }
+
+    /**
+     * Stores the value unless its group was evicted since {@code stamp} was
+     * taken.
+     */
+    void putIfNotEvicted(K key, V value, long stamp) {
+        int stripe = stripe(group.applyAsInt(key));
+        if (epochs.get(stripe) != stamp) {
+            return;
+        }
+        cache.put(key, value);
+        // An eviction between the check and the put would otherwise be lost
+        if (epochs.get(stripe) != stamp) {
+            cache.asMap().remove(key, value);
+        }
+    }
+
+    /** Drops the given keys of the group and fails loads of it still in flight. */
+    void evict(int group, Collection<K> keys) {
+        epochs.incrementAndGet(stripe(group));
+        cache.invalidateAll(keys);
+    }
+
+    private int stripe(int group) {
+        return Math.floorMod(group, epochs.length());
+    }
+}
@@ -0,0 +1,161 @@
+package com.cash.services;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hashed timer wheel for large numbers of one-shot timers that only need
+ * tick precision.
+ *
+ * <p>
+ * Scheduling and cancelling are constant time: a timer goes into the slot
+ * its deadline hashes to, with the number of full turns of the wheel still
+ * to wait. One daemon thread advances the wheel every tick and hands expired
+ * tasks to the executor, so a slow task never delays the wheel. New timers
+ * are queued and only placed by the wheel thread, which therefore owns the
+ * slots without locking.
+ */
+@Slf4j
+final class HashedTimerWheel implements AutoCloseable {
+
+    /** A scheduled task that has not run yet. */
+    interface Timeout {
+
+        /** @return {@code false} if the task already ran or was cancelled */
+        boolean cancel();
+    }
+
+    private final long tickNanos;
+    private final int mask;
+    private final List<List<Entry>> slots;
+    private final Queue<Entry> added = new ConcurrentLinkedQueue<>();
+    private final Executor executor;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread worker;
+    private final long startNanos = System.nanoTime();
+    private volatile boolean closed;
+
+    private final class Entry implements Timeout {
+        final Runnable task;
+        final long deadlineNanos;
+        final AtomicBoolean done = new AtomicBoolean();
+        long rounds;
+
+        Entry(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!done.compareAndSet(false, true)) {
+                return false;
+            }
+            pending.decrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * @param tick      precision of the timers
+     * @param wheelSize number of slots, rounded up to a power of two; one turn
+     *                  of the wheel spans {@code tick * wheelSize}
+     */
+    HashedTimerWheel(String name, Duration tick, int wheelSize, Executor executor) {
+        this.tickNanos = tick.toNanos();
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.executor = executor;
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Runs the task at the given wall-clock time, or on the next tick if that
+     * time has passed.
+     */
+    Timeout schedule(Runnable task, long atEpochMillis) {
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(atEpochMillis - System.currentTimeMillis());
+        Entry entry = new Entry(task, System.nanoTime() + Math.max(0, delayNanos));
+        pending.incrementAndGet();
+        added.add(entry);
+        return entry;
+    }
+
+    /** Number of timers scheduled and not yet run or cancelled. */
+    int pending() {
+        return pending.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+    }
+
+    private void run() {
+        long tick = 0;
+        while (!closed) {
+            long tickDeadline = startNanos + (tick + 1) * tickNanos;
+            long sleep;
+            while ((sleep = tickDeadline - System.nanoTime()) > 0 && !closed) {
+                LockSupport.parkNanos(this, sleep);
+            }
+            if (closed) {
+                return;
+            }
+            placeAdded(tick);
+            expire(slots.get((int) (tick & mask)), System.nanoTime());
+            tick++;
+        }
+    }
+
+    private void placeAdded(long currentTick) {
+        Entry entry;
+        while ((entry = added.poll()) != null) {
+            if (entry.done.get()) {
+                continue;
+            }
+            long ticks = Math.max(currentTick, (entry.deadlineNanos - startNanos) / tickNanos);
+            entry.rounds = (ticks - currentTick) / slots.size();
+            slots.get((int) (ticks & mask)).add(entry);
+        }
+    }
+
+    private void expire(List<Entry> slot, long now) {
+        Iterator<Entry> entries = slot.iterator();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            if (entry.done.get()) {
+                entries.remove();
+            } else if (entry.rounds > 0) {
+                entry.rounds--;
+            } else if (entry.deadlineNanos <= now + tickNanos) {
+                entries.remove();
+                if (entry.done.compareAndSet(false, true)) {
+                    pending.decrementAndGet();
+                    try {
+                        executor.execute(entry.task);
+                    } catch (RuntimeException e) {
+                        log.warn("Could not start timer task: {}", e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+}
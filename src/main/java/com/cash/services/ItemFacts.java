@@ -0,0 +1,27 @@
+package com.cash.services;
+
+import com.cash.grpc.catalogue.ItemResponse;
+
+/**
+ * The parts of a catalogue item that never change once it has been created.
+ * Safe to cache for much longer than a full {@link ItemResponse}, whose price
+ * and active flag move during the auction.
+ */
+public record ItemFacts(
+        int id,
+        int sellerId,
+        int startingPrice,
+        String endTime,
+        int shippingCost,
+        int shippingTime) {
+
+    public static ItemFacts of(ItemResponse item) {
+        return new ItemFacts(
+                item.getId(),
+                item.getSellerId(),
+                item.getStartingPrice(),
+                item.getEndTime(),
+                item.getShippingCost(),
+                item.getShippingTime());
+    }
+}
@@ -0,0 +1,365 @@
+package com.cash.services;
+
+import com.cash.exceptions.ConflictException;
+import com.ecommerce.payment.grpc.PaymentResponse;
+import com.ecommerce.payment.grpc.ReceiptInfo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Remembers the outcome of payments made with an {@code Idempotency-Key},
+ * so a client retrying after a timeout is not charged twice.
+ *
+ * <p>
+ * Keys are scoped to the user. The first request with a key runs the
+ * payment; a duplicate arriving while it runs waits for it and gets the
+ * same answer, and one arriving later gets the stored answer without any
+ * gRPC calls. When the attempt fails before the payment-service is asked
+ * to charge, or the payment-service refuses the request outright, the key
+ * is released and a retry runs again. When the charge itself fails in a way
+ * that leaves its outcome open (a deadline, a dropped connection), the key
+ * is kept and duplicates are refused, since running the payment again could
+ * charge twice. Reusing a key for a different item or shipping type is
+ * refused.
+ *
+ * <p>
+ * Answers are kept for {@code payment.idempotency.ttl}. When
+ * {@code payment.idempotency.persist-dir} is set they are also appended to a
+ * journal there and reloaded on startup, so retries spanning a router
+ * restart are recognised too. The journal only keeps what a replayed answer
+ * needs (the payment's status, ids, amounts and date), never the name,
+ * address or messages of the receipt, so an answer replayed after a restart
+ * lacks those. The directory and journal are created readable by the
+ * router's user only, where the file system supports POSIX permissions.
+ */
+@Slf4j
+@Component
+public class PaymentIdempotencyStore {
+
+    private static final String JOURNAL = "idempotency.log";
+    // Stands in for the response of a payment whose outcome is unknown
+    private static final String UNKNOWN = "?";
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIR = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+
+    // The payment-service answered these without charging, so the payment can safely run again
+    private static final Set<Status.Code> REFUSALS = EnumSet.of(
+            Status.Code.INVALID_ARGUMENT, Status.Code.NOT_FOUND, Status.Code.PERMISSION_DENIED,
+            Status.Code.UNAUTHENTICATED, Status.Code.FAILED_PRECONDITION, Status.Code.OUT_OF_RANGE,
+            Status.Code.UNIMPLEMENTED, Status.Code.RESOURCE_EXHAUSTED);
+
+    private final Cache<String, Entry> entries;
+    private final long ttlMillis;
+    private final Duration waitTimeout;
+    private final Path journalPath;
+    private final long compactBytes;
+    private final Counter replayed;
+    private final Object journalLock = new Object();
+    private FileChannel journal;
+
+    /**
+     * A payment run or running under one key. {@code fingerprint} identifies
+     * the request the key was first used for; a {@code null} result means the
+     * payment's outcome is unknown.
+     */
+    private record Entry(String fingerprint, CompletableFuture<PaymentResponse> result, long expiresAtMillis) {
+    }
+
+    /**
+     * A payment that runs {@code charging} right before it asks the
+     * payment-service to charge the card.
+     */
+    @FunctionalInterface
+    public interface Payment {
+        PaymentResponse run(Runnable charging);
+    }
+
+    /**
+     * @param replayed whether the answer was stored by an earlier request
+     */
+    public record Outcome(PaymentResponse response, boolean replayed) {
+    }
+
+    public PaymentIdempotencyStore(
+            @Value("${payment.idempotency.ttl:24h}") Duration ttl,
+            @Value("${payment.idempotency.max-size:100000}") long maxSize,
+            @Value("${payment.idempotency.wait-timeout:30s}") Duration waitTimeout,
+            @Value("${payment.idempotency.persist-dir:}") String persistDir,
+            @Value("${payment.idempotency.compact-threshold:16MB}") DataSize compactThreshold,
+            MeterRegistry meterRegistry) throws IOException {
+        this.ttlMillis = ttl.toMillis();
+        this.waitTimeout = waitTimeout;
+        this.compactBytes = compactThreshold.toBytes();
+        // A running payment weighs nothing, so eviction never frees its key while it runs
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher((String key, Entry entry) -> entry.result().isDone() ? 1 : 0)
+                .expireAfter(Expiry.writing((String key, Entry entry) ->
+                        Duration.ofMillis(Math.max(0, entry.expiresAtMillis() - System.currentTimeMillis()))))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "payment.idempotency");
+        this.replayed = Counter.builder("payment.idempotency.replayed")
+                .description("Payment requests answered from an earlier request with the same Idempotency-Key")
+                .register(meterRegistry);
+
+        if (persistDir.isBlank()) {
+            this.journalPath = null;
+        } else {
+            Files.createDirectories(Path.of(persistDir), ownerOnly(OWNER_ONLY_DIR));
+            this.journalPath = Path.of(persistDir).resolve(JOURNAL);
+            replay();
+            synchronized (journalLock) {
+                compact();
+            }
+            log.info("Loaded {} stored payment outcome(s) for idempotent retries", entries.estimatedSize());
+        }
+    }
+
+    /**
+     * Runs {@code payment} unless a request with the same user and key has
+     * already run or is running it.
+     *
+     * @param fingerprint identifies the request, to refuse reuse of a key for
+     *                    a different one
+     * @throws ConflictException if the key was used for a different request,
+     *                           the first request is still running after
+     *                           {@code payment.idempotency.wait-timeout}, or
+     *                           its outcome is unknown
+     */
+    public Outcome execute(int userId, String key, String fingerprint, Payment payment) {
+        String id = userId + ":" + key;
+        Entry created = new Entry(fingerprint, new CompletableFuture<>(), System.currentTimeMillis() + ttlMillis);
+        Entry existing = entries.asMap().putIfAbsent(id, created);
+        if (existing != null) {
+            if (!existing.fingerprint().equals(fingerprint)) {
+                throw new ConflictException("Idempotency-Key was already used for a different payment request");
+            }
+            PaymentResponse response = await(existing);
+            replayed.increment();
+            return new Outcome(response, true);
+        }
+
+        AtomicBoolean charging = new AtomicBoolean();
+        PaymentResponse response;
+        try {
+            response = payment.run(() -> charging.set(true));
+        } catch (RuntimeException e) {
+            if (charging.get() && !refused(e)) {
+                // The card may have been charged; the key stays taken so a retry cannot charge it again
+                complete(id, created, null);
+                throw e;
+            }
+            // Nothing was charged, so the key is free for a retry; requests already waiting get the same error
+            entries.asMap().remove(id, created);
+            created.result().completeExceptionally(e);
+            throw e;
+        }
+        complete(id, created, response);
+        return new Outcome(response, false);
+    }
+
+    private static boolean refused(RuntimeException e) {
+        return e instanceof StatusRuntimeException grpc && REFUSALS.contains(grpc.getStatus().getCode());
+    }
+
+    // Replacing the entry with itself re-weighs it now that it is done
+    private void complete(String id, Entry entry, PaymentResponse response) {
+        entry.result().complete(response);
+        entries.asMap().replace(id, entry, entry);
+        persist(id, entry, response);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        synchronized (journalLock) {
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+
+    private PaymentResponse await(Entry entry) {
+        PaymentResponse response;
+        try {
+            response = entry.result().get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ConflictException("A payment with this Idempotency-Key is still being processed");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Status.CANCELLED.withDescription("Interrupted").withCause(e).asRuntimeException();
+        }
+        if (response == null) {
+            throw new ConflictException("A payment with this Idempotency-Key failed with an unknown outcome; "
+                    + "check the payment history before paying again");
+        }
+        return response;
+    }
+
+    // A stored answer that is not journalled still works until a restart, so a write failure is only logged
+    private void persist(String id, Entry entry, PaymentResponse response) {
+        if (journalPath == null) {
+            return;
+        }
+        synchronized (journalLock) {
+            try {
+                append(line(id, entry.fingerprint(), entry.expiresAtMillis(), response));
+                if (journal.size() >= compactBytes) {
+                    compact();
+                }
+            } catch (IOException e) {
+                log.warn("Could not persist payment outcome for idempotent retries: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Lines are "<expiresAtMillis> <id> <fingerprint> <response>", each field but the first base64url-encoded;
+    // the response is "?" when the outcome is unknown
+    private static String line(String id, String fingerprint, long expiresAtMillis, PaymentResponse response) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return expiresAtMillis
+                + " " + encoder.encodeToString(id.getBytes(StandardCharsets.UTF_8))
+                + " " + encoder.encodeToString(fingerprint.getBytes(StandardCharsets.UTF_8))
+                + " " + (response == null ? UNKNOWN : encoder.encodeToString(journalled(response).toByteArray()))
+                + "\n";
+    }
+
+    /**
+     * The part of a response that is written to the journal: enough to tell
+     * the client its payment went through and which one it was, without the
+     * buyer's name and address.
+     */
+    private static PaymentResponse journalled(PaymentResponse response) {
+        PaymentResponse.Builder kept = PaymentResponse.newBuilder()
+                .setSuccess(response.getSuccess())
+                .setPaymentId(response.getPaymentId())
+                .setTransactionDate(response.getTransactionDate());
+        if (response.hasReceiptInfo()) {
+            ReceiptInfo receipt = response.getReceiptInfo();
+            kept.setReceiptInfo(ReceiptInfo.newBuilder()
+                    .setReceiptId(receipt.getReceiptId())
+                    .setItemId(receipt.getItemId())
+                    .setItemCost(receipt.getItemCost())
+                    .setShippingCost(receipt.getShippingCost())
+                    .setHstAmount(receipt.getHstAmount())
+                    .setTotalPaid(receipt.getTotalPaid()));
+        }
+        return kept.build();
+    }
+
+    private static FileAttribute<?>[] ownerOnly(Set<PosixFilePermission> permissions) {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[0];
+        }
+        return new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(permissions)};
+    }
+
+    private void replay() throws IOException {
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        for (String line : Files.readAllLines(journalPath, StandardCharsets.US_ASCII)) {
+            String[] fields = line.split(" ");
+            if (fields.length != 4) {
+                continue;
+            }
+            try {
+                long expiresAtMillis = Long.parseLong(fields[0]);
+                if (expiresAtMillis <= now) {
+                    continue;
+                }
+                PaymentResponse response = fields[3].equals(UNKNOWN)
+                        ? null
+                        : PaymentResponse.parseFrom(decoder.decode(fields[3]));
+                entries.put(new String(decoder.decode(fields[1]), StandardCharsets.UTF_8),
+                        new Entry(new String(decoder.decode(fields[2]), StandardCharsets.UTF_8),
+                                CompletableFuture.completedFuture(response), expiresAtMillis));
+            } catch (IllegalArgumentException | InvalidProtocolBufferException e) {
+                // A line cut short by a crash; NumberFormatException is an IllegalArgumentException too
+            }
+        }
+    }
+
+    // Callers hold journalLock; rewrites the journal with only the stored outcomes that have not expired
+    private void compact() throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, Entry> stored : entries.asMap().entrySet()) {
+            CompletableFuture<PaymentResponse> result = stored.getValue().result();
+            if (result.isDone() && !result.isCompletedExceptionally()) {
+                lines.append(line(stored.getKey(), stored.getValue().fingerprint(),
+                        stored.getValue().expiresAtMillis(), result.join()));
+            }
+        }
+        // Deleted first so the file is created with owner-only permissions, which the move carries over
+        Path compacted = journalPath.resolveSibling(JOURNAL + ".tmp");
+        Files.deleteIfExists(compacted);
+        try (FileChannel channel = FileChannel.open(compacted, EnumSet.of(StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE), ownerOnly(OWNER_ONLY_FILE))) {
+            write(channel, lines.toString());
+            channel.force(true);
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        try {
+            Files.move(compacted, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            journal = FileChannel.open(journalPath, EnumSet.of(StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND), ownerOnly(OWNER_ONLY_FILE));
+        }
+    }
+
+    // Callers hold journalLock
+    private void append(String line) throws IOException {
+        write(journal, line);
+        journal.force(false);
+    }
+
+    private static void write(FileChannel channel, String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -1,6 +1,16 @@
 package com.cash.services;
 
+import com.cash.grpc.catalogue.ItemResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import com.ecommerce.payment.grpc.*;
@@ -13,6 +23,46 @@ public class PaymentService {
     @GrpcClient("payment-service")
     private PaymentServiceGrpc.PaymentServiceBlockingStub stub;
 
+    // Once an auction has ended nothing a quote depends on changes until the item is paid, so quotes
+    // are kept until it is and dropped then, here or (through the catalogue snapshot) on another
+    // instance; the size bound caps items that are never paid, and the TTL is a backstop should a
+    // quote be stored that was not final. A quote computed before an eviction is not stored after it
+    private final EpochGuardedCache<QuoteKey, TotalCostResponse> quotes;
+
+    private record QuoteKey(int itemId, ShippingType shippingType) {
+    }
+
+    // Users reopen the first page of their history far more than any other, and it only changes
+    // when they pay; the TTL bounds staleness from payments made through another router instance.
+    // A fetch that started before a user's page was invalidated is not stored
+    private final EpochGuardedCache<Integer, FirstPage> firstPages;
+
+    /** The first page of a user's history, fetched with the given size. */
+    private record FirstPage(int size, PaymentHistoryResponse response) {
+    }
+
+    public PaymentService(
+            @Value("${payment.quote-cache.max-size:10000}") long quoteCacheSize,
+            @Value("${payment.quote-cache.ttl:1h}") Duration quoteTtl,
+            @Value("${payment.history.first-page-cache.ttl:5m}") Duration firstPageTtl,
+            @Value("${payment.history.first-page-cache.max-size:10000}") long firstPageCacheSize,
+            MeterRegistry meterRegistry) {
+        Cache<QuoteKey, TotalCostResponse> quoteCache = Caffeine.newBuilder()
+                .maximumSize(quoteCacheSize)
+                .expireAfterWrite(quoteTtl)
+                .recordStats()
+                .build();
+        this.quotes = new EpochGuardedCache<>(quoteCache, QuoteKey::itemId);
+        Cache<Integer, FirstPage> firstPageCache = Caffeine.newBuilder()
+                .maximumSize(firstPageCacheSize)
+                .expireAfterWrite(firstPageTtl)
+                .recordStats()
+                .build();
+        this.firstPages = new EpochGuardedCache<>(firstPageCache, Integer::intValue);
+        CaffeineCacheMetrics.monitor(meterRegistry, quoteCache, "payment.quotes");
+        CaffeineCacheMetrics.monitor(meterRegistry, firstPageCache, "payment.history-first-pages");
+    }
+
     private PaymentServiceGrpc.PaymentServiceBlockingStub withDeadline() {
         return stub.withDeadline(Deadline.after(5, TimeUnit.SECONDS));
     }
@@ -33,6 +83,34 @@ public class PaymentService {
                 .setUserId(userId).setPage(page).setSize(size).build();
         return withDeadline().getPaymentHistory(req);
     }
+
+    /**
+     * Same as {@link #getHistory} for page 0, served from a per-user cache.
+     * A cached page fetched with a larger size answers smaller ones too.
+     */
+    public PaymentHistoryResponse getFirstHistoryPage(int userId, int size) {
+        FirstPage cached = firstPages.getIfPresent(userId);
+        if (cached != null && cached.size() >= size) {
+            if (cached.size() == size || cached.response().getPaymentsCount() <= size) {
+                return cached.response();
+            }
+            return cached.response().toBuilder()
+                    .clearPayments()
+                    .addAllPayments(cached.response().getPaymentsList().subList(0, size))
+                    .build();
+        }
+
+        long stamp = firstPages.stamp(userId);
+        PaymentHistoryResponse response = getHistory(userId, 0, size);
+        firstPages.putIfNotEvicted(userId, new FirstPage(size, response), stamp);
+        return response;
+    }
+
+    /** Drops the user's cached first page; call once they have made a payment. */
+    public void evictHistory(int userId) {
+        firstPages.evict(userId, List.of(userId));
+    }
+
     public TotalCostResponse calculateTotalCost(PaymentRequest request) throws StatusRuntimeException {
         return withDeadline().calculateTotalCost(request);
     }
@@ -61,6 +139,73 @@ public class PaymentService {
     }
 
 
+    /**
+     * @return the quote stored for the item and shipping type, or null
+     */
+    public TotalCostResponse cachedQuote(int itemId, ShippingType shippingType) {
+        return quotes.getIfPresent(new QuoteKey(itemId, shippingType));
+    }
+
+    /**
+     * Marks the start of a quote computation; pass the result to
+     * {@link #cacheQuote} so a quote overtaken by an eviction is not stored.
+     */
+    public long quoteStamp(int itemId) {
+        return quotes.stamp(itemId);
+    }
+
+    /**
+     * Stores a quote for an item whose winner is final; callers must not
+     * store one computed before that, as its price could still change.
+     * Nothing is stored if the item's quotes were evicted since
+     * {@code stamp} was taken.
+     */
+    public void cacheQuote(int itemId, ShippingType shippingType, TotalCostResponse quote, long stamp) {
+        quotes.putIfNotEvicted(new QuoteKey(itemId, shippingType), quote, stamp);
+    }
+
+    /** Drops the item's quotes for every shipping type. */
+    public void evictQuotes(int itemId) {
+        List<QuoteKey> keys = new ArrayList<>();
+        for (ShippingType type : ShippingType.values()) {
+            if (type != ShippingType.UNRECOGNIZED) {
+                keys.add(new QuoteKey(itemId, type));
+            }
+        }
+        quotes.evict(itemId, keys);
+    }
+
+    // Only published for items paid through this instance; see onSnapshotRefreshed for the rest
+    @EventListener
+    public void onCatalogueChanged(CatalogueChangedEvent event) {
+        evictQuotes(event.itemId());
+    }
+
+    /**
+     * Drops the quotes of items the catalogue no longer lists as active, which
+     * covers items paid through another router instance: the outbox there
+     * deactivates them, and every instance's snapshot picks that up within a
+     * refresh interval. Items with nothing cached are skipped so their epoch
+     * stripes are not bumped on every refresh.
+     */
+    @EventListener
+    public void onSnapshotRefreshed(CatalogueSnapshot.Refreshed event) {
+        for (ItemResponse item : event.snapshot().items()) {
+            if (!item.getActive() && hasQuote(item.getId())) {
+                evictQuotes(item.getId());
+            }
+        }
+    }
+
+    private boolean hasQuote(int itemId) {
+        for (ShippingType type : ShippingType.values()) {
+            if (type != ShippingType.UNRECOGNIZED && quotes.getIfPresent(new QuoteKey(itemId, type)) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static int nz(Integer v) { return v == null ? 0 : v; }
 
     private static ShippingType parseShippingType(String v) {
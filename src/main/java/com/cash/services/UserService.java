@@ -1,5 +1,7 @@
 package com.cash.services;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import com.cash.grpc.userservice.UserServiceGrpc;
@@ -11,6 +13,15 @@ public class UserService {
     @GrpcClient("user-service")
     private UserServiceGrpc.UserServiceBlockingStub userServiceStub;
 
+    // Parallel requests carrying the same JWT share one ValidateToken call
+    private final SingleFlight<String, ValidateTokenResponse> tokenValidations = new SingleFlight<>();
+
+    public UserService(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("auth.token-validation.coalesced", tokenValidations, SingleFlight::sharedCount)
+                .description("ValidateToken calls avoided by sharing an in-flight call")
+                .register(meterRegistry);
+    }
+
     public SignInResponse signIn(String username, String password) {
         SignInRequest request = SignInRequest.newBuilder()
                 .setUsername(username)
@@ -53,7 +64,7 @@ public class UserService {
         ValidateTokenRequest request = ValidateTokenRequest.newBuilder()
                 .setJwt(jwt)
                 .build();
-        return userServiceStub.validateToken(request);
+        return tokenValidations.execute(jwt, () -> userServiceStub.validateToken(request));
     }
 
     public GetUserResponse getUser(int userId) {
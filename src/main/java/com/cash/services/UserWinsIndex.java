@@ -0,0 +1,453 @@
+package com.cash.services;
+
+import com.cash.grpc.auctionservice.GetAuctionWinnerResponse;
+import com.cash.grpc.catalogue.ItemResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Router-side index from winning user to the auctions they won and have not
+ * paid for yet, so a user's wins are a map lookup instead of one
+ * GetAuctionWinner call per catalogue item.
+ *
+ * <p>
+ * Active items come from the {@link CatalogueSnapshot}; an item that becomes
+ * inactive (paid or withdrawn) drops out of the index. Every active item is
+ * either <em>settled</em>, meaning its winner (or lack of one) is known, or
+ * <em>pending</em> until its end time has passed and a lookup has settled it.
+ * Winners are recorded from every final winner the router caches (see
+ * {@link AuctionWinnerEvent}) and from a periodic sweep over pending items
+ * whose auctions have ended. The first sweep after startup doubles as the
+ * backfill, and {@link #rebuild()} repeats it from scratch; both bypass the
+ * router's winner cache. A sample of settled items is regularly re-checked
+ * against GetAuctionWinner, also uncached; a high mismatch rate triggers a
+ * rebuild.
+ *
+ * <p>
+ * Until the backfill has succeeded, {@link #winsFor(int)} falls back to
+ * looking up every active item.
+ */
+@Slf4j
+@Component
+public class UserWinsIndex {
+
+    /**
+     * One auction won by a user.
+     */
+    public record Win(int catalogueId, String title, int finalPrice) {
+    }
+
+    /**
+     * A user's wins, and how many auctions could not be checked in time
+     * (non-zero means the list may be incomplete).
+     */
+    public record Lookup(List<Win> wins, int unchecked) {
+    }
+
+    private final AuctionService auctionService;
+    private final CatalogueSnapshot catalogueSnapshot;
+    private final long noWinnerGraceMillis;
+    private final int checkSampleSize;
+    private final double rebuildMismatchRatio;
+    private final Counter mismatches;
+
+    // All guarded by this
+    private final Map<Integer, ItemResponse> activeItems = new HashMap<>();
+    private final NavigableMap<Long, Set<Integer>> pendingByEnd = new TreeMap<>();
+    private final Map<Integer, Long> pendingEnd = new HashMap<>();
+    private final Map<Integer, Integer> winnerByItem = new HashMap<>();
+    private final Set<Integer> settledWithoutWinner = new HashSet<>();
+    private final Map<Integer, Map<Integer, Win>> winsByUser = new HashMap<>();
+    private boolean synced;
+
+    private volatile boolean ready;
+
+    public UserWinsIndex(
+            AuctionService auctionService,
+            CatalogueSnapshot catalogueSnapshot,
+            @Value("${auction.wins-index.no-winner-grace:1m}") Duration noWinnerGrace,
+            @Value("${auction.wins-index.check-sample-size:20}") int checkSampleSize,
+            @Value("${auction.wins-index.rebuild-mismatch-ratio:0.1}") double rebuildMismatchRatio,
+            MeterRegistry meterRegistry) {
+        this.auctionService = auctionService;
+        this.catalogueSnapshot = catalogueSnapshot;
+        this.noWinnerGraceMillis = noWinnerGrace.toMillis();
+        this.checkSampleSize = checkSampleSize;
+        this.rebuildMismatchRatio = rebuildMismatchRatio;
+        this.mismatches = Counter.builder("auction.wins-index.mismatches")
+                .description("Index entries found to disagree with GetAuctionWinner")
+                .register(meterRegistry);
+        Gauge.builder("auction.wins-index.pending", this, UserWinsIndex::pendingCount)
+                .description("Active auctions whose winner is not known yet")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the user's unpaid wins in catalogue id order. Auctions that
+     * have ended since the last sweep are settled first.
+     */
+    public Lookup winsFor(int userId) {
+        if (!ready) {
+            return scanAll(userId);
+        }
+
+        List<Integer> due = dueItems();
+        int unchecked = due.isEmpty() ? 0 : settle(due, false);
+
+        List<Win> wins;
+        synchronized (this) {
+            Map<Integer, Win> byItem = winsByUser.get(userId);
+            wins = byItem == null ? List.of() : new ArrayList<>(byItem.values());
+        }
+        return new Lookup(wins, unchecked);
+    }
+
+    @EventListener
+    public void onAuctionWinner(AuctionWinnerEvent event) {
+        synchronized (this) {
+            // Only index auctions that are still active; a paid item must not come back
+            if (!synced || activeItems.containsKey(event.catalogueId())) {
+                recordWinner(event.catalogueId(), event.winnerUserId(), event.finalPrice());
+            }
+        }
+    }
+
+    /**
+     * Brings the set of indexed items in line with a new catalogue snapshot.
+     */
+    @EventListener
+    public void onSnapshotRefreshed(CatalogueSnapshot.Refreshed event) {
+        synchronized (this) {
+            Map<Integer, ItemResponse> current = new HashMap<>();
+            for (ItemResponse item : event.snapshot().items()) {
+                if (item.getActive()) {
+                    current.put(item.getId(), item);
+                }
+            }
+
+            Set<Integer> known = new HashSet<>(winnerByItem.keySet());
+            known.addAll(settledWithoutWinner);
+            known.addAll(pendingEnd.keySet());
+            for (Integer id : known) {
+                if (!current.containsKey(id)) {
+                    forget(id);
+                }
+            }
+            activeItems.clear();
+            activeItems.putAll(current);
+
+            for (ItemResponse item : current.values()) {
+                int id = item.getId();
+                if (!isSettled(id) && !pendingEnd.containsKey(id)) {
+                    addPending(id, endMillis(item));
+                }
+                Integer winner = winnerByItem.get(id);
+                if (winner != null) {
+                    // Pick up the title if the winner was recorded before the item was seen
+                    Win win = winsByUser.get(winner).get(id);
+                    if (!win.title().equals(item.getTitle())) {
+                        winsByUser.get(winner).put(id, new Win(id, item.getTitle(), win.finalPrice()));
+                    }
+                }
+            }
+            synced = true;
+        }
+    }
+
+    /**
+     * Settles every pending auction that has ended. The first successful run
+     * is the backfill that makes the index ready.
+     */
+    @Scheduled(fixedDelayString = "${auction.wins-index.sweep-interval:PT15S}")
+    public void sweep() {
+        if (catalogueSnapshot.peek() == null) {
+            return;
+        }
+        synchronized (this) {
+            if (!synced) {
+                return;
+            }
+        }
+        try {
+            // Until the index is ready, winners are taken from the auction-service rather than the router's cache
+            int unchecked = settle(dueItems(), !ready);
+            if (unchecked == 0 && !ready) {
+                ready = true;
+                log.info("User wins index ready: {} winners indexed, {} auctions pending",
+                        indexedWinners(), pendingCount());
+            }
+        } catch (RuntimeException e) {
+            log.warn("User wins index sweep failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Re-checks a random sample of settled auctions against GetAuctionWinner
+     * and repairs any that disagree. Too many disagreements trigger a full
+     * rebuild.
+     */
+    @Scheduled(fixedDelayString = "${auction.wins-index.check-interval:PT5M}")
+    public void checkConsistency() {
+        if (!ready) {
+            return;
+        }
+        // What the index believes now
+        Map<Integer, Integer> expectedWinner = new HashMap<>();
+        Map<Integer, Win> expected = new HashMap<>();
+        List<Integer> sample;
+        synchronized (this) {
+            List<Integer> settled = new ArrayList<>(winnerByItem.keySet());
+            settled.addAll(settledWithoutWinner);
+            Collections.shuffle(settled, ThreadLocalRandom.current());
+            sample = new ArrayList<>(settled.subList(0, Math.min(checkSampleSize, settled.size())));
+            for (Integer id : sample) {
+                Integer winner = winnerByItem.get(id);
+                if (winner != null) {
+                    expectedWinner.put(id, winner);
+                    expected.put(id, winsByUser.get(winner).get(id));
+                }
+            }
+        }
+        if (sample.isEmpty()) {
+            return;
+        }
+
+        BoundedFanOut.Result<GetAuctionWinnerResponse> result;
+        try {
+            // Uncached, or a winner cached by the router would only be compared with itself
+            result = auctionService.fetchAuctionWinners(sample);
+        } catch (RuntimeException e) {
+            log.warn("User wins index consistency check failed: {}", e.getMessage());
+            return;
+        }
+
+        Set<Integer> finals = finalWinners(sample, result);
+        int checked = 0;
+        int wrong = 0;
+        synchronized (this) {
+            for (int i = 0; i < sample.size(); i++) {
+                GetAuctionWinnerResponse response = result.results().get(i);
+                int id = sample.get(i);
+                if (response == null || !activeItems.containsKey(id)) {
+                    continue;
+                }
+                checked++;
+                Win indexed = expected.get(id);
+                boolean agrees = response.getFound()
+                        ? indexed != null && expectedWinner.get(id) == response.getWinnerUserId()
+                                && indexed.finalPrice() == response.getFinalPrice()
+                        : indexed == null;
+                if (!agrees) {
+                    wrong++;
+                    log.warn("User wins index disagreed with auction-service for item {}: indexed winner {}, actual {}",
+                            id, expectedWinner.get(id), response.getFound() ? response.getWinnerUserId() : "none");
+                    forget(id);
+                    if (finals.contains(id)) {
+                        recordWinner(id, response.getWinnerUserId(), response.getFinalPrice());
+                    } else {
+                        addPending(id, endMillis(activeItems.get(id)));
+                    }
+                }
+            }
+        }
+        if (wrong > 0) {
+            mismatches.increment(wrong);
+            if (wrong > checked * rebuildMismatchRatio) {
+                log.warn("{} of {} sampled wins index entries were wrong, rebuilding", wrong, checked);
+                rebuild();
+            }
+        }
+    }
+
+    /**
+     * Discards everything the index knows about winners and settles every
+     * active auction again. Wins queries fall back to a full scan until the
+     * rebuild completes.
+     */
+    public void rebuild() {
+        synchronized (this) {
+            ready = false;
+            winnerByItem.clear();
+            settledWithoutWinner.clear();
+            winsByUser.clear();
+            pendingByEnd.clear();
+            pendingEnd.clear();
+            for (ItemResponse item : activeItems.values()) {
+                addPending(item.getId(), endMillis(item));
+            }
+        }
+        sweep();
+    }
+
+    private Lookup scanAll(int userId) {
+        List<ItemResponse> items = catalogueSnapshot.get().items().stream()
+                .filter(ItemResponse::getActive)
+                .toList();
+        List<Integer> ids = items.stream().map(ItemResponse::getId).toList();
+        BoundedFanOut.Result<GetAuctionWinnerResponse> winners = auctionService.getAuctionWinners(ids);
+        // Same rule as the index itself, so a leader never shows up as a win before the index is built
+        Set<Integer> finals = finalWinners(ids, winners);
+
+        List<Win> wins = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            GetAuctionWinnerResponse response = winners.results().get(i);
+            if (finals.contains(ids.get(i)) && response.getWinnerUserId() == userId) {
+                ItemResponse item = items.get(i);
+                wins.add(new Win(item.getId(), item.getTitle(), response.getFinalPrice()));
+            }
+        }
+        return new Lookup(wins, winners.failures());
+    }
+
+    private synchronized List<Integer> dueItems() {
+        List<Integer> due = new ArrayList<>();
+        for (Set<Integer> ids : pendingByEnd.headMap(System.currentTimeMillis(), true).values()) {
+            due.addAll(ids);
+        }
+        return due;
+    }
+
+    /**
+     * Looks up the given ended auctions, bypassing the router's winner cache
+     * if {@code fresh}, and settles the ones that have an answer. Returns how
+     * many could not be looked up.
+     */
+    private int settle(List<Integer> due, boolean fresh) {
+        if (due.isEmpty()) {
+            return 0;
+        }
+        BoundedFanOut.Result<GetAuctionWinnerResponse> result = fresh
+                ? auctionService.fetchAuctionWinners(due)
+                : auctionService.getAuctionWinners(due);
+        Set<Integer> finals = finalWinners(due, result);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (int i = 0; i < due.size(); i++) {
+                GetAuctionWinnerResponse response = result.results().get(i);
+                int id = due.get(i);
+                Long end = pendingEnd.get(id);
+                if (response != null && response.getFound()) {
+                    // Only index auctions that are still active; a paid item must not come back
+                    if (finals.contains(id) && activeItems.containsKey(id)) {
+                        recordWinner(id, response.getWinnerUserId(), response.getFinalPrice());
+                    }
+                } else if (response != null && end != null && now - end > noWinnerGraceMillis) {
+                    // No winner shortly after the end may just be the auction-service finishing up
+                    removePending(id);
+                    settledWithoutWinner.add(id);
+                }
+            }
+        }
+        return result.failures();
+    }
+
+    /**
+     * Returns the ids whose found winner is final: the answer is the one in
+     * the router's winner cache, which only holds winners of auctions the
+     * auction-service has confirmed ended. A found answer from elsewhere
+     * (the raw RPC reports the leader of a running auction as found) is not
+     * enough.
+     */
+    private Set<Integer> finalWinners(List<Integer> ids, BoundedFanOut.Result<GetAuctionWinnerResponse> result) {
+        Set<Integer> finals = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            GetAuctionWinnerResponse response = result.results().get(i);
+            if (response != null && response.getFound()
+                    && response.equals(auctionService.knownAuctionWinner(ids.get(i)))) {
+                finals.add(ids.get(i));
+            }
+        }
+        return finals;
+    }
+
+    private void recordWinner(int catalogueId, int winnerUserId, int finalPrice) {
+        Integer previous = winnerByItem.put(catalogueId, winnerUserId);
+        if (previous != null && previous != winnerUserId) {
+            removeWin(previous, catalogueId);
+        }
+        settledWithoutWinner.remove(catalogueId);
+        removePending(catalogueId);
+
+        ItemResponse item = activeItems.get(catalogueId);
+        String title = item == null ? "" : item.getTitle();
+        winsByUser.computeIfAbsent(winnerUserId, u -> new TreeMap<>())
+                .put(catalogueId, new Win(catalogueId, title, finalPrice));
+    }
+
+    private void forget(int catalogueId) {
+        Integer winner = winnerByItem.remove(catalogueId);
+        if (winner != null) {
+            removeWin(winner, catalogueId);
+        }
+        settledWithoutWinner.remove(catalogueId);
+        removePending(catalogueId);
+    }
+
+    private void removeWin(int userId, int catalogueId) {
+        Map<Integer, Win> wins = winsByUser.get(userId);
+        if (wins != null) {
+            wins.remove(catalogueId);
+            if (wins.isEmpty()) {
+                winsByUser.remove(userId);
+            }
+        }
+    }
+
+    private boolean isSettled(int catalogueId) {
+        return winnerByItem.containsKey(catalogueId) || settledWithoutWinner.contains(catalogueId);
+    }
+
+    private void addPending(int catalogueId, long end) {
+        pendingEnd.put(catalogueId, end);
+        pendingByEnd.computeIfAbsent(end, e -> new TreeSet<>()).add(catalogueId);
+    }
+
+    private void removePending(int catalogueId) {
+        Long end = pendingEnd.remove(catalogueId);
+        if (end != null) {
+            Set<Integer> ids = pendingByEnd.get(end);
+            ids.remove(catalogueId);
+            if (ids.isEmpty()) {
+                pendingByEnd.remove(end);
+            }
+        }
+    }
+
+    private synchronized int pendingCount() {
+        return pendingEnd.size();
+    }
+
+    private synchronized int indexedWinners() {
+        return winnerByItem.size();
+    }
+
+    private static long endMillis(ItemResponse item) {
+        try {
+            return LocalDateTime.parse(item.getEndTime()).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            // Without a usable end time, check it on the next sweep like an ended auction
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.cash.standin;
+
+import com.cash.grpc.auctionservice.*;
+import com.google.protobuf.Timestamp;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory auction-service for running the router without the real one.
+ *
+ * <p>
+ * Served over the in-process transport; point the router at it with
+ * {@code AUCTION_SERVICE_ADDRESS=in-process:<standin.auction.name>}. It
+ * implements the whole auction API, including the batch lookups, and can be
+ * seeded with auctions for catalogue items 1..n, the first of which have
+ * already ended with a winner.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "standin.auction.enabled", havingValue = "true")
+public class StandInAuctionServer {
+
+    private final Map<Integer, Auction> auctions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextBidId = new AtomicInteger(1);
+    private final Server server;
+
+    private static final class Auction {
+        final Instant endTime;
+        final List<Bid> bids = new ArrayList<>();
+        int highestBidder;
+        int currentAmount;
+
+        Auction(int startingAmount, Instant endTime) {
+            this.currentAmount = startingAmount;
+            this.endTime = endTime;
+        }
+    }
+
+    public StandInAuctionServer(
+            @Value("${standin.auction.name:auction-service}") String name,
+            @Value("${standin.auction.seed-auctions:0}") int seedAuctions,
+            @Value("${standin.auction.seed-ended:0}") int seedEnded) throws IOException {
+        Instant now = Instant.now();
+        for (int id = 1; id <= seedAuctions; id++) {
+            boolean ended = id <= seedEnded;
+            Auction auction = new Auction(10 + id % 90,
+                    ended ? now.minusSeconds(60) : now.plusSeconds(3600L * (1 + id % 72)));
+            if (ended) {
+                auction.highestBidder = 1 + (id + 5) % 10;
+                auction.currentAmount += 5;
+            }
+            auctions.put(id, auction);
+        }
+        this.server = InProcessServerBuilder.forName(name)
+                .addService(new Service())
+                .build()
+                .start();
+        log.info("Stand-in auction-service listening on in-process:{} with {} auctions", name, seedAuctions);
+    }
+
+    @PreDestroy
+    public void stop() {
+        server.shutdownNow();
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return Timestamp.newBuilder().setSeconds(instant.getEpochSecond()).setNanos(instant.getNano()).build();
+    }
+
+    private GetAuctionEndResponse end(int catalogueId) {
+        Auction auction = auctions.get(catalogueId);
+        if (auction == null) {
+            return GetAuctionEndResponse.newBuilder().setFound(false).setMessage("Auction not found").build();
+        }
+        return GetAuctionEndResponse.newBuilder()
+                .setFound(true)
+                .setEndTime(toTimestamp(auction.endTime))
+                .setMessage("Auction found")
+                .build();
+    }
+
+    private GetAuctionStatusResponse status(int catalogueId) {
+        Auction auction = auctions.get(catalogueId);
+        if (auction == null) {
+            return GetAuctionStatusResponse.newBuilder().setSuccess(false).setMessage("Auction not found").build();
+        }
+        synchronized (auction) {
+            long remaining = Math.max(0, auction.endTime.getEpochSecond() - Instant.now().getEpochSecond());
+            return GetAuctionStatusResponse.newBuilder()
+                    .setSuccess(true)
+                    .setHighestBidder(auction.highestBidder)
+                    .setCurrentAmount(auction.currentAmount)
+                    .setRemainingTime((int) remaining)
+                    .setMessage("Auction status retrieved")
+                    .build();
+        }
+    }
+
+    private GetAuctionWinnerResponse winner(int catalogueId) {
+        Auction auction = auctions.get(catalogueId);
+        if (auction == null) {
+            return GetAuctionWinnerResponse.newBuilder().setFound(false).setMessage("Auction not found").build();
+        }
+        synchronized (auction) {
+            if (Instant.now().isBefore(auction.endTime)) {
+                return GetAuctionWinnerResponse.newBuilder().setFound(false).setMessage("Auction still running").build();
+            }
+            if (auction.highestBidder == 0) {
+                return GetAuctionWinnerResponse.newBuilder().setFound(false).setMessage("No bids placed").build();
+            }
+            return GetAuctionWinnerResponse.newBuilder()
+                    .setFound(true)
+                    .setWinnerUserId(auction.highestBidder)
+                    .setFinalPrice(auction.currentAmount)
+                    .setMessage("Winner found")
+                    .build();
+        }
+    }
+
+    private class Service extends AuctionServiceGrpc.AuctionServiceImplBase {
+
+        @Override
+        public void startAuction(StartAuctionRequest request, StreamObserver<StartAuctionResponse> responseObserver) {
+            Instant endTime = Instant.ofEpochSecond(request.getEndTime().getSeconds(), request.getEndTime().getNanos());
+            Auction created = new Auction(request.getStartingAmount(), endTime);
+            boolean started = auctions.putIfAbsent(request.getCatalogueId(), created) == null;
+            responseObserver.onNext(StartAuctionResponse.newBuilder()
+                    .setSuccess(started)
+                    .setMessage(started ? "Auction started" : "Auction already exists")
+                    .build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void placeBid(PlaceBidRequest request, StreamObserver<PlaceBidResponse> responseObserver) {
+            responseObserver.onNext(bid(request));
+            responseObserver.onCompleted();
+        }
+
+        private PlaceBidResponse bid(PlaceBidRequest request) {
+            Auction auction = auctions.get(request.getCatalogueId());
+            if (auction == null) {
+                return PlaceBidResponse.newBuilder().setSuccess(false).setMessage("Auction not found").build();
+            }
+            synchronized (auction) {
+                if (!Instant.now().isBefore(auction.endTime)) {
+                    return PlaceBidResponse.newBuilder().setSuccess(false).setMessage("Auction has ended").build();
+                }
+                if (request.getAmount() <= auction.currentAmount) {
+                    return PlaceBidResponse.newBuilder().setSuccess(false)
+                            .setMessage("Bid must be higher than " + auction.currentAmount).build();
+                }
+                auction.highestBidder = request.getUserId();
+                auction.currentAmount = request.getAmount();
+                auction.bids.add(Bid.newBuilder()
+                        .setBidId(nextBidId.getAndIncrement())
+                        .setUserId(request.getUserId())
+                        .setCatalogueId(request.getCatalogueId())
+                        .setAmount(request.getAmount())
+                        .setBidTime(toTimestamp(Instant.now()))
+                        .build());
+                return PlaceBidResponse.newBuilder().setSuccess(true).setMessage("Bid placed").build();
+            }
+        }
+
+        @Override
+        public void getAuctionEnd(GetAuctionEndRequest request, StreamObserver<GetAuctionEndResponse> responseObserver) {
+            responseObserver.onNext(end(request.getCatalogueId()));
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void getAuctionStatus(GetAuctionStatusRequest request,
+                StreamObserver<GetAuctionStatusResponse> responseObserver) {
+            responseObserver.onNext(status(request.getCatalogueId()));
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void getAuctionWinner(GetAuctionWinnerRequest request,
+                StreamObserver<GetAuctionWinnerResponse> responseObserver) {
+            responseObserver.onNext(winner(request.getCatalogueId()));
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void getAuctionEnds(GetAuctionEndsRequest request, StreamObserver<GetAuctionEndsResponse> responseObserver) {
+            GetAuctionEndsResponse.Builder response = GetAuctionEndsResponse.newBuilder();
+            request.getCatalogueIdsList().forEach(id -> response.putEnds(id, end(id)));
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void getAuctionStatuses(GetAuctionStatusesRequest request,
+                StreamObserver<GetAuctionStatusesResponse> responseObserver) {
+            GetAuctionStatusesResponse.Builder response = GetAuctionStatusesResponse.newBuilder();
+            request.getCatalogueIdsList().forEach(id -> response.putStatuses(id, status(id)));
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void getAuctionWinners(GetAuctionWinnersRequest request,
+                StreamObserver<GetAuctionWinnersResponse> responseObserver) {
+            GetAuctionWinnersResponse.Builder response = GetAuctionWinnersResponse.newBuilder();
+            request.getCatalogueIdsList().forEach(id -> response.putWinners(id, winner(id)));
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void getBidHistory(GetBidHistoryRequest request, StreamObserver<GetBidHistoryResponse> responseObserver) {
+            Auction auction = auctions.get(request.getCatalogueId());
+            GetBidHistoryResponse.Builder response = GetBidHistoryResponse.newBuilder();
+            if (auction == null) {
+                response.setSuccess(false).setMessage("Auction not found");
+            } else {
+                synchronized (auction) {
+                    response.setSuccess(true).addAllBidHistory(auction.bids).setMessage("Bid history retrieved");
+                }
+            }
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.cash.standin;
+
+import com.cash.grpc.catalogue.*;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory catalogue-service for running the router without the real one.
+ *
+ * <p>
+ * Served over the in-process transport; point the router at it with
+ * {@code CATALOGUE_SERVICE_ADDRESS=in-process:<standin.catalogue.name>}.
+ * It implements the whole catalogue API, including StreamAllItems, and can
+ * be seeded with any number of generated items to try large catalogues.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "standin.catalogue.enabled", havingValue = "true")
+public class StandInCatalogueServer {
+
+    private final Map<Integer, ItemResponse> items = new ConcurrentSkipListMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final Server server;
+
+    public StandInCatalogueServer(
+            @Value("${standin.catalogue.name:catalogue-service}") String name,
+            @Value("${standin.catalogue.seed-items:100}") int seedItems) throws IOException {
+        for (int i = 0; i < seedItems; i++) {
+            store(CreateItemRequest.newBuilder()
+                    .setTitle("Stand-in item " + (i + 1))
+                    .setDescription("Generated by the stand-in catalogue-service")
+                    .setStartingPrice(10 + i % 90)
+                    .setDurationHours(1 + i % 72)
+                    .setSellerId(1 + i % 10)
+                    .build());
+        }
+        this.server = InProcessServerBuilder.forName(name)
+                .addService(new Service())
+                .build()
+                .start();
+        log.info("Stand-in catalogue-service listening on in-process:{} with {} items", name, seedItems);
+    }
+
+    @PreDestroy
+    public void stop() {
+        server.shutdownNow();
+    }
+
+    private ItemResponse store(CreateItemRequest request) {
+        int id = nextId.getAndIncrement();
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC).withNano(0);
+        ItemResponse item = ItemResponse.newBuilder()
+                .setId(id)
+                .setTitle(request.getTitle())
+                .setDescription(request.getDescription())
+                .setStartingPrice(request.getStartingPrice())
+                .setCurrentPrice(request.getStartingPrice())
+                .setActive(true)
+                .setDurationHours(request.getDurationHours())
+                .setCreatedAt(now.toString())
+                .setEndTime(now.plusHours(request.getDurationHours()).toString())
+                .setSellerId(request.getSellerId())
+                .setRemainingTimeSeconds(request.getDurationHours() * 3600)
+                .setShippingCost(5 + id % 20)
+                .setShippingTime(1 + id % 7)
+                .build();
+        items.put(id, item);
+        return item;
+    }
+
+    private class Service extends CatalogueServiceGrpc.CatalogueServiceImplBase {
+
+        @Override
+        public void getAllItems(Empty request, StreamObserver<ItemList> responseObserver) {
+            responseObserver.onNext(ItemList.newBuilder().addAllItems(items.values()).build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void searchItems(SearchRequest request, StreamObserver<ItemList> responseObserver) {
+            String keyword = request.getKeyword().toLowerCase(Locale.ROOT);
+            List<ItemResponse> matches = new ArrayList<>();
+            for (ItemResponse item : items.values()) {
+                if (item.getTitle().toLowerCase(Locale.ROOT).contains(keyword)) {
+                    matches.add(item);
+                }
+            }
+            responseObserver.onNext(ItemList.newBuilder().addAllItems(matches).build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void createItem(CreateItemRequest request, StreamObserver<ItemResponse> responseObserver) {
+            responseObserver.onNext(store(request));
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void getItem(GetItemRequest request, StreamObserver<ItemResponse> responseObserver) {
+            ItemResponse item = items.get(request.getId());
+            if (item == null) {
+                responseObserver.onError(Status.NOT_FOUND
+                        .withDescription("Item " + request.getId() + " not found")
+                        .asRuntimeException());
+                return;
+            }
+            responseObserver.onNext(item);
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void deactivateItem(DeactivateItemRequest request,
+                StreamObserver<DeactivateItemResponse> responseObserver) {
+            ItemResponse item = items.computeIfPresent(request.getId(),
+                    (id, existing) -> existing.toBuilder().setActive(false).build());
+            responseObserver.onNext(DeactivateItemResponse.newBuilder()
+                    .setSuccess(item != null)
+                    .setMessage(item != null ? "Item deactivated" : "Item not found")
+                    .build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void streamAllItems(Empty request, StreamObserver<ItemResponse> responseObserver) {
+            // Only send while the transport can take more, so a slow reader holds back the producer
+            ServerCallStreamObserver<ItemResponse> call = (ServerCallStreamObserver<ItemResponse>) responseObserver;
+            Iterator<ItemResponse> remaining = items.values().iterator();
+            boolean[] completed = {false};
+            call.setOnCancelHandler(() -> completed[0] = true);
+            call.setOnReadyHandler(() -> {
+                while (!completed[0] && call.isReady() && remaining.hasNext()) {
+                    call.onNext(remaining.next());
+                }
+                if (!completed[0] && !remaining.hasNext()) {
+                    completed[0] = true;
+                    call.onCompleted();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.cash.standin;
+
+import com.cash.config.IntIntTtlMap;
+import com.cash.grpc.sessionstore.*;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory session-store for running the router with the shared bidding
+ * session store but without a real one.
+ *
+ * <p>
+ * Served over the in-process transport; point the router at it with
+ * {@code SESSION_STORE_ADDRESS=in-process:<standin.session-store.name>}.
+ * Being in-process, it is only shared by the one router instance, which is
+ * enough to exercise the shared code path locally.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "standin.session-store.enabled", havingValue = "true")
+public class StandInSessionStoreServer {
+
+    private final IntIntTtlMap biddingItems = new IntIntTtlMap(16);
+    private final Server server;
+
+    public StandInSessionStoreServer(
+            @Value("${standin.session-store.name:session-store}") String name) throws IOException {
+        this.server = InProcessServerBuilder.forName(name)
+                .addService(new Service())
+                .build()
+                .start();
+        log.info("Stand-in session-store listening on in-process:{}", name);
+    }
+
+    @PreDestroy
+    public void stop() {
+        server.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${bidding.session.sweep-interval:PT1M}")
+    public void evictExpired() {
+        biddingItems.evictExpired();
+    }
+
+    private class Service extends SessionStoreServiceGrpc.SessionStoreServiceImplBase {
+
+        @Override
+        public void getBiddingItem(GetBiddingItemRequest request, StreamObserver<GetBiddingItemResponse> responseObserver) {
+            int itemId = biddingItems.get(request.getUserId());
+            GetBiddingItemResponse.Builder response = GetBiddingItemResponse.newBuilder();
+            if (itemId != IntIntTtlMap.NO_VALUE) {
+                response.setFound(true).setCatalogueId(itemId);
+            }
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void setBiddingItem(SetBiddingItemRequest request, StreamObserver<SetBiddingItemResponse> responseObserver) {
+            biddingItems.put(request.getUserId(), request.getCatalogueId(),
+                    System.currentTimeMillis() + request.getTtlMillis());
+            responseObserver.onNext(SetBiddingItemResponse.getDefaultInstance());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void clearBiddingItem(ClearBiddingItemRequest request, StreamObserver<ClearBiddingItemResponse> responseObserver) {
+            biddingItems.remove(request.getUserId());
+            responseObserver.onNext(ClearBiddingItemResponse.getDefaultInstance());
+            responseObserver.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.cash.benchmarks;
+
+import com.cash.grpc.catalogue.CatalogueServiceGrpc;
+import com.cash.grpc.catalogue.ItemList;
+import com.cash.grpc.catalogue.ItemResponse;
+import com.cash.grpc.catalogue.SearchRequest;
+import com.cash.services.CatalogueSearchIndex;
+import com.cash.services.CatalogueSnapshot;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares catalogue keyword search served from {@link CatalogueSearchIndex}
+ * with the SearchItems RPC. The remote side is an in-process gRPC server
+ * scanning the titles the way the catalogue-service does, so its numbers
+ * leave out the network and are a lower bound for the real call.
+ *
+ * <p>
+ * Run with {@code mvn test-compile} and then {@link #main}, or through
+ * {@code org.openjdk.jmh.Main} on the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogueSearchBenchmark {
+
+    private static final String[] WORDS = {
+            "antique", "brass", "chair", "desk", "lamp", "oak", "vintage", "clock", "mirror", "rug",
+            "table", "vase", "silver", "painting", "walnut", "globe", "camera", "radio", "bicycle", "watch"};
+
+    @Param({"10000", "100000"})
+    public int items;
+
+    @Param({"vintage lamp", "oak", "ch"})
+    public String keyword;
+
+    private CatalogueSearchIndex index;
+    private Server server;
+    private ManagedChannel channel;
+    private CatalogueServiceGrpc.CatalogueServiceBlockingStub stub;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<ItemResponse> catalogue = catalogue(items);
+
+        index = new CatalogueSearchIndex(null, true, false, Duration.ofDays(1), new SimpleMeterRegistry());
+        index.onSnapshotRefreshed(new CatalogueSnapshot.Refreshed(
+                new CatalogueSnapshot.Snapshot(catalogue, catalogue, System.currentTimeMillis(), 0)));
+
+        String name = "catalogue-search-benchmark-" + items;
+        server = InProcessServerBuilder.forName(name)
+                .addService(new ScanningCatalogue(catalogue))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).build();
+        stub = CatalogueServiceGrpc.newBlockingStub(channel);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Benchmark
+    public List<ItemResponse> local() {
+        return index.search(keyword);
+    }
+
+    @Benchmark
+    public List<ItemResponse> remote() {
+        return stub.searchItems(SearchRequest.newBuilder().setKeyword(keyword).build()).getItemsList();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CatalogueSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static List<ItemResponse> catalogue(int size) {
+        Random random = new Random(42);
+        List<ItemResponse> catalogue = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + WORDS[random.nextInt(WORDS.length)] + " #" + id;
+            catalogue.add(ItemResponse.newBuilder().setId(id).setTitle(title).build());
+        }
+        return catalogue;
+    }
+
+    private static final class ScanningCatalogue extends CatalogueServiceGrpc.CatalogueServiceImplBase {
+
+        private final List<ItemResponse> catalogue;
+
+        ScanningCatalogue(List<ItemResponse> catalogue) {
+            this.catalogue = catalogue;
+        }
+
+        @Override
+        public void searchItems(SearchRequest request, StreamObserver<ItemList> responseObserver) {
+            String keyword = request.getKeyword().toLowerCase(Locale.ROOT);
+            ItemList.Builder matches = ItemList.newBuilder();
+            for (ItemResponse item : catalogue) {
+                if (item.getTitle().toLowerCase(Locale.ROOT).contains(keyword)) {
+                    matches.addItems(item);
+                }
+            }
+            responseObserver.onNext(matches.build());
+            responseObserver.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.cash.benchmarks;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+import com.cash.config.LinkTemplate;
+import com.cash.controllers.AuctionController;
+import com.cash.controllers.CatalogueController;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.hateoas.Link;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Compares the links of one catalogue listing response built with
+ * {@code linkTo(methodOn(...))} and with {@link LinkTemplate}. Each item gets
+ * the four links {@code CatalogueController.addLinksToItem} gives an active
+ * item, and the listing its self link; each invocation is one response,
+ * built in a fresh request as the base URI is cached per request.
+ *
+ * <p>
+ * Run with {@code mvn test-compile} and then {@link #main}, or through
+ * {@code org.openjdk.jmh.Main} on the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkTemplateBenchmark {
+
+    private static final LinkTemplate ITEMS = LinkTemplate.of(CatalogueController.class, "getAllItems");
+    private static final LinkTemplate ITEM = LinkTemplate.of(CatalogueController.class, "getItem");
+    private static final LinkTemplate AUCTION_STATUS = LinkTemplate.of(AuctionController.class, "getAuctionStatus");
+    private static final LinkTemplate PLACE_BID = LinkTemplate.of(AuctionController.class, "placeBid");
+
+    @Param({"1", "50"})
+    public int items;
+
+    @Setup(Level.Invocation)
+    public void startRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/catalogue/items");
+        request.setServerName("router.example");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @TearDown(Level.Invocation)
+    public void endRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public List<Link> methodOnProxies() {
+        List<Link> links = new ArrayList<>(items * 4 + 1);
+        for (int id = 1; id <= items; id++) {
+            links.add(linkTo(methodOn(CatalogueController.class).getItem(id)).withSelfRel());
+            links.add(linkTo(methodOn(CatalogueController.class).getAllItems(null, null)).withRel("catalogue"));
+            links.add(linkTo(methodOn(AuctionController.class).getAuctionStatus(id)).withRel("auction-status"));
+            links.add(linkTo(methodOn(AuctionController.class).placeBid(id, null, null)).withRel("place-bid"));
+        }
+        links.add(linkTo(methodOn(CatalogueController.class).getAllItems(null, items)).withSelfRel());
+        return links;
+    }
+
+    @Benchmark
+    public List<Link> templates() {
+        List<Link> links = new ArrayList<>(items * 4 + 1);
+        for (int id = 1; id <= items; id++) {
+            links.add(ITEM.self(id));
+            links.add(ITEMS.link("catalogue", null, null));
+            links.add(AUCTION_STATUS.link("auction-status", id));
+            links.add(PLACE_BID.link("place-bid", id));
+        }
+        links.add(ITEMS.self(null, items));
+        return links;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LinkTemplateBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,98 @@
+package com.cash.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class IntIntTtlMapTest {
+
+  private static final long LATER = Long.MAX_VALUE;
+
+  @Test
+  void putsReplacesAndRemoves() {
+    IntIntTtlMap map = new IntIntTtlMap(4);
+    map.put(1, 10, LATER);
+    map.put(2, 20, LATER);
+    map.put(1, 11, LATER);
+
+    assertThat(map.get(1)).isEqualTo(11);
+    assertThat(map.get(2)).isEqualTo(20);
+    assertThat(map.size()).isEqualTo(2);
+
+    map.remove(1);
+    assertThat(map.get(1)).isEqualTo(IntIntTtlMap.NO_VALUE);
+    assertThat(map.get(3)).isEqualTo(IntIntTtlMap.NO_VALUE);
+    assertThat(map.size()).isEqualTo(1);
+  }
+
+  @Test
+  void dropsExpiredEntriesWhenLookedUp() {
+    IntIntTtlMap map = new IntIntTtlMap(1);
+    map.put(1, 10, System.currentTimeMillis() - 1);
+
+    assertThat(map.size()).isEqualTo(1);
+    assertThat(map.get(1)).isEqualTo(IntIntTtlMap.NO_VALUE);
+    assertThat(map.size()).isZero();
+  }
+
+  @Test
+  void evictsExpiredEntriesAndKeepsTheRest() {
+    IntIntTtlMap map = new IntIntTtlMap(2);
+    long past = System.currentTimeMillis() - 1;
+    for (int key = 0; key < 1000; key++) {
+      map.put(key, key, key % 10 == 0 ? LATER : past);
+    }
+
+    assertThat(map.evictExpired()).isEqualTo(900);
+    assertThat(map.size()).isEqualTo(100);
+    for (int key = 0; key < 1000; key++) {
+      assertThat(map.get(key)).isEqualTo(key % 10 == 0 ? key : IntIntTtlMap.NO_VALUE);
+    }
+    assertThat(map.evictExpired()).isZero();
+  }
+
+  // One segment and a small key range make long probe runs, which wrap around the table,
+  // so every removal exercises the backward shift
+  @Test
+  void removalsKeepEveryOtherKeyReachable() {
+    IntIntTtlMap map = new IntIntTtlMap(1);
+    Map<Integer, Integer> expected = new HashMap<>();
+    Random random = new Random(7);
+    for (int op = 0; op < 200_000; op++) {
+      int key = random.nextInt(64);
+      if (random.nextInt(3) == 0) {
+        map.remove(key);
+        expected.remove(key);
+      } else {
+        map.put(key, op, LATER);
+        expected.put(key, op);
+      }
+      if (op % 97 == 0) {
+        for (int probe = 0; probe < 64; probe++) {
+          assertThat(map.get(probe)).isEqualTo(expected.getOrDefault(probe, IntIntTtlMap.NO_VALUE));
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+      }
+    }
+  }
+
+  @Test
+  void expiryOnLookupKeepsProbeRunsIntact() {
+    IntIntTtlMap map = new IntIntTtlMap(1);
+    long past = System.currentTimeMillis() - 1;
+    for (int key = 0; key < 7; key++) {
+      map.put(key, key, key % 2 == 0 ? past : LATER);
+    }
+
+    for (int key = 0; key < 7; key++) {
+      assertThat(map.get(key)).isEqualTo(key % 2 == 0 ? IntIntTtlMap.NO_VALUE : key);
+    }
+    for (int key = 1; key < 7; key += 2) {
+      assertThat(map.get(key)).isEqualTo(key);
+    }
+    assertThat(map.size()).isEqualTo(3);
+  }
+}
@@ -0,0 +1,120 @@
+package com.cash.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+class LinkTemplateTest {
+
+    @RequestMapping("/api/shops")
+    public static class ShopController {
+
+        @GetMapping("/{shopId}/items/{itemId}")
+        public ResponseEntity<Void> getItem(@PathVariable("shopId") int shopId, @PathVariable("itemId") String itemId,
+                                            @RequestParam(name = "view", required = false) String view) {
+            return ResponseEntity.ok().build();
+        }
+
+        @PostMapping("/{shopId}/orders")
+        public ResponseEntity<Void> order(@PathVariable("shopId") int shopId, @RequestBody String body) {
+            return ResponseEntity.ok().build();
+        }
+
+        @GetMapping("/a")
+        public ResponseEntity<Void> twice() {
+            return ResponseEntity.ok().build();
+        }
+
+        @GetMapping("/b")
+        public ResponseEntity<Void> twice(@RequestParam("q") String q) {
+            return ResponseEntity.ok().build();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/router/api/shops/1");
+        request.setScheme("https");
+        request.setServerName("shop.example");
+        request.setServerPort(443);
+        request.setContextPath("/router");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void expandsPathVariablesAndQueryParameters() {
+        LinkTemplate template = LinkTemplate.of(ShopController.class, "getItem");
+
+        assertThat(template.href(7, "lamp", "full"))
+                .isEqualTo("https://shop.example/router/api/shops/7/items/lamp?view=full");
+        assertThat(template.href(7, "lamp", null))
+                .isEqualTo("https://shop.example/router/api/shops/7/items/lamp");
+    }
+
+    @Test
+    void encodesValues() {
+        LinkTemplate template = LinkTemplate.of(ShopController.class, "getItem");
+
+        assertThat(template.href(7, "desk lamp/2", "a&b"))
+                .isEqualTo("https://shop.example/router/api/shops/7/items/desk%20lamp%2F2?view=a%26b");
+    }
+
+    @Test
+    void ignoresParametersThatAreNotInTheLink() {
+        Link link = LinkTemplate.of(ShopController.class, "order").self(3);
+
+        assertThat(link.getRel()).isEqualTo(IanaLinkRelations.SELF);
+        assertThat(link.getHref()).isEqualTo("https://shop.example/router/api/shops/3/orders");
+    }
+
+    @Test
+    void matchesLinkToMethodOn() {
+        String expected = linkTo(methodOn(ShopController.class).getItem(7, "lamp", "full")).toUri().toString();
+
+        assertThat(LinkTemplate.of(ShopController.class, "getItem").href(7, "lamp", "full")).isEqualTo(expected);
+    }
+
+    @Test
+    void isRelativeOutsideARequest() {
+        RequestContextHolder.resetRequestAttributes();
+
+        assertThat(LinkTemplate.of(ShopController.class, "order").href(3)).isEqualTo("/api/shops/3/orders");
+    }
+
+    @Test
+    void refusesTheWrongNumberOfArguments() {
+        LinkTemplate template = LinkTemplate.of(ShopController.class, "getItem");
+
+        assertThatThrownBy(() -> template.href(7, "lamp")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void failsForMissingOrAmbiguousMethods() {
+        assertThatThrownBy(() -> LinkTemplate.of(ShopController.class, "missing"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> LinkTemplate.of(ShopController.class, "twice"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,259 @@
+package com.cash.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class LocalJwtVerifierTest {
+
+  private static final KeyPair RSA = generate("RSA");
+  private static final KeyPair EC = generate("EC");
+  private static final KeyPair ROTATED = generate("RSA");
+
+  private final RotatingKeys keys = new RotatingKeys();
+  private final LocalJwtVerifier verifier = new LocalJwtVerifier(keys, Duration.ofSeconds(30), "auth.cash", "router", "local");
+
+  @Test
+  void verifiesRsaAndEcSignatures() {
+    keys.current.put("rsa", RSA.getPublic());
+    keys.current.put("ec", EC.getPublic());
+
+    LocalJwtVerifier.Result rsa = verifier.verify(sign("RS256", "rsa", RSA.getPrivate(), claims(42, 3600)));
+    LocalJwtVerifier.Result ec = verifier.verify(sign("ES256", "ec", EC.getPrivate(), claims(43, 3600)));
+
+    assertThat(rsa.outcome()).isEqualTo(LocalJwtVerifier.Outcome.VALID);
+    assertThat(rsa.validation().getUserId()).isEqualTo(42);
+    assertThat(rsa.validation().getUsername()).isEqualTo("user42");
+    assertThat(ec.outcome()).isEqualTo(LocalJwtVerifier.Outcome.VALID);
+    assertThat(ec.validation().getUserId()).isEqualTo(43);
+  }
+
+  @Test
+  void rejectsATamperedToken() {
+    keys.current.put("rsa", RSA.getPublic());
+    String jwt = sign("RS256", "rsa", RSA.getPrivate(), claims(42, 3600));
+    String[] parts = jwt.split("\\.");
+    String forged = parts[0] + "." + encode(claims(1, 3600)) + "." + parts[2];
+
+    assertThat(verifier.verify(forged).reason()).isEqualTo("Invalid token signature");
+  }
+
+  @Test
+  void rejectsATokenSignedWithAnotherKey() {
+    keys.current.put("rsa", RSA.getPublic());
+
+    assertThat(verifier.verify(sign("RS256", "rsa", ROTATED.getPrivate(), claims(42, 3600))).outcome())
+        .isEqualTo(LocalJwtVerifier.Outcome.INVALID);
+  }
+
+  @Test
+  void rejectsUnsignedAndMalformedTokens() {
+    keys.current.put("rsa", RSA.getPublic());
+    String unsigned = encode("{\"alg\":\"none\",\"kid\":\"rsa\"}") + "." + encode(claims(42, 3600)) + ".";
+
+    assertThat(verifier.verify(unsigned).reason()).isEqualTo("Unsupported signing algorithm");
+    assertThat(verifier.verify("not-a-token").reason()).isEqualTo("Malformed token");
+    assertThat(verifier.verify("a.b.c.d").reason()).isEqualTo("Malformed token");
+  }
+
+  @Test
+  void appliesTheClockSkewToExpiry() {
+    keys.current.put("rsa", RSA.getPublic());
+
+    assertThat(verifier.verify(sign("RS256", "rsa", RSA.getPrivate(), claims(42, -10))).outcome())
+        .isEqualTo(LocalJwtVerifier.Outcome.VALID);
+    assertThat(verifier.verify(sign("RS256", "rsa", RSA.getPrivate(), claims(42, -60))).reason())
+        .isEqualTo("Token has expired");
+  }
+
+  @Test
+  void rejectsAnotherIssuer() {
+    keys.current.put("rsa", RSA.getPublic());
+    String claims = claims(42, 3600).replace("auth.cash", "elsewhere");
+
+    assertThat(verifier.verify(sign("RS256", "rsa", RSA.getPrivate(), claims)).reason())
+        .isEqualTo("Unexpected token issuer");
+  }
+
+  @Test
+  void requiresAnExpiry() {
+    keys.current.put("rsa", RSA.getPublic());
+    String claims = claims(42, 3600).replaceAll(",\"exp\":\\d+", "");
+
+    assertThat(verifier.verify(sign("RS256", "rsa", RSA.getPrivate(), claims)).reason())
+        .isEqualTo("Token has no expiry");
+  }
+
+  @Test
+  void requiresTheConfiguredAudience() {
+    keys.current.put("rsa", RSA.getPublic());
+    String other = claims(42, 3600).replace("\"aud\":\"router\"", "\"aud\":\"billing\"");
+    String missing = claims(42, 3600).replace("\"aud\":\"router\",", "");
+    String listed = claims(42, 3600).replace("\"aud\":\"router\"", "\"aud\":[\"billing\",\"router\"]");
+
+    assertThat(verifier.verify(sign("RS256", "rsa", RSA.getPrivate(), other)).reason())
+        .isEqualTo("Unexpected token audience");
+    assertThat(verifier.verify(sign("RS256", "rsa", RSA.getPrivate(), missing)).reason())
+        .isEqualTo("Unexpected token audience");
+    assertThat(verifier.verify(sign("RS256", "rsa", RSA.getPrivate(), listed)).outcome())
+        .isEqualTo(LocalJwtVerifier.Outcome.VALID);
+  }
+
+  @Test
+  void localModeRequiresAnIssuerAndAudience() {
+    assertThatThrownBy(() -> new LocalJwtVerifier(keys, Duration.ofSeconds(30), "", "router", "local"))
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> new LocalJwtVerifier(keys, Duration.ofSeconds(30), "auth.cash", " ", "local"))
+        .isInstanceOf(IllegalStateException.class);
+    // Unused in remote mode, so not required there
+    new LocalJwtVerifier(keys, Duration.ofSeconds(30), "", "", "remote");
+  }
+
+  @Test
+  void picksUpARotatedKeyByRefreshing() {
+    keys.current.put("rsa", RSA.getPublic());
+    keys.published.put("rsa-2", ROTATED.getPublic());
+
+    LocalJwtVerifier.Result result = verifier.verify(sign("RS256", "rsa-2", ROTATED.getPrivate(), claims(42, 3600)));
+
+    assertThat(result.outcome()).isEqualTo(LocalJwtVerifier.Outcome.VALID);
+    assertThat(keys.refreshes).isEqualTo(1);
+    // Known keys are used without refreshing again
+    verifier.verify(sign("RS256", "rsa-2", ROTATED.getPrivate(), claims(42, 3600)));
+    assertThat(keys.refreshes).isEqualTo(1);
+  }
+
+  @Test
+  void reportsAKeyMissingAfterRefreshAsUnknown() {
+    keys.current.put("rsa", RSA.getPublic());
+    keys.published.put("rsa-2", ROTATED.getPublic());
+    keys.published.remove("rsa");
+    keys.refresh();
+
+    // The retired key is no longer trusted
+    assertThat(verifier.verify(sign("RS256", "rsa", RSA.getPrivate(), claims(42, 3600))).outcome())
+        .isEqualTo(LocalJwtVerifier.Outcome.UNKNOWN_KEY);
+  }
+
+  @Test
+  void standInTokensSurviveOneRotationButNotTwo() {
+    InMemoryJwtKeyProvider standIn = new InMemoryJwtKeyProvider("auth.cash", "router");
+    LocalJwtVerifier standInVerifier = new LocalJwtVerifier(standIn, Duration.ofSeconds(30), "auth.cash", "router", "local");
+    String jwt = standIn.issue(42, "ada", "USER", Duration.ofHours(1));
+
+    standIn.rotate();
+    LocalJwtVerifier.Result afterOne = standInVerifier.verify(jwt);
+    standIn.rotate();
+
+    assertThat(afterOne.outcome()).isEqualTo(LocalJwtVerifier.Outcome.VALID);
+    assertThat(afterOne.validation().getUsername()).isEqualTo("ada");
+    assertThat(standInVerifier.verify(jwt).outcome()).isEqualTo(LocalJwtVerifier.Outcome.UNKNOWN_KEY);
+    assertThat(standInVerifier.verify(standIn.issue(42, "ada", "USER", Duration.ofHours(1))).outcome())
+        .isEqualTo(LocalJwtVerifier.Outcome.VALID);
+  }
+
+  @Test
+  void readsRsaAndEcKeysFromAJwksDocument() throws Exception {
+    RSAPublicKey rsa = (RSAPublicKey) RSA.getPublic();
+    ECPublicKey ec = (ECPublicKey) EC.getPublic();
+    String jwks = "{\"keys\":["
+        + "{\"kty\":\"RSA\",\"kid\":\"rsa\",\"n\":\"" + unsigned(rsa.getModulus())
+        + "\",\"e\":\"" + unsigned(rsa.getPublicExponent()) + "\"},"
+        + "{\"kty\":\"EC\",\"kid\":\"ec\",\"crv\":\"P-256\",\"x\":\"" + unsigned(ec.getW().getAffineX())
+        + "\",\"y\":\"" + unsigned(ec.getW().getAffineY()) + "\"},"
+        + "{\"kty\":\"RSA\",\"kid\":\"enc\",\"use\":\"enc\",\"n\":\"AQAB\",\"e\":\"AQAB\"}]}";
+
+    Map<String, PublicKey> parsed = JwksKeyProvider.parse(jwks);
+
+    assertThat(parsed).containsOnlyKeys("rsa", "ec");
+    keys.current.putAll(parsed);
+    assertThat(verifier.verify(sign("RS256", "rsa", RSA.getPrivate(), claims(42, 3600))).outcome())
+        .isEqualTo(LocalJwtVerifier.Outcome.VALID);
+    assertThat(verifier.verify(sign("ES256", "ec", EC.getPrivate(), claims(42, 3600))).outcome())
+        .isEqualTo(LocalJwtVerifier.Outcome.VALID);
+  }
+
+  private static String unsigned(BigInteger value) {
+    byte[] bytes = value.toByteArray();
+    int start = bytes[0] == 0 && bytes.length > 1 ? 1 : 0;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOfRange(bytes, start, bytes.length));
+  }
+
+  private static String claims(int userId, long expiresInSeconds) {
+    long now = System.currentTimeMillis() / 1000;
+    return "{\"sub\":\"user" + userId + "\",\"userId\":" + userId + ",\"iss\":\"auth.cash\",\"aud\":\"router\",\"exp\":"
+        + (now + expiresInSeconds) + "}";
+  }
+
+  private static String sign(String alg, String kid, PrivateKey key, String claims) {
+    String signingInput = encode("{\"alg\":\"" + alg + "\",\"kid\":\"" + kid + "\"}") + "." + encode(claims);
+    try {
+      Signature signature = Signature.getInstance(
+          alg.startsWith("RS") ? "SHA256withRSA" : "SHA256withECDSAinP1363Format");
+      signature.initSign(key);
+      signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+      return signingInput + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature.sign());
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String encode(String json) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static KeyPair generate(String algorithm) {
+    try {
+      KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+      if (algorithm.equals("EC")) {
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+      } else {
+        generator.initialize(2048);
+      }
+      return generator.generateKeyPair();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // Serves the current key set; refresh replaces it with the published one, as a JWKS endpoint would
+  private static class RotatingKeys implements JwtKeyProvider {
+
+    final Map<String, PublicKey> current = new HashMap<>();
+    final Map<String, PublicKey> published = new HashMap<>();
+    int refreshes;
+
+    @Override
+    public PublicKey getKey(String kid) {
+      return current.get(kid);
+    }
+
+    @Override
+    public boolean refresh() {
+      refreshes++;
+      if (published.isEmpty()) {
+        return false;
+      }
+      current.clear();
+      current.putAll(published);
+      return true;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.cash.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class RevokedTokenFilterTest {
+
+  @Test
+  void reportsRevokedTokensExactly() {
+    RevokedTokenFilter filter = filter(Duration.ofHours(1), Duration.ofHours(24), Duration.ofHours(1));
+    filter.revoke(JwtTokens.digest("token-a"));
+
+    assertThat(filter.check(JwtTokens.digest("token-a"))).isEqualTo(RevokedTokenFilter.Status.REVOKED);
+    assertThat(filter.check(JwtTokens.digest("token-b"))).isEqualTo(RevokedTokenFilter.Status.NOT_REVOKED);
+  }
+
+  @Test
+  void fallsBackToTheBloomFilterAfterTheExactWindow() throws InterruptedException {
+    RevokedTokenFilter filter = filter(Duration.ofHours(1), Duration.ofHours(24), Duration.ofMillis(1));
+    filter.revoke(JwtTokens.digest("token-a"));
+    Thread.sleep(10);
+    filter.expireExactEntries();
+
+    assertThat(filter.check(JwtTokens.digest("token-a"))).isEqualTo(RevokedTokenFilter.Status.MAYBE_REVOKED);
+    assertThat(filter.check(JwtTokens.digest("token-b"))).isEqualTo(RevokedTokenFilter.Status.NOT_REVOKED);
+  }
+
+  @Test
+  void forgetsRevocationsOlderThanTheRetention() throws InterruptedException {
+    RevokedTokenFilter filter = filter(Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(1));
+    filter.revoke(JwtTokens.digest("token-a"));
+    Thread.sleep(150);
+    filter.expireExactEntries();
+
+    assertThat(filter.check(JwtTokens.digest("token-a"))).isEqualTo(RevokedTokenFilter.Status.NOT_REVOKED);
+  }
+
+  @Test
+  void keepsFalsePositivesRareAtTheExpectedLoad() {
+    RevokedTokenFilter filter = filter(Duration.ofHours(1), Duration.ofHours(24), Duration.ZERO);
+    for (int i = 0; i < 10_000; i++) {
+      filter.revoke(JwtTokens.digest("revoked-" + i));
+    }
+    filter.expireExactEntries();
+
+    int falsePositives = 0;
+    for (int i = 0; i < 10_000; i++) {
+      assertThat(filter.check(JwtTokens.digest("revoked-" + i))).isNotEqualTo(RevokedTokenFilter.Status.NOT_REVOKED);
+      if (filter.check(JwtTokens.digest("live-" + i)) != RevokedTokenFilter.Status.NOT_REVOKED) {
+        falsePositives++;
+      }
+    }
+    // Sized for about 1%
+    assertThat(falsePositives).isLessThan(300);
+  }
+
+  @Test
+  void isEmptyUntilARevocationAndAgainOnceItAgesOut() throws InterruptedException {
+    RevokedTokenFilter filter = filter(Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(1));
+    assertThat(filter.isEmpty()).isTrue();
+
+    filter.revoke(JwtTokens.digest("token-a"));
+    assertThat(filter.isEmpty()).isFalse();
+
+    // Out of the exact set but still in a live Bloom bucket
+    Thread.sleep(10);
+    filter.expireExactEntries();
+    if (filter.check(JwtTokens.digest("token-a")) == RevokedTokenFilter.Status.MAYBE_REVOKED) {
+      assertThat(filter.isEmpty()).isFalse();
+    }
+
+    Thread.sleep(150);
+    assertThat(filter.isEmpty()).isTrue();
+  }
+
+  private static RevokedTokenFilter filter(Duration bucketWidth, Duration retention, Duration exactWindow) {
+    return new RevokedTokenFilter(bucketWidth, retention, exactWindow, 10_000, new SimpleMeterRegistry());
+  }
+}
@@ -0,0 +1,32 @@
+package com.cash.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class StreamTicketStoreTest {
+
+  private final StreamTicketStore store = new StreamTicketStore(Duration.ofSeconds(30), 100);
+
+  @Test
+  void ticketRedeemsOnceForTheJwtItWasIssuedFor() {
+    String ticket = store.issue("jwt-1");
+
+    assertThat(ticket).isNotEqualTo("jwt-1").doesNotContain("jwt-1");
+    assertThat(store.redeem(ticket)).isEqualTo("jwt-1");
+    assertThat(store.redeem(ticket)).isNull();
+  }
+
+  @Test
+  void ticketsAreDistinct() {
+    assertThat(store.issue("jwt-1")).isNotEqualTo(store.issue("jwt-1"));
+  }
+
+  @Test
+  void unknownOrMissingTicketsRedeemToNothing() {
+    assertThat(store.redeem("nope")).isNull();
+    assertThat(store.redeem(null)).isNull();
+    assertThat(store.redeem(" ")).isNull();
+  }
+}
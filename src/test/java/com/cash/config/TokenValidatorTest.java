@@ -0,0 +1,175 @@
+package com.cash.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.cash.grpc.userservice.ValidateTokenResponse;
+import com.cash.services.UserService;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+class TokenValidatorTest {
+
+  private static final ValidateTokenResponse VALID = ValidateTokenResponse.newBuilder()
+      .setValid(true)
+      .setUserId(7)
+      .build();
+
+  private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+  private final RevocationChannel channel = new RevocationChannel() {
+    @Override
+    public void publish(String tokenDigest) {
+      listeners.forEach(listener -> listener.accept(tokenDigest));
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+      listeners.add(listener);
+    }
+  };
+
+  private UserService userService;
+  private TokenValidator validator;
+
+  @BeforeEach
+  void setUp() {
+    userService = mock(UserService.class);
+    when(userService.validateToken(anyString())).thenReturn(VALID);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    validator = new TokenValidator(userService,
+        new TokenValidationCache(Duration.ofMinutes(5), 100, Duration.ofSeconds(30), 100, registry),
+        mock(LocalJwtVerifier.class),
+        new RevokedTokenFilter(Duration.ofHours(1), Duration.ofHours(24), Duration.ofHours(1), 1000, registry),
+        channel, "remote", Duration.ofSeconds(30), registry);
+  }
+
+  @Test
+  void hashesATokenOnlyToCacheItWhileNothingIsRevoked() {
+    String jwt = token("alice");
+
+    try (MockedStatic<JwtTokens> tokens = mockStatic(JwtTokens.class, Mockito.CALLS_REAL_METHODS)) {
+      assertThat(validator.validate(jwt).getValid()).isTrue();
+      assertThat(validator.validate(jwt).getValid()).isTrue();
+      tokens.verify(() -> JwtTokens.digest(jwt), times(1));
+    }
+    verify(userService, times(1)).validateToken(jwt);
+  }
+
+  @Test
+  void reusesTheCachedDigestOnceSomethingIsRevoked() {
+    String jwt = token("alice");
+    validator.validate(jwt);
+    validator.revoke(token("mallory"));
+
+    try (MockedStatic<JwtTokens> tokens = mockStatic(JwtTokens.class, Mockito.CALLS_REAL_METHODS)) {
+      assertThat(validator.validate(jwt).getValid()).isTrue();
+      tokens.verify(() -> JwtTokens.digest(anyString()), never());
+    }
+  }
+
+  @Test
+  void rejectsACachedTokenRevokedOnAnotherInstance() {
+    String jwt = token("alice");
+    assertThat(validator.validate(jwt).getValid()).isTrue();
+
+    // Only the digest arrives from the other instance, so the cache entry cannot be named
+    listeners.forEach(listener -> listener.accept(JwtTokens.digest(jwt)));
+
+    assertThat(validator.validate(jwt).getValid()).isFalse();
+    assertThat(validator.validate(token("bob")).getValid()).isTrue();
+  }
+
+  @Test
+  void invalidateOnlyForgetsTheCachedResult() {
+    String jwt = token("alice");
+    validator.validate(jwt);
+    validator.invalidate(jwt);
+
+    assertThat(validator.validate(jwt).getValid()).isTrue();
+    verify(userService, times(2)).validateToken(jwt);
+  }
+
+  @Test
+  void remembersARejectionSoAReplayIsNotSentAgain() {
+    String jwt = token("mallory");
+    when(userService.validateToken(jwt)).thenReturn(ValidateTokenResponse.newBuilder().setValid(false).build());
+
+    assertThat(validator.validate(jwt).getValid()).isFalse();
+    assertThat(validator.validate(jwt).getValid()).isFalse();
+    verify(userService, times(1)).validateToken(jwt);
+  }
+
+  @Test
+  void rejectsMalformedAndExpiredTokensWithoutAsking() {
+    String expired = token("alice", System.currentTimeMillis() / 1000 - 3600);
+
+    assertThat(validator.validate("not-a-token").getValid()).isFalse();
+    assertThat(validator.validate("a.b").getValid()).isFalse();
+    assertThat(validator.validate(expired).getValid()).isFalse();
+    verify(userService, never()).validateToken(anyString());
+  }
+
+  @Test
+  void remembersTokenErrorsButNotOutages() {
+    String rejected = token("mallory");
+    String unlucky = token("bob");
+    when(userService.validateToken(rejected)).thenThrow(Status.UNAUTHENTICATED.asRuntimeException());
+    when(userService.validateToken(unlucky)).thenThrow(Status.UNAVAILABLE.asRuntimeException());
+
+    assertThat(validator.validate(rejected).getValid()).isFalse();
+    assertThat(validator.validate(rejected).getValid()).isFalse();
+    assertThatThrownBy(() -> validator.validate(unlucky)).isInstanceOf(StatusRuntimeException.class);
+    assertThatThrownBy(() -> validator.validate(unlucky)).isInstanceOf(StatusRuntimeException.class);
+
+    verify(userService, times(1)).validateToken(rejected);
+    verify(userService, times(2)).validateToken(unlucky);
+  }
+
+  @Test
+  void asksAgainOnceARejectionHasExpired() throws InterruptedException {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    TokenValidator shortMemory = new TokenValidator(userService,
+        new TokenValidationCache(Duration.ofMinutes(5), 100, Duration.ofMillis(50), 100, registry),
+        mock(LocalJwtVerifier.class),
+        new RevokedTokenFilter(Duration.ofHours(1), Duration.ofHours(24), Duration.ofHours(1), 1000, registry),
+        channel, "remote", Duration.ofSeconds(30), registry);
+    String jwt = token("mallory");
+    when(userService.validateToken(jwt)).thenReturn(ValidateTokenResponse.newBuilder().setValid(false).build());
+
+    shortMemory.validate(jwt);
+    Thread.sleep(100);
+    shortMemory.validate(jwt);
+
+    verify(userService, times(2)).validateToken(jwt);
+  }
+
+  static String token(String subject) {
+    return token(subject, System.currentTimeMillis() / 1000 + 3600);
+  }
+
+  static String token(String subject, long exp) {
+    Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    String header = encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8));
+    String payload = encoder.encodeToString(("{\"sub\":\"" + subject + "\",\"exp\":" + exp + "}")
+        .getBytes(StandardCharsets.UTF_8));
+    return header + "." + payload + ".c2ln";
+  }
+}
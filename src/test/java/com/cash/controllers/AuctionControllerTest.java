@@ -0,0 +1,32 @@
+package com.cash.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.cash.grpc.auctionservice.Bid;
+import com.google.protobuf.Timestamp;
+import org.junit.jupiter.api.Test;
+
+class AuctionControllerTest {
+
+    @Test
+    void bidCursorsRoundTripTheTimeAndIdOfTheLastBid() {
+        Bid last = Bid.newBuilder()
+                .setBidId(42)
+                .setBidTime(Timestamp.newBuilder().setSeconds(1_700_000_000L).setNanos(123_456_789))
+                .build();
+
+        assertThat(AuctionController.decodeCursor(AuctionController.encodeCursor(last)))
+                .containsExactly(1_700_000_000L, 123_456_789L, 42L);
+    }
+
+    @Test
+    void refusesBidCursorsWithNanosOrIdsOutOfRange() {
+        for (String cursor : new String[] {Cursors.encode("bid", 1, 1_000_000_000, 3), Cursors.encode("bid", 1, -1, 3),
+                Cursors.encode("bid", 1, 0, Integer.MAX_VALUE + 1L)}) {
+            assertThatThrownBy(() -> AuctionController.decodeCursor(cursor))
+                    .as(cursor)
+                    .hasMessage("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.cash.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class CatalogueControllerTest {
+
+    @Test
+    void cursorsRoundTripTheLastItemId() {
+        assertThat(CatalogueController.decodeCursor(CatalogueController.encodeCursor(0))).isZero();
+        assertThat(CatalogueController.decodeCursor(CatalogueController.encodeCursor(4711))).isEqualTo(4711);
+    }
+
+    @Test
+    void refusesItemIdsBeyondAnInt() {
+        String cursor = Cursors.encode("id", Integer.MAX_VALUE + 1L);
+
+        assertThatThrownBy(() -> CatalogueController.decodeCursor(cursor)).hasMessage("Invalid cursor");
+    }
+}
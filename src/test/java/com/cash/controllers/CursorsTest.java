@@ -0,0 +1,41 @@
+package com.cash.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.junit.jupiter.api.Test;
+
+class CursorsTest {
+
+    @Test
+    void roundTripsTheFields() {
+        String cursor = Cursors.encode("pos", Long.MAX_VALUE, -1, 0);
+
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+        assertThat(Cursors.decode(cursor, "pos", 3)).containsExactly(Long.MAX_VALUE, -1L, 0L);
+    }
+
+    @Test
+    void refusesMalformedCursors() {
+        for (String cursor : new String[] {"", "not base64!", encode("pos:1"), encode("pos:1:2:3"), encode("id:1:2"),
+                encode("pos:1:"), encode("pos:x:2"), encode("pos:1:99999999999999999999")}) {
+            assertThatThrownBy(() -> Cursors.decode(cursor, "pos", 2))
+                    .as(cursor)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid cursor");
+        }
+    }
+
+    @Test
+    void refusesFieldsOutOfRange() {
+        assertThat(Cursors.field(5, 0, 5)).isEqualTo(5);
+        assertThatThrownBy(() -> Cursors.field(-1, 0, 5)).hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> Cursors.field(6, 0, 5)).hasMessage("Invalid cursor");
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,23 @@
+package com.cash.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class PaymentRouterControllerTest {
+
+    @Test
+    void historyCursorsRoundTripThePageAndItsSize() {
+        String cursor = PaymentRouterController.encodeHistoryCursor(3, 25);
+
+        assertThat(PaymentRouterController.decodeHistoryCursor(cursor)).containsExactly(3, 25);
+    }
+
+    @Test
+    void refusesHistoryCursorsWithANegativePage() {
+        String cursor = Cursors.encode("page", -1, 25);
+
+        assertThatThrownBy(() -> PaymentRouterController.decodeHistoryCursor(cursor)).hasMessage("Invalid cursor");
+    }
+}
@@ -0,0 +1,65 @@
+package com.cash.controllers;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.cash.config.AuthenticationInterceptor;
+import com.cash.config.BiddingSessionManager;
+import com.cash.config.StreamTicketStore;
+import com.cash.config.TokenValidator;
+import com.cash.dtos.LogoutRequestDto;
+import com.cash.grpc.userservice.LogoutResponse;
+import com.cash.services.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class UserControllerTest {
+
+    private UserService userService;
+    private TokenValidator tokenValidator;
+    private UserController controller;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        tokenValidator = mock(TokenValidator.class);
+        controller = new UserController(userService, mock(BiddingSessionManager.class), tokenValidator,
+                mock(StreamTicketStore.class));
+        request = new MockHttpServletRequest("POST", "/api/users/logout");
+        request.setAttribute(AuthenticationInterceptor.ATTR_USER_ID, 7);
+        request.setAttribute(AuthenticationInterceptor.ATTR_JWT, "header-token");
+    }
+
+    @Test
+    void logoutRevokesTheHeaderTokenAndDropsTheBodyTokenLocally() {
+        when(userService.logout("body-token", 7)).thenReturn(LogoutResponse.newBuilder().setSuccess(true).build());
+
+        controller.logout(logout("body-token"), request);
+
+        verify(tokenValidator).revoke("header-token");
+        verify(tokenValidator).invalidate("body-token");
+        verify(tokenValidator, never()).revoke("body-token");
+    }
+
+    @Test
+    void failedLogoutLeavesTokensAlone() {
+        when(userService.logout("body-token", 7)).thenReturn(LogoutResponse.newBuilder().setSuccess(false).build());
+
+        controller.logout(logout("body-token"), request);
+
+        verify(tokenValidator, never()).revoke(anyString());
+        verify(tokenValidator, never()).invalidate(anyString());
+    }
+
+    private static LogoutRequestDto logout(String jwt) {
+        LogoutRequestDto dto = new LogoutRequestDto();
+        dto.setJwt(jwt);
+        dto.setUserId(7);
+        return dto;
+    }
+}
@@ -0,0 +1,209 @@
+package com.cash.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.cash.grpc.auctionservice.AuctionServiceGrpc;
+import com.cash.grpc.auctionservice.GetAuctionEndRequest;
+import com.cash.grpc.auctionservice.GetAuctionEndResponse;
+import com.cash.grpc.auctionservice.GetAuctionEndsRequest;
+import com.cash.grpc.auctionservice.GetAuctionEndsResponse;
+import com.cash.grpc.auctionservice.GetAuctionStatusRequest;
+import com.cash.grpc.auctionservice.GetAuctionStatusResponse;
+import com.cash.grpc.auctionservice.GetAuctionStatusesRequest;
+import com.cash.grpc.auctionservice.GetAuctionStatusesResponse;
+import com.cash.grpc.auctionservice.GetAuctionWinnerRequest;
+import com.cash.grpc.auctionservice.GetBidHistoryResponse;
+import com.cash.grpc.auctionservice.GetAuctionWinnerResponse;
+import com.cash.grpc.auctionservice.GetAuctionWinnersRequest;
+import com.cash.grpc.auctionservice.GetAuctionWinnersResponse;
+import com.google.protobuf.Timestamp;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AuctionServiceTest {
+
+    private final AuctionServiceGrpc.AuctionServiceBlockingStub stub = mock(AuctionServiceGrpc.AuctionServiceBlockingStub.class);
+    private final ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
+
+    // What the fake auction-service answers, by catalogue id
+    private final Map<Integer, Long> endMillis = new HashMap<>();
+    private final Map<Integer, GetAuctionWinnerResponse> leaders = new HashMap<>();
+    // Auctions the fake auction-service still considers running, whatever their end time says
+    private final Set<Integer> running = new HashSet<>();
+
+    private AuctionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = service(Duration.ZERO);
+
+        when(stub.getAuctionEnd(any())).thenAnswer(call -> end(((GetAuctionEndRequest) call.getArgument(0)).getCatalogueId()));
+        when(stub.getAuctionWinner(any())).thenAnswer(call -> leader(((GetAuctionWinnerRequest) call.getArgument(0)).getCatalogueId()));
+        when(stub.getAuctionEnds(any())).thenAnswer(call -> {
+            GetAuctionEndsResponse.Builder response = GetAuctionEndsResponse.newBuilder();
+            ((GetAuctionEndsRequest) call.getArgument(0)).getCatalogueIdsList().forEach(id -> response.putEnds(id, end(id)));
+            return response.build();
+        });
+        when(stub.getAuctionWinners(any())).thenAnswer(call -> {
+            GetAuctionWinnersResponse.Builder response = GetAuctionWinnersResponse.newBuilder();
+            ((GetAuctionWinnersRequest) call.getArgument(0)).getCatalogueIdsList().forEach(id -> response.putWinners(id, leader(id)));
+            return response.build();
+        });
+        when(stub.getAuctionStatus(any())).thenAnswer(call -> status(((GetAuctionStatusRequest) call.getArgument(0)).getCatalogueId()));
+        when(stub.getAuctionStatuses(any())).thenAnswer(call -> {
+            GetAuctionStatusesResponse.Builder response = GetAuctionStatusesResponse.newBuilder();
+            ((GetAuctionStatusesRequest) call.getArgument(0)).getCatalogueIdsList().forEach(id -> response.putStatuses(id, status(id)));
+            return response.build();
+        });
+    }
+
+    private AuctionService service(Duration settleMargin) {
+        // No batching window, so single lookups go straight to the single RPCs
+        AuctionService created = new AuctionService(events, 4, Duration.ofSeconds(5), true, Duration.ZERO, 100,
+                Duration.ZERO, 100, 100, settleMargin, Duration.ofSeconds(30), 1000, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(created, "auctionServiceStub", stub);
+        return created;
+    }
+
+    @Test
+    void announcesAWinnerFoundAfterTheEnd() {
+        auction(1, System.currentTimeMillis() - 1000, 7, 150);
+
+        assertThat(service.getAuctionWinner(1).getWinnerUserId()).isEqualTo(7);
+
+        verify(events).publishEvent(new AuctionWinnerEvent(1, 7, 150));
+    }
+
+    @Test
+    void announcesACachedWinnerOnlyOnce() {
+        auction(1, System.currentTimeMillis() - 1000, 7, 150);
+
+        service.getAuctionWinner(1);
+        service.getAuctionWinner(1);
+        service.getAuctionWinners(List.of(1));
+
+        verify(events, times(1)).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void neverReportsTheLeaderOfARunningAuction() {
+        auction(1, System.currentTimeMillis() + 60_000, 7, 150);
+
+        assertThat(service.getAuctionWinner(1).getFound()).isFalse();
+
+        verify(stub, never()).getAuctionWinner(any());
+        verify(events, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void batchLookupsOnlyReportEndedAuctions() {
+        auction(1, System.currentTimeMillis() - 1000, 7, 150);
+        auction(2, System.currentTimeMillis() + 60_000, 8, 90);
+
+        BoundedFanOut.Result<GetAuctionWinnerResponse> result = service.getAuctionWinners(List.of(1, 2));
+
+        assertThat(result.results()).extracting(GetAuctionWinnerResponse::getFound).containsExactly(true, false);
+        assertThat(result.results().get(0).getWinnerUserId()).isEqualTo(7);
+        verify(events).publishEvent(new AuctionWinnerEvent(1, 7, 150));
+        verify(events, never()).publishEvent(new AuctionWinnerEvent(2, 8, 90));
+    }
+
+    @Test
+    void waitsForTheAuctionServiceToConfirmTheEnd() {
+        auction(1, System.currentTimeMillis() - 1000, 7, 150);
+        // The router's clock says the auction is over, the auction-service's does not
+        running.add(1);
+
+        assertThat(service.getAuctionWinner(1).getFound()).isFalse();
+        assertThat(service.getAuctionWinners(List.of(1)).results().get(0).getFound()).isFalse();
+        assertThat(service.knownAuctionWinner(1)).isNull();
+
+        running.remove(1);
+        assertThat(service.getAuctionWinner(1).getWinnerUserId()).isEqualTo(7);
+    }
+
+    @Test
+    void doesNotAskBeforeTheSettleMarginHasPassed() {
+        service = service(Duration.ofMinutes(1));
+        auction(1, System.currentTimeMillis() - 1000, 7, 150);
+
+        assertThat(service.getAuctionWinner(1).getFound()).isFalse();
+
+        verify(stub, never()).getAuctionStatus(any());
+        verify(stub, never()).getAuctionWinner(any());
+    }
+
+    @Test
+    void treatsABidHistoryAsFinalOnlyOnceTheEndIsConfirmed() {
+        when(stub.getBidHistory(any())).thenReturn(GetBidHistoryResponse.newBuilder().setSuccess(true).build());
+        auction(1, System.currentTimeMillis() - 1000, 7, 150);
+        auction(2, System.currentTimeMillis() - 1000, 7, 150);
+        running.add(1);
+
+        assertThat(service.getBidHistory(1).ended()).isFalse();
+        assertThat(service.getBidHistory(2).ended()).isTrue();
+    }
+
+    @Test
+    void fetchedWinnersBypassTheCache() {
+        auction(1, System.currentTimeMillis() - 1000, 7, 150);
+        service.getAuctionWinners(List.of(1));
+
+        // The auction-service now reports another winner than the cached one
+        auction(1, System.currentTimeMillis() - 1000, 8, 150);
+
+        assertThat(service.getAuctionWinners(List.of(1)).results())
+                .extracting(GetAuctionWinnerResponse::getWinnerUserId).containsExactly(7);
+        assertThat(service.fetchAuctionWinners(List.of(1)).results())
+                .extracting(GetAuctionWinnerResponse::getWinnerUserId).containsExactly(8);
+        assertThat(service.knownAuctionWinner(1).getWinnerUserId()).isEqualTo(8);
+    }
+
+    private void auction(int catalogueId, long end, int leader, int price) {
+        endMillis.put(catalogueId, end);
+        leaders.put(catalogueId, GetAuctionWinnerResponse.newBuilder()
+                .setFound(true)
+                .setWinnerUserId(leader)
+                .setFinalPrice(price)
+                .build());
+    }
+
+    private GetAuctionEndResponse end(int catalogueId) {
+        Long end = endMillis.get(catalogueId);
+        if (end == null) {
+            return GetAuctionEndResponse.newBuilder().setFound(false).build();
+        }
+        return GetAuctionEndResponse.newBuilder()
+                .setFound(true)
+                .setEndTime(Timestamp.newBuilder().setSeconds(end / 1000).setNanos((int) (end % 1000) * 1_000_000))
+                .build();
+    }
+
+    private GetAuctionStatusResponse status(int catalogueId) {
+        Long end = endMillis.get(catalogueId);
+        if (end == null) {
+            return GetAuctionStatusResponse.newBuilder().setSuccess(false).build();
+        }
+        long remaining = running.contains(catalogueId) ? 60 : Math.max(0, (end - System.currentTimeMillis() + 999) / 1000);
+        return GetAuctionStatusResponse.newBuilder().setSuccess(true).setRemainingTime((int) remaining).build();
+    }
+
+    private GetAuctionWinnerResponse leader(int catalogueId) {
+        return leaders.getOrDefault(catalogueId, GetAuctionWinnerResponse.newBuilder().setFound(false).build());
+    }
+}
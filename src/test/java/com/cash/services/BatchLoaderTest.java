@@ -0,0 +1,207 @@
+package com.cash.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class BatchLoaderTest {
+
+    private final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+    private final AtomicInteger singleCalls = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void collectsConcurrentLookupsIntoOneBatch() throws Exception {
+        BatchLoader<String> loader = loader(Duration.ofMillis(100), 100, this::answer);
+
+        List<Future<String>> lookups = new ArrayList<>();
+        for (int key : new int[] {1, 2, 3, 2, 1}) {
+            lookups.add(executor.submit(() -> loader.load(key)));
+        }
+
+        List<String> results = new ArrayList<>();
+        for (Future<String> lookup : lookups) {
+            results.add(lookup.get(2, TimeUnit.SECONDS));
+        }
+        assertThat(results).containsExactly("v1", "v2", "v3", "v2", "v1");
+        // Repeated keys share one slot
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).containsExactlyInAnyOrder(1, 2, 3);
+        assertThat(singleCalls).hasValue(0);
+    }
+
+    @Test
+    void sendsAFullBatchWithoutWaitingForTheWindow() throws Exception {
+        BatchLoader<String> loader = loader(Duration.ofSeconds(30), 3, this::answer);
+
+        long started = System.nanoTime();
+        List<Future<String>> lookups = new ArrayList<>();
+        for (int key = 1; key <= 3; key++) {
+            int k = key;
+            lookups.add(executor.submit(() -> loader.load(k)));
+        }
+        for (Future<String> lookup : lookups) {
+            lookup.get(2, TimeUnit.SECONDS);
+        }
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(2));
+        assertThat(batches).hasSize(1);
+    }
+
+    @Test
+    void switchesToSingleCallsForGoodWhenBatchingIsUnimplemented() {
+        AtomicInteger batchAttempts = new AtomicInteger();
+        BatchLoader<String> loader = loader(Duration.ofMillis(5), 100, keys -> {
+            batchAttempts.incrementAndGet();
+            throw Status.UNIMPLEMENTED.asRuntimeException();
+        });
+
+        assertThat(loader.load(1)).isEqualTo("v1");
+        assertThat(loader.batchSupported()).isFalse();
+        assertThat(loader.load(2)).isEqualTo("v2");
+        assertThat(loader.loadAll(List.of(3, 4))).containsEntry(3, "v3").containsEntry(4, "v4");
+
+        assertThat(batchAttempts).hasValue(1);
+        assertThat(singleCalls).hasValue(4);
+    }
+
+    @Test
+    void runsTheBatchWithTheEarliestCallerDeadline() throws Exception {
+        AtomicReference<Deadline> batchDeadline = new AtomicReference<>();
+        BatchLoader<String> loader = loader(Duration.ofMillis(50), 100, keys -> {
+            batchDeadline.set(Context.current().getDeadline());
+            return answer(keys);
+        });
+        Deadline early = Deadline.after(5, TimeUnit.SECONDS);
+
+        Future<String> first = executor.submit(() -> withDeadline(early, () -> loader.load(1)));
+        Future<String> second = executor.submit(() -> withDeadline(Deadline.after(30, TimeUnit.SECONDS), () -> loader.load(2)));
+        Future<String> third = executor.submit(() -> loader.load(3));
+
+        assertThat(first.get(2, TimeUnit.SECONDS)).isEqualTo("v1");
+        assertThat(second.get(2, TimeUnit.SECONDS)).isEqualTo("v2");
+        assertThat(third.get(2, TimeUnit.SECONDS)).isEqualTo("v3");
+        assertThat(batches).hasSize(1);
+        assertThat(batchDeadline.get()).isEqualTo(early);
+    }
+
+    @Test
+    void givesUpAtTheCallerDeadline() {
+        BatchLoader<String> loader = loader(Duration.ofMillis(5), 100, keys -> untilCancelled());
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> withDeadline(Deadline.after(100, TimeUnit.MILLISECONDS), () -> loader.load(1)))
+                .isInstanceOfSatisfying(StatusRuntimeException.class, e ->
+                        assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.DEADLINE_EXCEEDED));
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void cancelsTheBatchOnceEveryCallerHasGivenUp() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        AtomicReference<Throwable> cancellation = new AtomicReference<>();
+        CountDownLatch cancelled = new CountDownLatch(1);
+        // Sent only once full, so both callers are sure to share the batch
+        BatchLoader<String> loader = loader(Duration.ofSeconds(30), 2, keys -> {
+            Context.current().addListener(context -> {
+                cancellation.set(context.cancellationCause());
+                cancelled.countDown();
+            }, Runnable::run);
+            running.countDown();
+            return untilCancelled();
+        });
+
+        // Neither caller has a deadline; both are interrupted, as BoundedFanOut does with abandoned calls
+        Future<String> first = executor.submit(() -> loader.load(1));
+        Future<String> second = executor.submit(() -> loader.load(2));
+        assertThat(running.await(2, TimeUnit.SECONDS)).isTrue();
+        first.cancel(true);
+        assertThat(cancelled.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        second.cancel(true);
+
+        assertThat(cancelled.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(cancellation.get()).hasMessageContaining("Every caller gave up");
+    }
+
+    @Test
+    void retriesAloneWhenTheBatchRanOutOfAnotherCallersTime() throws Exception {
+        BatchLoader<String> loader = loader(Duration.ofMillis(50), 100, keys -> {
+            // Outlives the short deadline, which the batch call inherits
+            return untilCancelled();
+        });
+
+        Future<String> hurried = executor.submit(() -> withDeadline(Deadline.after(100, TimeUnit.MILLISECONDS), () -> loader.load(1)));
+        Future<String> patient = executor.submit(() -> loader.load(2));
+
+        assertThat(patient.get(2, TimeUnit.SECONDS)).isEqualTo("v2");
+        assertThatThrownBy(() -> hurried.get(2, TimeUnit.SECONDS)).hasCauseInstanceOf(StatusRuntimeException.class);
+        assertThat(singleCalls).hasValue(1);
+    }
+
+    private BatchLoader<String> loader(Duration window, int maxBatchSize,
+            Function<List<Integer>, Map<Integer, String>> batchCall) {
+        return new BatchLoader<>("test", batchCall, key -> {
+            singleCalls.incrementAndGet();
+            return "v" + key;
+        }, window, maxBatchSize, new SimpleMeterRegistry());
+    }
+
+    private Map<Integer, String> answer(List<Integer> keys) {
+        batches.add(List.copyOf(keys));
+        Map<Integer, String> values = new HashMap<>();
+        keys.forEach(key -> values.put(key, "v" + key));
+        return values;
+    }
+
+    private <T> T withDeadline(Deadline deadline, Callable<T> call) throws Exception {
+        Context.CancellableContext context = Context.current().withDeadline(deadline, scheduler);
+        try {
+            return context.call(call);
+        } finally {
+            context.cancel(null);
+        }
+    }
+
+    // Behaves like a blocking gRPC call that never gets an answer
+    private static Map<Integer, String> untilCancelled() {
+        CountDownLatch done = new CountDownLatch(1);
+        Context.current().addListener(context -> done.countDown(), Runnable::run);
+        try {
+            done.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw Contexts.statusFromCancelled(Context.current()).asRuntimeException();
+    }
+}
@@ -0,0 +1,56 @@
+package com.cash.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.cash.grpc.auctionservice.Bid;
+import com.google.protobuf.Timestamp;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class BidHistoryTest {
+
+    @Test
+    void sortsByBidTimeThenBidId() {
+        BidHistory history = BidHistory.of(List.of(bid(3, 20, 0), bid(1, 10, 5), bid(4, 10, 5), bid(2, 10, 0)), false);
+
+        assertThat(history.bids()).extracting(Bid::getBidId).containsExactly(2, 1, 4, 3);
+    }
+
+    @Test
+    void versionDependsOnlyOnTheBidsNotOnTheirOrder() {
+        BidHistory first = BidHistory.of(List.of(bid(1, 10, 0), bid(2, 11, 0)), false);
+        BidHistory refetched = BidHistory.of(List.of(bid(2, 11, 0), bid(1, 10, 0)), false);
+        BidHistory grown = BidHistory.of(List.of(bid(1, 10, 0), bid(2, 11, 0), bid(3, 12, 0)), false);
+
+        assertThat(refetched.version()).isEqualTo(first.version());
+        assertThat(grown.version()).isNotEqualTo(first.version());
+    }
+
+    @Test
+    void pagesAfterAKeyRatherThanAPosition() {
+        BidHistory before = BidHistory.of(List.of(bid(1, 10, 0), bid(2, 11, 0), bid(3, 12, 0)), false);
+        int next = before.indexAfter(11, 0, 2);
+        assertThat(before.bids().subList(next, before.bids().size())).extracting(Bid::getBidId).containsExactly(3);
+
+        // A late bid sorting in before the cursor does not shift the next page
+        BidHistory after = BidHistory.of(List.of(bid(1, 10, 0), bid(4, 10, 500), bid(2, 11, 0), bid(3, 12, 0)), false);
+        next = after.indexAfter(11, 0, 2);
+        assertThat(after.bids().subList(next, after.bids().size())).extracting(Bid::getBidId).containsExactly(3);
+    }
+
+    @Test
+    void indexAfterAKeyThatIsNotInTheHistory() {
+        BidHistory history = BidHistory.of(List.of(bid(1, 10, 0), bid(2, 12, 0)), false);
+
+        assertThat(history.indexAfter(11, 0, 99)).isEqualTo(1);
+        assertThat(history.indexAfter(0, 0, 0)).isZero();
+        assertThat(history.indexAfter(99, 0, 0)).isEqualTo(2);
+    }
+
+    private static Bid bid(int bidId, long seconds, int nanos) {
+        return Bid.newBuilder()
+                .setBidId(bidId)
+                .setBidTime(Timestamp.newBuilder().setSeconds(seconds).setNanos(nanos))
+                .build();
+    }
+}
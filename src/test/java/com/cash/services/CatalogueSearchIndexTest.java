@@ -0,0 +1,111 @@
+package com.cash.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.cash.grpc.catalogue.ItemList;
+import com.cash.grpc.catalogue.ItemResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CatalogueSearchIndexTest {
+
+    private CatalogueService catalogueService;
+    private CatalogueSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        catalogueService = mock(CatalogueService.class);
+        index = new CatalogueSearchIndex(catalogueService, true, false, Duration.ofMinutes(1), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void goesToTheCatalogueServiceUntilTheFirstSnapshot() {
+        ItemList remote = ItemList.newBuilder().addItems(item(9, "Remote lamp")).build();
+        when(catalogueService.searchItems("lamp")).thenReturn(remote);
+
+        assertThat(ids(index.search("lamp"))).containsExactly(9);
+    }
+
+    @Test
+    void matchesSubstringsOfTheTitleIgnoringCase() {
+        refresh(System.currentTimeMillis(), item(1, "Brass Desk Lamp"), item(2, "Lampshade"), item(3, "Oak desk"));
+
+        assertThat(ids(index.search("LAMP"))).containsExactly(1, 2);
+        assertThat(ids(index.search("sk"))).containsExactly(1, 3);
+        assertThat(ids(index.search("desk l"))).containsExactly(1);
+        assertThat(index.search("teapot")).isEmpty();
+        verify(catalogueService, never()).searchItems("LAMP");
+    }
+
+    @Test
+    void keepsTheOrderOfTheListing() {
+        refresh(System.currentTimeMillis(), item(5, "red chair"), item(2, "blue chair"), item(7, "green chair"));
+
+        assertThat(ids(index.search("chair"))).containsExactly(5, 2, 7);
+    }
+
+    @Test
+    void appliesChangedAndRemovedItems() {
+        refresh(System.currentTimeMillis(), item(1, "Old clock"), item(2, "Old map"), item(3, "Globe"));
+        refresh(System.currentTimeMillis(), item(1, "Antique clock"), item(3, "Old globe"));
+
+        assertThat(ids(index.search("old"))).containsExactly(3);
+        assertThat(ids(index.search("antique"))).containsExactly(1);
+        assertThat(index.search("map")).isEmpty();
+    }
+
+    @Test
+    void staysCorrectAcrossCompactions() {
+        for (int round = 0; round < 10; round++) {
+            List<ItemResponse> items = new ArrayList<>();
+            for (int id = 1; id <= 20; id++) {
+                items.add(item(id, "item " + id + " round " + round));
+            }
+            refresh(System.currentTimeMillis(), items.toArray(ItemResponse[]::new));
+        }
+
+        assertThat(ids(index.search("round 9"))).hasSize(20);
+        assertThat(index.search("round 8")).isEmpty();
+        assertThat(ids(index.search("item 17 "))).containsExactly(17);
+    }
+
+    @Test
+    void matchesDescriptionsWithoutSpanningIntoThem() {
+        index = new CatalogueSearchIndex(catalogueService, true, true, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        refresh(System.currentTimeMillis(),
+                ItemResponse.newBuilder().setId(1).setTitle("Vase").setDescription("Hand-blown glass").build());
+
+        assertThat(ids(index.search("glass"))).containsExactly(1);
+        assertThat(index.search("vasehand")).isEmpty();
+    }
+
+    @Test
+    void goesToTheCatalogueServiceWhenTheSnapshotIsStale() {
+        refresh(System.currentTimeMillis() - Duration.ofMinutes(2).toMillis(), item(1, "Lamp"));
+        when(catalogueService.searchItems("lamp")).thenReturn(ItemList.getDefaultInstance());
+
+        assertThat(index.search("lamp")).isEmpty();
+        verify(catalogueService).searchItems("lamp");
+    }
+
+    private void refresh(long builtAt, ItemResponse... items) {
+        index.onSnapshotRefreshed(new CatalogueSnapshot.Refreshed(
+                CatalogueSnapshot.Snapshot.of(List.of(items), builtAt, 0)));
+    }
+
+    private static ItemResponse item(int id, String title) {
+        return ItemResponse.newBuilder().setId(id).setTitle(title).build();
+    }
+
+    private static List<Integer> ids(List<ItemResponse> items) {
+        return items.stream().map(ItemResponse::getId).toList();
+    }
+}
@@ -0,0 +1,79 @@
+package com.cash.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.cash.grpc.catalogue.CatalogueServiceGrpc;
+import com.cash.grpc.catalogue.DeactivateItemResponse;
+import com.cash.grpc.catalogue.ItemResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class CatalogueServiceTest {
+
+    private final CatalogueServiceGrpc.CatalogueServiceBlockingStub stub = mock(CatalogueServiceGrpc.CatalogueServiceBlockingStub.class);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private CatalogueService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CatalogueService(mock(ApplicationEventPublisher.class), Duration.ofSeconds(5),
+                Duration.ofHours(24), 100, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "blockingStub", stub);
+        when(stub.deactivateItem(any())).thenReturn(DeactivateItemResponse.getDefaultInstance());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void cachesTheItem() {
+        when(stub.getItem(any())).thenReturn(item(true));
+
+        service.getItem(1);
+        service.getItem(1);
+
+        verify(stub, times(1)).getItem(any());
+    }
+
+    @Test
+    void doesNotCacheALoadOvertakenByADeactivation() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch deactivated = new CountDownLatch(1);
+        when(stub.getItem(any())).thenAnswer(call -> {
+            loading.countDown();
+            deactivated.await(2, TimeUnit.SECONDS);
+            return item(true);
+        }).thenReturn(item(false));
+
+        Future<ItemResponse> load = executor.submit(() -> service.getItem(1));
+        assertThat(loading.await(2, TimeUnit.SECONDS)).isTrue();
+        service.deactivateItem(1);
+        deactivated.countDown();
+
+        // The load answers its caller with what it got, but must not cache it
+        assertThat(load.get(2, TimeUnit.SECONDS).getActive()).isTrue();
+        assertThat(service.getItem(1).getActive()).isFalse();
+    }
+
+    private static ItemResponse item(boolean active) {
+        return ItemResponse.newBuilder().setId(1).setTitle("item 1").setActive(active).build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.cash.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class EpochGuardedCacheTest {
+
+    private record Key(int group, String name) {
+    }
+
+    private final EpochGuardedCache<Key, String> cache =
+            new EpochGuardedCache<>(Caffeine.newBuilder().build(), Key::group);
+
+    @Test
+    void storesAValueLoadedWithoutAnEviction() {
+        Key key = new Key(1, "a");
+        long stamp = cache.stamp(1);
+
+        cache.putIfNotEvicted(key, "value", stamp);
+
+        assertThat(cache.getIfPresent(key)).isEqualTo("value");
+    }
+
+    @Test
+    void dropsAValueLoadedBeforeItsGroupWasEvicted() {
+        Key key = new Key(1, "a");
+        long stamp = cache.stamp(1);
+        cache.evict(1, List.of(key));
+
+        cache.putIfNotEvicted(key, "stale", stamp);
+
+        assertThat(cache.getIfPresent(key)).isNull();
+    }
+
+    @Test
+    void evictsEveryGivenKeyOfTheGroup() {
+        Key a = new Key(1, "a");
+        Key b = new Key(1, "b");
+        Key other = new Key(2, "a");
+        cache.putIfNotEvicted(a, "a", cache.stamp(1));
+        cache.putIfNotEvicted(b, "b", cache.stamp(1));
+        cache.putIfNotEvicted(other, "other", cache.stamp(2));
+
+        cache.evict(1, List.of(a, b));
+
+        assertThat(cache.getIfPresent(a)).isNull();
+        assertThat(cache.getIfPresent(b)).isNull();
+        assertThat(cache.getIfPresent(other)).isEqualTo("other");
+    }
+}
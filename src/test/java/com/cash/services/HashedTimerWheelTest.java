@@ -0,0 +1,102 @@
+package com.cash.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class HashedTimerWheelTest {
+
+    private static final Duration TICK = Duration.ofMillis(10);
+
+    // Four slots of 10ms, so one turn of the wheel is 40ms
+    private final HashedTimerWheel wheel = new HashedTimerWheel("test-wheel", TICK, 4, Runnable::run);
+
+    @AfterEach
+    void tearDown() {
+        wheel.close();
+    }
+
+    @Test
+    void waitsOutFullTurnsBeforeRunning() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        long started = System.nanoTime();
+        long[] ranAfterMillis = new long[1];
+        wheel.schedule(() -> {
+            ranAfterMillis[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            ran.countDown();
+        }, System.currentTimeMillis() + 150);
+
+        assertThat(ran.await(2, TimeUnit.SECONDS)).isTrue();
+        // Never early by more than a tick, although the slot comes round three times before
+        assertThat(ranAfterMillis[0]).isBetween(140L, 1000L);
+        assertThat(wheel.pending()).isZero();
+    }
+
+    @Test
+    void runsTimersSharingASlotInDeadlineOrder() throws InterruptedException {
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch ran = new CountDownLatch(3);
+        long now = System.currentTimeMillis();
+        // 40ms apart, so all three hash to the same slot but differ in rounds
+        for (int turn : new int[] {2, 0, 1}) {
+            wheel.schedule(() -> {
+                order.add(turn);
+                ran.countDown();
+            }, now + 300 + turn * 40L);
+        }
+
+        assertThat(ran.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void runsPastTimesOnTheNextTick() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        wheel.schedule(ran::countDown, System.currentTimeMillis() - 1000);
+
+        assertThat(ran.await(500, TimeUnit.MILLISECONDS)).isTrue();
+    }
+
+    @Test
+    void cancelledTimersNeverRun() throws InterruptedException {
+        AtomicBoolean ran = new AtomicBoolean();
+        CountDownLatch later = new CountDownLatch(1);
+        long now = System.currentTimeMillis();
+        HashedTimerWheel.Timeout timeout = wheel.schedule(() -> ran.set(true), now + 200);
+        wheel.schedule(later::countDown, now + 300);
+        boolean cancelled = timeout.cancel();
+        boolean cancelledAgain = timeout.cancel();
+
+        assertThat(cancelled).isTrue();
+        assertThat(cancelledAgain).isFalse();
+        assertThat(wheel.pending()).isEqualTo(1);
+        assertThat(later.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(ran).isFalse();
+    }
+
+    @Test
+    void runsEachOfManyTimersOnce() throws InterruptedException {
+        ConcurrentHashMap<Integer, Integer> runs = new ConcurrentHashMap<>();
+        CountDownLatch ran = new CountDownLatch(500);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 500; i++) {
+            int id = i;
+            wheel.schedule(() -> {
+                runs.merge(id, 1, Integer::sum);
+                ran.countDown();
+            }, now + (i % 25) * 7L);
+        }
+
+        assertThat(ran.await(2, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(50);
+        assertThat(runs).hasSize(500).allSatisfy((id, count) -> assertThat(count).isEqualTo(1));
+    }
+}
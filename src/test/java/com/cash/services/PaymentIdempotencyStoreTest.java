@@ -0,0 +1,258 @@
+package com.cash.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.cash.exceptions.ConflictException;
+import com.ecommerce.payment.grpc.PaymentResponse;
+import com.ecommerce.payment.grpc.ReceiptInfo;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+class PaymentIdempotencyStoreTest {
+
+    @TempDir
+    Path journalDir;
+
+    private final AtomicInteger charges = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void replaysTheStoredAnswer() throws IOException {
+        PaymentIdempotencyStore store = store(100, "");
+
+        PaymentIdempotencyStore.Outcome first = store.execute(1, "key", "item-1", charge(11));
+        PaymentIdempotencyStore.Outcome second = store.execute(1, "key", "item-1", charge(12));
+
+        assertThat(first.replayed()).isFalse();
+        assertThat(second.replayed()).isTrue();
+        assertThat(second.response().getPaymentId()).isEqualTo(11);
+        assertThat(charges).hasValue(1);
+    }
+
+    @Test
+    void scopesKeysToTheUser() throws IOException {
+        PaymentIdempotencyStore store = store(100, "");
+
+        store.execute(1, "key", "item-1", charge(11));
+        PaymentIdempotencyStore.Outcome other = store.execute(2, "key", "item-1", charge(21));
+
+        assertThat(other.replayed()).isFalse();
+        assertThat(other.response().getPaymentId()).isEqualTo(21);
+    }
+
+    @Test
+    void refusesAKeyReusedForADifferentRequest() throws IOException {
+        PaymentIdempotencyStore store = store(100, "");
+        store.execute(1, "key", "item-1", charge(11));
+
+        assertThatThrownBy(() -> store.execute(1, "key", "item-2", charge(12)))
+                .isInstanceOf(ConflictException.class);
+        assertThat(charges).hasValue(1);
+    }
+
+    @Test
+    void releasesTheKeyWhenTheAttemptFailsBeforeCharging() throws IOException {
+        PaymentIdempotencyStore store = store(100, "");
+
+        assertThatThrownBy(() -> store.execute(1, "key", "item-1", charging -> {
+            throw Status.UNAVAILABLE.asRuntimeException();
+        })).isInstanceOf(StatusRuntimeException.class);
+        PaymentIdempotencyStore.Outcome retry = store.execute(1, "key", "item-1", charge(11));
+
+        assertThat(retry.replayed()).isFalse();
+        assertThat(retry.response().getPaymentId()).isEqualTo(11);
+    }
+
+    @Test
+    void releasesTheKeyWhenThePaymentServiceRefuses() throws IOException {
+        PaymentIdempotencyStore store = store(100, "");
+
+        assertThatThrownBy(() -> store.execute(1, "key", "item-1", failingCharge(Status.FAILED_PRECONDITION)))
+                .isInstanceOf(StatusRuntimeException.class);
+        PaymentIdempotencyStore.Outcome retry = store.execute(1, "key", "item-1", charge(11));
+
+        assertThat(retry.response().getPaymentId()).isEqualTo(11);
+    }
+
+    @Test
+    void keepsTheKeyWhenTheChargeMayHaveGoneThrough() throws IOException {
+        PaymentIdempotencyStore store = store(100, "");
+
+        assertThatThrownBy(() -> store.execute(1, "key", "item-1", failingCharge(Status.DEADLINE_EXCEEDED)))
+                .isInstanceOf(StatusRuntimeException.class);
+
+        assertThatThrownBy(() -> store.execute(1, "key", "item-1", charge(11)))
+                .isInstanceOf(ConflictException.class)
+                .hasMessageContaining("unknown outcome");
+        assertThat(charges).hasValue(1);
+    }
+
+    @Test
+    void duplicatesWaitForTheRunningPayment() throws Exception {
+        PaymentIdempotencyStore store = store(100, "");
+        CountDownLatch charging = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<PaymentIdempotencyStore.Outcome> first = executor.submit(() -> store.execute(1, "key", "item-1", sending -> {
+            sending.run();
+            charging.countDown();
+            await(release);
+            charges.incrementAndGet();
+            return PaymentResponse.newBuilder().setPaymentId(11).build();
+        }));
+        charging.await();
+        Future<PaymentIdempotencyStore.Outcome> duplicate = executor.submit(() -> store.execute(1, "key", "item-1", charge(12)));
+        release.countDown();
+
+        assertThat(first.get().response().getPaymentId()).isEqualTo(11);
+        assertThat(duplicate.get().replayed()).isTrue();
+        assertThat(duplicate.get().response().getPaymentId()).isEqualTo(11);
+        assertThat(charges).hasValue(1);
+    }
+
+    @Test
+    void neverEvictsARunningPayment() throws Exception {
+        PaymentIdempotencyStore store = store(2, "");
+        CountDownLatch charging = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<PaymentIdempotencyStore.Outcome> slow = executor.submit(() -> store.execute(1, "slow", "item-1", sending -> {
+            sending.run();
+            charging.countDown();
+            await(release);
+            charges.incrementAndGet();
+            return PaymentResponse.newBuilder().setPaymentId(99).build();
+        }));
+        charging.await();
+        for (int i = 0; i < 50; i++) {
+            store.execute(1, "other-" + i, "item-1", charge(i));
+        }
+        Future<PaymentIdempotencyStore.Outcome> duplicate = executor.submit(() -> store.execute(1, "slow", "item-1", charge(-1)));
+        release.countDown();
+
+        assertThat(slow.get().response().getPaymentId()).isEqualTo(99);
+        assertThat(duplicate.get().response().getPaymentId()).isEqualTo(99);
+    }
+
+    @Test
+    void remembersOutcomesAcrossARestart() throws IOException {
+        PaymentIdempotencyStore store = store(100, journalDir.toString());
+        store.execute(1, "paid", "item-1", charge(11));
+        assertThatThrownBy(() -> store.execute(1, "unknown", "item-2", failingCharge(Status.UNAVAILABLE)))
+                .isInstanceOf(StatusRuntimeException.class);
+        store.stop();
+
+        PaymentIdempotencyStore restarted = store(100, journalDir.toString());
+
+        PaymentIdempotencyStore.Outcome replayed = restarted.execute(1, "paid", "item-1", charge(12));
+        assertThat(replayed.replayed()).isTrue();
+        assertThat(replayed.response().getPaymentId()).isEqualTo(11);
+        assertThatThrownBy(() -> restarted.execute(1, "unknown", "item-2", charge(13)))
+                .isInstanceOf(ConflictException.class);
+        assertThat(charges).hasValue(2);
+        restarted.stop();
+    }
+
+    @Test
+    void journalsNoPersonalDetails() throws IOException {
+        PaymentIdempotencyStore store = store(100, journalDir.toString());
+        store.execute(1, "paid", "item-1", charging -> {
+            charging.run();
+            return PaymentResponse.newBuilder()
+                    .setSuccess(true)
+                    .setPaymentId(11)
+                    .setMessage("Payment processed for Ada Lovelace")
+                    .setTransactionDate("2026-10-17")
+                    .setReceiptInfo(ReceiptInfo.newBuilder()
+                            .setReceiptId(5)
+                            .setFirstName("Ada")
+                            .setLastName("Lovelace")
+                            .setFullAddress("12 St James's Square, London")
+                            .setItemId(3)
+                            .setTotalPaid(120.5))
+                    .build();
+        });
+        store.stop();
+
+        PaymentResponse replayed = store(100, journalDir.toString()).execute(1, "paid", "item-1", charge(12)).response();
+
+        assertThat(replayed.getSuccess()).isTrue();
+        assertThat(replayed.getPaymentId()).isEqualTo(11);
+        assertThat(replayed.getTransactionDate()).isEqualTo("2026-10-17");
+        assertThat(replayed.getReceiptInfo().getReceiptId()).isEqualTo(5);
+        assertThat(replayed.getReceiptInfo().getItemId()).isEqualTo(3);
+        assertThat(replayed.getReceiptInfo().getTotalPaid()).isEqualTo(120.5);
+        assertThat(replayed.getMessage()).isEmpty();
+        assertThat(replayed.getReceiptInfo().getFirstName()).isEmpty();
+        assertThat(replayed.getReceiptInfo().getLastName()).isEmpty();
+        assertThat(replayed.getReceiptInfo().getFullAddress()).isEmpty();
+    }
+
+    @Test
+    void keepsTheJournalPrivateToItsOwner() throws IOException {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        Path dir = journalDir.resolve("journal");
+        PaymentIdempotencyStore store = store(100, dir.toString());
+        store.execute(1, "paid", "item-1", charge(11));
+        store.stop();
+
+        assertThat(Files.getPosixFilePermissions(dir)).isEqualTo(PosixFilePermissions.fromString("rwx------"));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files).isNotEmpty().allSatisfy(file -> assertThat(Files.getPosixFilePermissions(file))
+                    .isEqualTo(PosixFilePermissions.fromString("rw-------")));
+        }
+    }
+
+    private PaymentIdempotencyStore.Payment charge(int paymentId) {
+        return charging -> {
+            charging.run();
+            charges.incrementAndGet();
+            return PaymentResponse.newBuilder().setPaymentId(paymentId).setSuccess(true).build();
+        };
+    }
+
+    private PaymentIdempotencyStore.Payment failingCharge(Status status) {
+        return charging -> {
+            charging.run();
+            charges.incrementAndGet();
+            throw status.asRuntimeException();
+        };
+    }
+
+    private static PaymentIdempotencyStore store(long maxSize, String persistDir) throws IOException {
+        return new PaymentIdempotencyStore(Duration.ofHours(1), maxSize, Duration.ofSeconds(5), persistDir,
+                DataSize.ofMegabytes(16), new SimpleMeterRegistry());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
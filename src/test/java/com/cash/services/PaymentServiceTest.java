@@ -0,0 +1,97 @@
+package com.cash.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.cash.grpc.catalogue.ItemResponse;
+import com.ecommerce.payment.grpc.ShippingType;
+import com.ecommerce.payment.grpc.TotalCostResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class PaymentServiceTest {
+
+    private static final TotalCostResponse QUOTE = TotalCostResponse.newBuilder().setTotalCost(42).build();
+
+    private final PaymentService service = new PaymentService(100, Duration.ofHours(1), Duration.ofMinutes(5), 100, new SimpleMeterRegistry());
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void storesAQuoteWhenNothingWasEvicted() {
+        long stamp = service.quoteStamp(7);
+        service.cacheQuote(7, ShippingType.REGULAR, QUOTE, stamp);
+
+        assertThat(service.cachedQuote(7, ShippingType.REGULAR)).isEqualTo(QUOTE);
+        assertThat(service.cachedQuote(7, ShippingType.EXPEDITED)).isNull();
+    }
+
+    @Test
+    void dropsAQuoteComputedBeforeAnEviction() {
+        long stamp = service.quoteStamp(7);
+        service.evictQuotes(7);
+        service.cacheQuote(7, ShippingType.REGULAR, QUOTE, stamp);
+
+        assertThat(service.cachedQuote(7, ShippingType.REGULAR)).isNull();
+    }
+
+    // Whichever way the eviction and the store interleave, a quote stamped before the eviction
+    // must not survive it
+    @Test
+    void cacheQuoteLosesToAConcurrentEviction() throws Exception {
+        CyclicBarrier start = new CyclicBarrier(2);
+        for (int round = 0; round < 2_000; round++) {
+            long stamp = service.quoteStamp(7);
+            Future<?> evicting = executor.submit(() -> {
+                start.await();
+                service.evictQuotes(7);
+                return null;
+            });
+            Future<?> caching = executor.submit(() -> {
+                start.await();
+                service.cacheQuote(7, ShippingType.REGULAR, QUOTE, stamp);
+                return null;
+            });
+            evicting.get();
+            caching.get();
+
+            assertThat(service.cachedQuote(7, ShippingType.REGULAR)).as("round %d", round).isNull();
+        }
+    }
+
+    @Test
+    void evictsQuotesOfItemsTheSnapshotListsAsInactive() {
+        service.cacheQuote(1, ShippingType.REGULAR, QUOTE, service.quoteStamp(1));
+        service.cacheQuote(2, ShippingType.EXPEDITED, QUOTE, service.quoteStamp(2));
+
+        service.onSnapshotRefreshed(new CatalogueSnapshot.Refreshed(CatalogueSnapshot.Snapshot.of(
+                List.of(item(1, true), item(2, false)), System.currentTimeMillis(), 0)));
+
+        assertThat(service.cachedQuote(1, ShippingType.REGULAR)).isEqualTo(QUOTE);
+        assertThat(service.cachedQuote(2, ShippingType.EXPEDITED)).isNull();
+    }
+
+    @Test
+    void leavesEpochsAloneForInactiveItemsWithoutQuotes() {
+        long stamp = service.quoteStamp(3);
+
+        service.onSnapshotRefreshed(new CatalogueSnapshot.Refreshed(CatalogueSnapshot.Snapshot.of(
+                List.of(item(3, false)), System.currentTimeMillis(), 0)));
+
+        assertThat(service.quoteStamp(3)).isEqualTo(stamp);
+    }
+
+    private static ItemResponse item(int id, boolean active) {
+        return ItemResponse.newBuilder().setId(id).setActive(active).build();
+    }
+}
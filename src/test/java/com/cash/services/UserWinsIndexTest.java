@@ -0,0 +1,168 @@
+package com.cash.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.cash.grpc.auctionservice.GetAuctionWinnerResponse;
+import com.cash.grpc.catalogue.ItemResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UserWinsIndexTest {
+
+    private static final String ENDED = "2020-01-01T00:00:00";
+    private static final String RUNNING = "2999-01-01T00:00:00";
+
+    private final AuctionService auctionService = mock(AuctionService.class);
+    private final CatalogueSnapshot catalogueSnapshot = mock(CatalogueSnapshot.class);
+
+    // What the fake auction-service reports as the winner, by catalogue id
+    private final Map<Integer, Integer> winners = new HashMap<>();
+    // The final winners the fake router has cached, by catalogue id
+    private final Map<Integer, Integer> cachedWinners = new HashMap<>();
+    private int lookups;
+
+    private UserWinsIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserWinsIndex(auctionService, catalogueSnapshot, Duration.ZERO, 20, 0.1, new SimpleMeterRegistry());
+        when(auctionService.getAuctionWinners(anyList())).thenAnswer(call -> lookUp(call.getArgument(0), true));
+        when(auctionService.fetchAuctionWinners(anyList())).thenAnswer(call -> lookUp(call.getArgument(0), false));
+        when(auctionService.knownAuctionWinner(anyInt())).thenAnswer(call -> {
+            Integer winner = cachedWinners.get((Integer) call.getArgument(0));
+            return winner == null ? null : winner(winner);
+        });
+    }
+
+    @Test
+    void scansEveryActiveItemUntilTheBackfillHasRun() {
+        catalogue(item(1, ENDED), item(2, ENDED));
+        winners.put(1, 7);
+
+        assertThat(index.winsFor(7).wins()).extracting(UserWinsIndex.Win::catalogueId).containsExactly(1);
+        assertThat(lookups).isEqualTo(2);
+    }
+
+    @Test
+    void scanSkipsAFoundWinnerThatIsNotFinal() {
+        catalogue(item(1, ENDED), item(2, RUNNING));
+        cachedWinners.put(1, 7);
+        // The leader of the running auction comes back found, but the router has not cached it as final
+        when(auctionService.getAuctionWinners(anyList()))
+                .thenReturn(new BoundedFanOut.Result<>(List.of(winner(7), winner(7)), 0));
+
+        assertThat(index.winsFor(7).wins()).extracting(UserWinsIndex.Win::catalogueId).containsExactly(1);
+    }
+
+    @Test
+    void answersFromTheIndexOnceReady() {
+        catalogue(item(1, ENDED), item(2, ENDED), item(3, RUNNING));
+        winners.put(1, 7);
+        index.sweep();
+        int afterSweep = lookups;
+
+        assertThat(index.winsFor(7).wins()).containsExactly(new UserWinsIndex.Win(1, "item 1", 100));
+        assertThat(index.winsFor(8).wins()).isEmpty();
+        // Settled items are not asked again, and the running auction is not due yet
+        assertThat(lookups).isEqualTo(afterSweep);
+    }
+
+    @Test
+    void rebuildDiscardsWhatTheIndexKnewAndSettlesAgain() {
+        catalogue(item(1, ENDED), item(2, ENDED));
+        winners.put(1, 7);
+        index.sweep();
+        assertThat(index.winsFor(7).wins()).hasSize(1);
+
+        winners.put(1, 8);
+        winners.put(2, 7);
+        index.rebuild();
+
+        assertThat(index.winsFor(7).wins()).extracting(UserWinsIndex.Win::catalogueId).containsExactly(2);
+        assertThat(index.winsFor(8).wins()).extracting(UserWinsIndex.Win::catalogueId).containsExactly(1);
+    }
+
+    @Test
+    void consistencyCheckRepairsAVanishedWinner() {
+        catalogue(item(1, ENDED), item(2, ENDED));
+        winners.put(1, 7);
+        index.sweep();
+
+        // The auction-service no longer reports a winner for item 1
+        winners.remove(1);
+        index.checkConsistency();
+
+        assertThat(index.winsFor(7).wins()).isEmpty();
+    }
+
+    @Test
+    void consistencyCheckLooksPastTheRoutersCache() {
+        catalogue(item(1, ENDED), item(2, ENDED));
+        winners.put(1, 7);
+        index.sweep();
+
+        // The auction-service now reports another winner than the one the router cached
+        winners.put(1, 8);
+        index.checkConsistency();
+
+        assertThat(index.winsFor(7).wins()).isEmpty();
+        assertThat(index.winsFor(8).wins()).extracting(UserWinsIndex.Win::catalogueId).containsExactly(1);
+    }
+
+    @Test
+    void dropsItemsThatBecomeInactive() {
+        catalogue(item(1, ENDED), item(2, ENDED));
+        winners.put(1, 7);
+        index.sweep();
+
+        catalogue(item(2, ENDED));
+        // A late announcement must not bring the paid item back
+        index.onAuctionWinner(new AuctionWinnerEvent(1, 7, 100));
+
+        assertThat(index.winsFor(7).wins()).isEmpty();
+    }
+
+    // Like the real service, found winners of ended auctions are cached and announced to the index when first seen
+    private BoundedFanOut.Result<GetAuctionWinnerResponse> lookUp(List<Integer> ids, boolean cached) {
+        List<GetAuctionWinnerResponse> results = new ArrayList<>();
+        for (Integer id : ids) {
+            Integer winner = cached && cachedWinners.containsKey(id) ? cachedWinners.get(id) : fetch(id);
+            results.add(winner == null ? GetAuctionWinnerResponse.newBuilder().setFound(false).build() : winner(winner));
+        }
+        return new BoundedFanOut.Result<>(results, 0);
+    }
+
+    private Integer fetch(int id) {
+        lookups++;
+        Integer winner = winners.get(id);
+        if (winner != null && !winner.equals(cachedWinners.put(id, winner))) {
+            index.onAuctionWinner(new AuctionWinnerEvent(id, winner, 100));
+        }
+        return winner;
+    }
+
+    private static GetAuctionWinnerResponse winner(int userId) {
+        return GetAuctionWinnerResponse.newBuilder().setFound(true).setWinnerUserId(userId).setFinalPrice(100).build();
+    }
+
+    private void catalogue(ItemResponse... items) {
+        CatalogueSnapshot.Snapshot snapshot = CatalogueSnapshot.Snapshot.of(List.of(items), System.currentTimeMillis(), 0);
+        when(catalogueSnapshot.peek()).thenReturn(snapshot);
+        when(catalogueSnapshot.get()).thenReturn(snapshot);
+        index.onSnapshotRefreshed(new CatalogueSnapshot.Refreshed(snapshot));
+    }
+
+    private static ItemResponse item(int id, String endTime) {
+        return ItemResponse.newBuilder().setId(id).setTitle("item " + id).setActive(true).setEndTime(endTime).build();
+    }
+}